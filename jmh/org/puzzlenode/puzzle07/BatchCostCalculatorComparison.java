@@ -0,0 +1,134 @@
+package org.puzzlenode.puzzle07;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.puzzlenode.puzzle07.metrics.Metrics;
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.PeriodsReader;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+import org.puzzlenode.puzzle07.util.DateFormatter;
+
+/**
+ * A parity check of the BatchCostCalculator: the costs of its fork-join tiles
+ * (on the common pool, on pools of a few threads, and metered) are compared,
+ * bit for bit, with those of the serial flow (BasicCostCalculator.calculateCost()
+ * for every period and unit). The data are either given files (e.g. the sample
+ * catalogue and periods) or synthetic, of sizes that are not multiples
+ * of the tiles (so that there are tiles of every shape)
+ * @author pek
+ */
+public final class BatchCostCalculatorComparison {
+	private static final DateFormatter FORMATTER = new DateFormatter(); // a DateFormatter instance
+	private static final int MAX_EXAMPLES = 20;	// the differences to print
+	private static final int[] THREADS = {1, 2, 4};	// the parallelism of the pools
+
+	private BatchCostCalculatorComparison() {
+	}
+
+	/**
+	 * The comparison starts here
+	 * @param args Either the JSON file of a catalogue and a file of periods
+	 * (one per line), or optionally the amount of units (default: 1000)
+	 * and of periods (default: 777) of synthetic data
+	 */
+	public static void main(String[] args) throws Exception {
+		final RentalUnits rentalUnits;
+		final List<Period> periods;
+
+		if (args.length == 2 && !args[0].matches("\\d+")) {
+			rentalUnits = RentalUnits.newRentalUnits(args[0]);
+			periods = new ArrayList<Period>();
+
+			try (PeriodsReader reader = PeriodsReader.newPeriodsReader(args[1])) {
+				while (reader.hasNext()) {
+					periods.add(reader.next());
+				}
+
+				if (reader.getFailure() != null) {
+					throw reader.getFailure();
+				}
+			}
+		} else {
+			final int units = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+			final int count = (args.length > 1) ? Integer.parseInt(args[1]) : 777;
+			rentalUnits = SyntheticData.loadCatalogue(units, 1, 50, 19L);
+			periods = Arrays.asList(SyntheticData.periods(count, 1, 3650, 23L));
+		}
+
+		final BasicCostCalculator calc = new BasicCostCalculator();
+		final double[][] expected = new double[periods.size()][rentalUnits.size()];
+
+		for (int period = 0; period < expected.length; period++) {
+			for (int unit = 0; unit < rentalUnits.size(); unit++) {
+				expected[period][unit]
+					= calc.calculateCost(rentalUnits.getRentalUnit(unit), periods.get(period));
+			}
+		}
+
+		System.out.println(String.format("%d units x %d periods", rentalUnits.size(), periods.size()));
+		int differences = compare("common pool", new BatchCostCalculator(), rentalUnits, periods,
+									expected, 0);
+
+		for (int threads : THREADS) {
+			final ForkJoinPool pool = new ForkJoinPool(threads);
+
+			try {
+				differences = compare(threads + " threads",
+										new BatchCostCalculator(calc, pool, null),
+										rentalUnits, periods, expected, differences);
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		final Metrics metrics = Metrics.newMetrics("BatchCostCalculatorComparison");
+		differences = compare("metered", new BatchCostCalculator(metrics), rentalUnits, periods,
+								expected, differences);
+		final long quotes = metrics.counter(MeteringCostCalculator.QUOTES).sum();
+
+		if (quotes != (long) rentalUnits.size() * periods.size()) {
+			System.out.println("metered: " + quotes + " quotes counted");
+			differences++;
+		}
+
+		System.out.println(String.format("%d differences", differences));
+	}
+
+	/**
+	 * Compares the costs of a BatchCostCalculator with the expected ones,
+	 * prints the first differences and a summary
+	 * @return The differences so far
+	 */
+	private static int compare(final String title, final BatchCostCalculator batch,
+								final RentalUnits rentalUnits, final List<Period> periods,
+								final double[][] expected, final int differencesSoFar) {
+		final long before = System.nanoTime();
+		final double[][] costs = batch.calculateCosts(rentalUnits, periods);
+		final long time = System.nanoTime() - before;
+		int differences = (costs.length == expected.length) ? 0 : 1;
+
+		for (int period = 0; period < Math.min(costs.length, expected.length); period++) {
+			for (int unit = 0; unit < expected[period].length; unit++) {
+				if (Double.doubleToLongBits(costs[period][unit])
+					== Double.doubleToLongBits(expected[period][unit])) {
+					continue;
+				}
+
+				if (differencesSoFar + differences++ < MAX_EXAMPLES) {
+					final Period p = periods.get(period);
+					System.out.println(String.format("%s: %s - %s %s: serial %s, batch %s", title,
+										FORMATTER.formatDate(p.getFrom()), FORMATTER.formatDate(p.getTo()),
+										rentalUnits.getRentalUnit(unit).getName(),
+										expected[period][unit], costs[period][unit]));
+				}
+			}
+		}
+
+		System.out.println(String.format("%s: %d differences (%.1f ms)", title, differences, time / 1e6));
+		return differencesSoFar + differences;
+	}
+
+}
@@ -0,0 +1,33 @@
+package org.puzzlenode.puzzle07;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that the allocation rates
+ * (gc.alloc.rate.norm: bytes per operation) are reported next to the scores
+ * @author pek
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+	}
+
+	/**
+	 * Benchmarks start here
+	 * @param args Optionally, a regular expression of the benchmarks to run;
+	 * all benchmarks of the package run by default
+	 */
+	public static void main(String[] args) throws RunnerException {
+		final String include = (args.length > 0) ? args[0] : "org\\.puzzlenode\\.puzzle07\\..*";
+		final Options options = new OptionsBuilder()
+										.include(include)
+										.addProfiler(GCProfiler.class)
+										.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,88 @@
+package org.puzzlenode.puzzle07;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+
+/**
+ * Benchmark of the bulk quoting of a periods file against a catalogue:
+ * the BulkSolver against the PipelinedBulkSolver (the output is discarded)
+ * @author pek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkSolverBenchmark {
+
+	@Param({"1000"})
+	public int units;			// The amount of rental units of the catalogue
+
+	@Param({"1000"})
+	public int periods;			// The amount of periods of the periods file
+
+	private final BulkSolver bulkSolver = new BulkSolver(); // the sequential solver
+	private final PipelinedBulkSolver pipelinedBulkSolver
+		= new PipelinedBulkSolver();	// the pipelined solver
+	private RentalUnits rentalUnits;	// The rental units of the catalogue
+	private Path periodsFile;			// The periods file
+	private final WritableByteChannel output = new WritableByteChannel() {
+		@Override
+		public int write(final ByteBuffer src) {
+			final int bytes = src.remaining();
+			src.position(src.limit());
+			return bytes;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+	};	// The output, discarded
+
+	@Setup
+	public void setUp() throws Exception {
+		rentalUnits = SyntheticData.loadCatalogue(units, 1, 50, 7L);
+		periodsFile = Files.createTempFile("periods", ".txt");
+		SyntheticData.writePeriods(periodsFile, SyntheticData.periods(periods, 1, 30, 11L));
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		Files.delete(periodsFile);
+	}
+
+	@Benchmark
+	public long bulkSolver() throws IOException {
+		return bulkSolver.solve(rentalUnits, periodsFile.toString(), output);
+	}
+
+	@Benchmark
+	public long pipelinedBulkSolver() throws IOException {
+		return pipelinedBulkSolver.solve(rentalUnits, periodsFile.toString(), output);
+	}
+
+}
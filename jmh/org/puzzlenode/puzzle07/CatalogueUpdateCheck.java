@@ -0,0 +1,218 @@
+package org.puzzlenode.puzzle07;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.json.simple.JSONObject;
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnitsCatalogue;
+
+/**
+ * A check of the RentalUnitsCatalogue under edits: reader threads quote
+ * random rental units of the current version, first without and then with
+ * a writer publishing edits all the time, and the latencies of the reads
+ * (taking the version and a rental unit, and quoting) are reported.
+ * Every edit gives the same new rate to two rental units in one version,
+ * so a reader that ever sees them with different costs has seen a torn version.
+ * At the end, the rates column-wise and their bounds are laid out in a few more
+ * versions (carrying over the rows of the unchanged units, see
+ * RentalUnits.withRentalUnits()) and checked against the costs of every unit
+ * @author pek
+ */
+public final class CatalogueUpdateCheck {
+	private static final String FIRST = "Edited 1";		// the first edited unit
+	private static final String SECOND = "Edited 2";	// the second edited unit
+	private static final int CARRIED_VERSIONS = 8;	// the versions laid out at the end
+	private static final int CARRIED_PERIODS = 16;	// the periods quoted in each of them
+	private static final int CHEAPEST = 10;			// the cheapest units compared
+
+	private CatalogueUpdateCheck() {
+	}
+
+	/**
+	 * The check starts here
+	 * @param args Optionally, the amount of units (default: 20000),
+	 * of reader threads (default: 2) and of reads per thread and phase
+	 * (default: 1000000)
+	 */
+	public static void main(String[] args) throws Exception {
+		final int units = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+		final int readers = (args.length > 1) ? Integer.parseInt(args[1]) : 2;
+		final int reads = (args.length > 2) ? Integer.parseInt(args[2]) : 1000000;
+
+		final RentalUnitsCatalogue catalogue = RentalUnitsCatalogue.newRentalUnitsCatalogue(
+														SyntheticData.loadCatalogue(units, 1, 50, 7L));
+		catalogue.update(edit(100));
+		final Period[] periods = SyntheticData.periods(1024, 1, 30, 11L);
+
+		System.out.println("Without edits: " + read(catalogue, periods, readers, reads));
+
+		final AtomicBoolean stopped = new AtomicBoolean(false);
+		final Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int rate = 101; !stopped.get(); rate = (rate < 999) ? rate + 1 : 101) {
+					catalogue.update(edit(rate));
+				}
+			}
+		}, "Writer");
+		writer.start();
+
+		try {
+			System.out.println("With edits:    " + read(catalogue, periods, readers, reads));
+		} finally {
+			stopped.set(true);
+			writer.join();
+		}
+
+		System.out.println(catalogue.getVersion() + " published");
+		System.out.println("Carried rates: " + carry(catalogue, periods));
+	}
+
+	/**
+	 * Lays out the rates column-wise and their bounds in a few versions
+	 * (with units changed, added and removed) and returns the differences
+	 * of their costs and cheapest units from those calculated unit by unit
+	 */
+	@SuppressWarnings("unchecked")
+	private static String carry(final RentalUnitsCatalogue catalogue, final Period[] periods) {
+		final BasicCostCalculator calc = new BasicCostCalculator();
+		final PortfolioCostCalculator portfolio = PortfolioCostCalculator.newPortfolioCostCalculator();
+		final CheapestUnits cheapest = new CheapestUnits();
+		final Random random = new Random(13L);
+		int differences = 0;
+		long layout = 0L;
+
+		catalogue.getRentalUnits().getRateColumns();
+		catalogue.getRentalUnits().getRateBounds();
+
+		for (int version = 0; version < CARRIED_VERSIONS; version++) {
+			final List<JSONObject> edit = edit(200 + version);
+			final JSONObject added = new JSONObject();
+			added.put("name", "Added " + version);
+			added.put("rate", "$" + (50 + version) + ".00");
+			added.put("cleaning fee", "$0.00");
+			edit.add(added);
+			catalogue.update(edit);
+			catalogue.remove(catalogue.getRentalUnits()
+								.getRentalUnit(random.nextInt(catalogue.getRentalUnits().size()))
+								.getName());
+
+			final RentalUnits rentalUnits = catalogue.getRentalUnits();
+			final long start = System.nanoTime();
+			rentalUnits.getRateColumns();
+			rentalUnits.getRateBounds();
+			layout += System.nanoTime() - start;
+
+			for (int p = 0; p < CARRIED_PERIODS; p++) {
+				final Period period = periods[random.nextInt(periods.length)];
+				final double[] costs = portfolio.calculateCosts(rentalUnits, period);
+				final Integer[] sorted = new Integer[costs.length];
+
+				for (int unit = 0; unit < costs.length; unit++) {
+					if (costs[unit] != calc.calculateCost(rentalUnits.getRentalUnit(unit), period)) {
+						differences++;
+					}
+
+					sorted[unit] = unit;
+				}
+
+				Arrays.sort(sorted, (u1, u2) -> Double.compare(costs[u1], costs[u2]));
+				final List<Quote> quotes = cheapest.find(rentalUnits, period, CHEAPEST);
+
+				for (int i = 0; i < quotes.size(); i++) {
+					if (quotes.get(i).getCost() != costs[sorted[i]]) {
+						differences++;
+					}
+				}
+			}
+		}
+
+		return String.format("%d versions, %.1f ms per layout, %d differences",
+								CARRIED_VERSIONS, layout / 1e6 / CARRIED_VERSIONS, differences);
+	}
+
+	/**
+	 * Returns the two edited rental units at a given rate
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<JSONObject> edit(final int rate) {
+		final List<JSONObject> edit = new ArrayList<JSONObject>();
+
+		for (String name : new String[] {FIRST, SECOND}) {
+			final JSONObject rentalUnitData = new JSONObject();
+			rentalUnitData.put("name", name);
+			rentalUnitData.put("rate", "$" + rate + ".00");
+			rentalUnitData.put("cleaning fee", "$10.00");
+			edit.add(rentalUnitData);
+		}
+
+		return edit;
+	}
+
+	/**
+	 * Runs the reader threads and returns their latencies and torn reads
+	 */
+	private static String read(final RentalUnitsCatalogue catalogue, final Period[] periods,
+								final int readers, final int reads) throws InterruptedException {
+		final long[][] latencies = new long[readers][reads];
+		final int[] torn = new int[readers];
+		final Thread[] threads = new Thread[readers];
+
+		for (int r = 0; r < readers; r++) {
+			final int reader = r;
+			threads[r] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					final BasicCostCalculator calc = new BasicCostCalculator();
+					final Random random = new Random(reader);
+					double sink = 0.0;
+
+					for (int i = 0; i < reads; i++) {
+						final Period period = periods[i & (periods.length - 1)];
+						final long start = System.nanoTime();
+						final RentalUnits rentalUnits = catalogue.getRentalUnits();
+						final RentalUnit rentalUnit
+							= rentalUnits.getRentalUnit(random.nextInt(rentalUnits.size()));
+						sink += calc.calculateCost(rentalUnit, period);
+						latencies[reader][i] = System.nanoTime() - start;
+
+						if ((i & 1023) == 0
+							&& calc.calculateCost(rentalUnits.getRentalUnit(FIRST), period)
+								!= calc.calculateCost(rentalUnits.getRentalUnit(SECOND), period)) {
+							torn[reader]++;
+						}
+					}
+
+					if (sink < 0.0) {
+						System.out.println(sink);	// keeps the quotes from being optimized away
+					}
+				}
+			}, "Reader " + r);
+			threads[r].start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		final long[] all = new long[readers * reads];
+		int tornReads = 0;
+
+		for (int r = 0; r < readers; r++) {
+			System.arraycopy(latencies[r], 0, all, r * reads, reads);
+			tornReads += torn[r];
+		}
+
+		Arrays.sort(all);
+		return String.format("p50 %d ns, p99 %d ns, p99.9 %d ns, %d torn reads",
+								all[all.length / 2], all[(int) (all.length * 0.99)],
+								all[(int) (all.length * 0.999)], tornReads);
+	}
+
+}
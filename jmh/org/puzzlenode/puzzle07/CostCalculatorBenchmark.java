@@ -0,0 +1,115 @@
+package org.puzzlenode.puzzle07;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.puzzlenode.puzzle07.metrics.Metrics;
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+import org.puzzlenode.puzzle07.rentalunits.SeasonalRate;
+
+/**
+ * Benchmarks of the cost calculations: a whole quote (calculateCost(),
+ * including the split of the period in years) and the overnights
+ * of a single season (calculateNights()), for units with 1 to 50 seasons
+ * and for stays of 1 night up to 100 years; a whole quote is also benchmarked
+ * metered (by a MeteringCostCalculator) one at a time, and the quotes of all units
+ * for one period, bare and metered as a batch, for the overhead of the metrics
+ * @author pek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CostCalculatorBenchmark {
+	private static final int UNITS = 256;		// units of the catalogue
+	private static final int PERIODS = 256;		// periods of every benchmark invocation
+
+	@Param({"1", "10", "50"})
+	public int seasons;			// The amount of seasons of every unit
+
+	@Param({"1", "7", "365", "3650", "36500"})
+	public int nights;			// The (maximum) amount of nights of every period
+
+	private final CostCalculator calc = new BasicCostCalculator(); // the benchmarked calculator
+	private final MeteringCostCalculator meteredCalc
+		= new MeteringCostCalculator(calc, Metrics.newMetrics("benchmark")); // the same, metered
+	private RentalUnits catalogue;		// The rental units
+	private RentalUnit[] rentalUnits;	// the same, in an array
+	private final double[] costs = new double[UNITS];	// The costs of a batch
+	private Period[] periods;			// The reservation periods
+
+	@Setup
+	public void setUp() throws Exception {
+		catalogue = SyntheticData.loadCatalogue(UNITS, seasons, seasons, 7L);
+		rentalUnits = new RentalUnit[catalogue.size()];
+
+		for (int i = 0; i < rentalUnits.length; i++) {
+			rentalUnits[i] = catalogue.getRentalUnit(i);
+		}
+
+		periods = SyntheticData.periods(PERIODS, Math.max(1, nights / 2), nights, 11L);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PERIODS)
+	public void calculateCost(final Blackhole blackhole) {
+		for (int i = 0; i < periods.length; i++) {
+			final RentalUnit rentalUnit = rentalUnits[i % rentalUnits.length];
+			blackhole.consume(calc.calculateCost(rentalUnit, periods[i]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PERIODS)
+	public void calculateMeteredCost(final Blackhole blackhole) {
+		for (int i = 0; i < periods.length; i++) {
+			final RentalUnit rentalUnit = rentalUnits[i % rentalUnits.length];
+			blackhole.consume(meteredCalc.calculateCost(rentalUnit, periods[i]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UNITS)
+	public void calculateCosts(final Blackhole blackhole) {
+		for (int i = 0; i < catalogue.size(); i++) {
+			costs[i] = calc.calculateCost(catalogue.getRentalUnit(i), periods[0]);
+		}
+
+		blackhole.consume(costs);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UNITS)
+	public void calculateMeteredCosts(final Blackhole blackhole) {
+		blackhole.consume(meteredCalc.calculateCosts(catalogue, periods[0], costs));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PERIODS)
+	public void calculateNights(final Blackhole blackhole) {
+		for (int i = 0; i < periods.length; i++) {
+			final RentalUnit rentalUnit = rentalUnits[i % rentalUnits.length];
+
+			for (SeasonalRate seasonalRate : rentalUnit.getSeasonalRates()) {
+				blackhole.consume(calc.calculateNights(seasonalRate, periods[i]));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.puzzlenode.puzzle07;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+import org.puzzlenode.puzzle07.util.DateFormatter;
+
+/**
+ * A differential comparison of the BasicCostCalculator (doubles) and the
+ * CentsCostCalculator (fixed-point cents) on a synthetic catalogue:
+ * it quotes random periods on both, compares the costs as printed
+ * (two decimals) and reports the differences, each one along with
+ * the exact cost (in BigDecimal) rounded half-up to the cent
+ * @author pek
+ */
+public final class CostCalculatorComparison {
+	private static final DateFormatter FORMATTER = new DateFormatter(); // a DateFormatter instance
+	private static final BigDecimal TAXED = new BigDecimal("1.0411416"); // the taxed share
+	private static final int MAX_EXAMPLES = 20;	// the differences to print
+
+	private CostCalculatorComparison() {
+	}
+
+	/**
+	 * The comparison starts here
+	 * @param args Optionally, the amount of quotes (default: 2000000),
+	 * of units (default: 1000) and the maximum nights (default: 3650)
+	 */
+	public static void main(String[] args) throws Exception {
+		final int quotes = (args.length > 0) ? Integer.parseInt(args[0]) : 2000000;
+		final int units = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+		final int maxNights = (args.length > 2) ? Integer.parseInt(args[2]) : 3650;
+
+		final RentalUnits rentalUnits = SyntheticData.loadCatalogue(units, 1, 50, 13L);
+		final Period[] periods = SyntheticData.periods(quotes, 1, maxNights, 17L);
+
+		final BasicCostCalculator basic = new BasicCostCalculator();
+		final CentsCostCalculator cents = new CentsCostCalculator();
+		int differences = 0;
+		int basicRight = 0;
+		int centsWrong = 0;
+
+		for (int i = 0; i < quotes; i++) {
+			final RentalUnit rentalUnit = rentalUnits.getRentalUnit(i % rentalUnits.size());
+			final String basicCost = String.format(Locale.ROOT, "%.2f",
+													basic.calculateCost(rentalUnit, periods[i]));
+			final long centsCost = cents.calculateCents(rentalUnit, periods[i]);
+			final String centsCostText = BigDecimal.valueOf(centsCost, 2).toPlainString();
+
+			final String exact = exactCost(cents, rentalUnit, periods[i]);
+			centsWrong += centsCostText.equals(exact) ? 0 : 1;
+
+			if (!basicCost.equals(centsCostText)) {
+				differences++;
+				basicRight += basicCost.equals(exact) ? 1 : 0;
+
+				if (differences <= MAX_EXAMPLES) {
+					System.out.println(String.format("%s - %s %s: basic %s, cents %s, exact %s",
+										FORMATTER.formatDate(periods[i].getFrom()),
+										FORMATTER.formatDate(periods[i].getTo()),
+										rentalUnit.getName(), basicCost, centsCostText, exact));
+				}
+			}
+		}
+
+		System.out.println(String.format("%d quotes, %d differences (%.4f%%), basic right in %d;"
+											+ " cents wrong in %d",
+											quotes, differences, 100.0 * differences / quotes,
+											basicRight, centsWrong));
+	}
+
+	/**
+	 * The untaxed cost in cents is exact (the rates have whole cents);
+	 * the exact taxed cost is calculated from it in BigDecimal
+	 */
+	private static String exactCost(final CentsCostCalculator cents,
+									final RentalUnit rentalUnit, final Period period) {
+		return BigDecimal.valueOf(cents.calculateRentalCents(rentalUnit, period)).multiply(TAXED)
+				.movePointLeft(2).setScale(2, RoundingMode.HALF_UP).toPlainString();
+	}
+
+}
@@ -0,0 +1,75 @@
+package org.puzzlenode.puzzle07;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.puzzlenode.puzzle07.rentalunits.LazyRentalUnits;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+
+/**
+ * Benchmark of the loading of a JSON catalogue of rental units:
+ * all of them, or (lazily) a working set of them
+ * @author pek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadingBenchmark {
+
+	@Param({"1000", "100000"})
+	public int units;			// The amount of rental units of the catalogue
+
+	@Param({"50"})
+	public int maxSeasons;		// The maximum amount of seasons of every unit
+
+	@Param({"100"})
+	public int workingSet;		// The rental units used after a lazy load
+
+	private Path catalogue;		// The JSON catalogue
+
+	@Setup
+	public void setUp() throws Exception {
+		catalogue = Files.createTempFile("catalogue", ".json");
+		SyntheticData.writeCatalogue(catalogue, units, 1, maxSeasons, 7L);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		Files.delete(catalogue);
+	}
+
+	@Benchmark
+	public RentalUnits newRentalUnits() {
+		return RentalUnits.newRentalUnits(catalogue.toString());
+	}
+
+	@Benchmark
+	public LazyRentalUnits newLazyRentalUnits() {
+		final LazyRentalUnits rentalUnits
+			= LazyRentalUnits.newLazyRentalUnits(catalogue.toString(), workingSet);
+		final int step = Math.max(1, units / workingSet);
+
+		for (int i = 0; i < units; i += step) {
+			rentalUnits.getRentalUnit(i);
+		}
+
+		return rentalUnits;
+	}
+
+}
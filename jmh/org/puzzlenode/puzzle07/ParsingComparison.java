@@ -0,0 +1,322 @@
+package org.puzzlenode.puzzle07;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.puzzlenode.puzzle07.util.AmountParser;
+import org.puzzlenode.puzzle07.util.DateFactory;
+import org.puzzlenode.puzzle07.util.DateFormatter;
+
+/**
+ * A differential comparison of the DateFormatter and the AmountParser with
+ * what they replaced: SimpleDateFormat ('yyyy/MM/dd' and 'MM-dd', lenient)
+ * and Double.parseDouble() (with the '$' removed). Random inputs, most of them
+ * well-formed (with out-of-range months and days, missing leading zeros and
+ * trailing text) and some malformed, are parsed by both; a difference is
+ * a different date or amount (bit for bit), or one side rejecting the input.
+ * SimpleDateFormat is set to the proleptic Gregorian calendar in UTC
+ * (as the epoch-days); malformed inputs are kept shorter than the numbers
+ * of 10 digits, which only SimpleDateFormat accepts (and overflows).
+ * The formatted dates (of years 1 to 9999, i.e. of 4 digits and no era)
+ * are compared as well. Both sides are timed at the end
+ * @author pek
+ */
+public final class ParsingComparison {
+	private static final int MAX_EXAMPLES = 20;	// the differences to print
+	private static final int MIN_YEAR = 1600;	// the range of the years (Gregorian)
+	private static final int MAX_YEAR = 2400;
+	private static final String JUNK = "/-.$ x+e\t";	// characters of malformed inputs
+	private static final int MAX_JUNK = 9;		// max length of malformed inputs
+	private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+	// the range of the formatted dates
+	private static final int FIRST_FORMATTED = new DateFactory().createFirstDateOfYear(1);
+	private static final int LAST_FORMATTED = new DateFactory().createLastDateOfYear(9999);
+
+	private ParsingComparison() {
+	}
+
+	/**
+	 * The comparison starts here
+	 * @param args Optionally, the amount of inputs of every kind (default: 200000)
+	 */
+	public static void main(String[] args) throws Exception {
+		final int inputs = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+		final Random random = new Random(19L);
+		final String[] dates = new String[inputs];
+		final String[] monthDays = new String[inputs];
+		final String[] amounts = new String[inputs];
+
+		for (int i = 0; i < inputs; i++) {
+			dates[i] = (i % 10 == 0) ? junk(random) : date(random);
+			monthDays[i] = (i % 10 == 0) ? junk(random) : monthDay(random);
+			amounts[i] = (i % 10 == 0) ? junk(random) : amount(random);
+		}
+
+		final DateFormatter formatter = new DateFormatter();
+		final SimpleDateFormat dateFormat = newFormat("yyyy/MM/dd");
+		final SimpleDateFormat monthDayFormat = newFormat("MM-dd");
+		final AmountParser amountParser = new AmountParser();
+		final ByteBuffer buffer = ByteBuffer.allocate(16);
+		int differences = 0;
+
+		for (int i = 0; i < inputs; i++) {
+			final String expected = dateOf(dateFormat, dates[i]);
+			String actual;
+
+			try {
+				final int day = formatter.parseDate(dates[i]);
+				actual = Integer.toString(day);
+
+				if (day < FIRST_FORMATTED || day > LAST_FORMATTED) {
+					differences += report("date", dates[i], expected, actual, differences);
+					continue;
+				}
+
+				final String formatted = dateFormat.format(date(day));
+				buffer.clear();
+				formatter.formatDate(day, buffer);
+
+				if (!formatted.equals(formatter.formatDate(day))
+					|| !formatted.equals(new String(buffer.array(), 0, buffer.position(),
+													StandardCharsets.US_ASCII))) {
+					actual += " formatted " + formatter.formatDate(day);
+				}
+			} catch (ParseException e) {
+				actual = "rejected";
+			}
+
+			differences += report("date", dates[i], expected, actual, differences);
+		}
+
+		for (int i = 0; i < inputs; i++) {
+			final String expected = dateOf(monthDayFormat, monthDays[i]);
+			String actual;
+
+			try {
+				final int day = formatter.parseMonthDay(monthDays[i]);
+				actual = Integer.toString(day);
+
+				if (day >= FIRST_FORMATTED && day <= LAST_FORMATTED
+					&& !monthDayFormat.format(date(day)).equals(formatter.formatMonthDay(day))) {
+					actual += " formatted " + formatter.formatMonthDay(day);
+				}
+			} catch (ParseException e) {
+				actual = "rejected";
+			}
+
+			differences += report("month-day", monthDays[i], expected, actual, differences);
+		}
+
+		for (int i = 0; i < inputs; i++) {
+			differences += report("amount", amounts[i], amountOf(amounts[i]),
+									amountOf(amountParser, amounts[i]), differences);
+		}
+
+		System.out.println(String.format("%d dates, %d month-days and %d amounts: %d differences",
+											inputs, inputs, inputs, differences));
+		time(dates, amounts, formatter, dateFormat, amountParser);
+	}
+
+	// --- the inputs ---
+
+	private static String date(final Random random) {
+		final int year = MIN_YEAR + random.nextInt(MAX_YEAR - MIN_YEAR + 1);
+		return year + "/" + number(random, 0, 14) + "/" + number(random, 0, 40) + tail(random);
+	}
+
+	private static String monthDay(final Random random) {
+		return number(random, 0, 14) + "-" + number(random, 0, 40) + tail(random);
+	}
+
+	private static String amount(final Random random) {
+		final StringBuilder amount = new StringBuilder();
+
+		if (random.nextInt(8) > 0) {
+			amount.append('$');
+		}
+
+		amount.append(Math.abs(random.nextLong()) % POWERS[1 + random.nextInt(POWERS.length - 1)]);
+
+		if (random.nextBoolean()) {
+			amount.append('.');
+
+			for (int digits = random.nextInt(5); digits > 0; digits--) {
+				amount.append((char) ('0' + random.nextInt(10)));
+			}
+		}
+
+		return (random.nextInt(8) == 0) ? " " + amount + " " : amount.toString();
+	}
+
+	private static final long[] POWERS = {
+		1L, 10L, 100L, 1000L, 10000L, 1000000L, 100000000L, 10000000000000L, 1000000000000000000L
+	};
+
+	/**
+	 * A number, with or without a leading zero
+	 */
+	private static String number(final Random random, final int min, final int max) {
+		final int number = min + random.nextInt(max - min + 1);
+		return (number < 10 && random.nextBoolean()) ? "0" + number : Integer.toString(number);
+	}
+
+	/**
+	 * Mostly nothing; otherwise some trailing text
+	 */
+	private static String tail(final Random random) {
+		switch (random.nextInt(16)) {
+			case 0:
+				return " - 2011/01/01";
+			case 1:
+				return "x";
+			default:
+				return "";
+		}
+	}
+
+	/**
+	 * Some digits and junk
+	 */
+	private static String junk(final Random random) {
+		final StringBuilder junk = new StringBuilder();
+
+		for (int length = random.nextInt(MAX_JUNK + 1); length > 0; length--) {
+			junk.append(random.nextBoolean()
+							? (char) ('0' + random.nextInt(10))
+							: JUNK.charAt(random.nextInt(JUNK.length())));
+		}
+
+		return junk.toString();
+	}
+
+	// --- both sides ---
+
+	/**
+	 * A lenient SimpleDateFormat of the proleptic Gregorian calendar in UTC
+	 */
+	private static SimpleDateFormat newFormat(final String pattern) {
+		final TimeZone utc = TimeZone.getTimeZone("UTC");
+		final GregorianCalendar calendar = new GregorianCalendar(utc, Locale.ROOT);
+		calendar.setGregorianChange(new Date(Long.MIN_VALUE));
+		final SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.ROOT);
+		format.setCalendar(calendar);
+		return format;
+	}
+
+	/**
+	 * The epoch-day of a date parsed by SimpleDateFormat (as text); "rejected"
+	 * if it cannot be parsed
+	 */
+	private static String dateOf(final SimpleDateFormat format, final String text) {
+		try {
+			return Long.toString(Math.floorDiv(format.parse(text).getTime(), MILLIS_PER_DAY));
+		} catch (ParseException e) {
+			return "rejected";
+		}
+	}
+
+	/**
+	 * The Date (at midnight, UTC) of an epoch-day, for SimpleDateFormat
+	 */
+	private static Date date(final int day) {
+		return new Date(day * MILLIS_PER_DAY);
+	}
+
+	/**
+	 * An amount parsed by Double.parseDouble() (the bits, as text); "rejected"
+	 * if it cannot be parsed
+	 */
+	private static String amountOf(final String text) {
+		try {
+			return Long.toHexString(Double.doubleToLongBits(
+										Double.parseDouble(text.trim().replace("$", ""))));
+		} catch (NumberFormatException e) {
+			return "rejected";
+		}
+	}
+
+	private static String amountOf(final AmountParser parser, final String text) {
+		try {
+			return Long.toHexString(Double.doubleToLongBits(parser.parseAmount(text)));
+		} catch (NumberFormatException e) {
+			return "rejected";
+		}
+	}
+
+	/**
+	 * Prints a difference (only the first ones)
+	 * @return 1 for a difference; 0 otherwise
+	 */
+	private static int report(final String kind, final String input, final String expected,
+								final String actual, final int differences) {
+		if (expected.equals(actual)) {
+			return 0;
+		}
+
+		if (differences < MAX_EXAMPLES) {
+			System.out.println(String.format("%s \"%s\": expected %s, actual %s",
+												kind, input, expected, actual));
+		}
+
+		return 1;
+	}
+
+	/**
+	 * Times the parsing of the well-formed inputs on both sides
+	 */
+	private static void time(final String[] dates, final String[] amounts,
+								final DateFormatter formatter, final SimpleDateFormat dateFormat,
+								final AmountParser amountParser) throws ParseException {
+		for (int round = 0; round < 5; round++) {
+			long sink = 0L;
+			final long start = System.nanoTime();
+
+			for (int i = 1; i < dates.length; i++) {
+				if (i % 10 != 0) {
+					sink += dateFormat.parse(dates[i]).getTime() >>> 40;
+				}
+			}
+
+			final long simpleDateFormat = System.nanoTime();
+
+			for (int i = 1; i < dates.length; i++) {
+				if (i % 10 != 0) {
+					sink += formatter.parseDate(dates[i]);
+				}
+			}
+
+			final long dateFormatter = System.nanoTime();
+
+			for (int i = 1; i < amounts.length; i++) {
+				if (i % 10 != 0) {
+					sink += (long) Double.parseDouble(amounts[i].trim().replace("$", ""));
+				}
+			}
+
+			final long parseDouble = System.nanoTime();
+
+			for (int i = 1; i < amounts.length; i++) {
+				if (i % 10 != 0) {
+					sink += (long) amountParser.parseAmount(amounts[i]);
+				}
+			}
+
+			final long end = System.nanoTime();
+			final double count = dates.length * 0.9;
+			System.out.println(String.format("dates: SimpleDateFormat %.0f ns, DateFormatter %.0f ns;"
+								+ " amounts: parseDouble %.0f ns, AmountParser %.0f ns (%d)",
+								(simpleDateFormat - start) / count,
+								(dateFormatter - simpleDateFormat) / count,
+								(parseDouble - dateFormatter) / count,
+								(end - parseDouble) / count, sink & 1));
+		}
+	}
+
+}
@@ -0,0 +1,92 @@
+package org.puzzlenode.puzzle07;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+
+/**
+ * Benchmarks of the quotes of one period in all the units of a catalogue:
+ * the per-unit calculateCost() loop of the BasicCostCalculator against
+ * the PortfolioCostCalculator on its scalar and on its SIMD kernel
+ * (the latter falls back to the scalar one, unless the benchmark JVM
+ * is run with '--add-modules jdk.incubator.vector'); the score is per period,
+ * i.e. per quote of the whole catalogue
+ * @author pek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PortfolioCostCalculatorBenchmark {
+	private static final int PERIODS = 64;		// periods of every benchmark invocation
+
+	@Param({"256", "4096"})
+	public int units;			// The amount of units of the catalogue
+
+	@Param({"7", "3650"})
+	public int nights;			// The (maximum) amount of nights of every period
+
+	private final CostCalculator calc = new BasicCostCalculator(); // the per-unit calculator
+	private final PortfolioCostCalculator scalarCalc
+		= PortfolioCostCalculator.newScalarPortfolioCostCalculator(); // the scalar kernel
+	private final PortfolioCostCalculator vectorCalc
+		= PortfolioCostCalculator.newPortfolioCostCalculator(); // the SIMD kernel, if available
+	private RentalUnits rentalUnits;	// The rental units
+	private Period[] periods;			// The reservation periods
+	private double[] costs;				// The costs of a period
+
+	@Setup
+	public void setUp() throws Exception {
+		rentalUnits = SyntheticData.loadCatalogue(units, 1, 50, 7L);
+		rentalUnits.getRateColumns();
+		periods = SyntheticData.periods(PERIODS, Math.max(1, nights / 2), nights, 11L);
+		costs = new double[units];
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PERIODS)
+	public void calculateCost(final Blackhole blackhole) {
+		for (Period period : periods) {
+			for (int unit = 0; unit < costs.length; unit++) {
+				costs[unit] = calc.calculateCost(rentalUnits.getRentalUnit(unit), period);
+			}
+
+			blackhole.consume(costs);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PERIODS)
+	public void calculateCostsScalar(final Blackhole blackhole) {
+		for (Period period : periods) {
+			scalarCalc.calculateCosts(rentalUnits, period, costs);
+			blackhole.consume(costs);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PERIODS)
+	public void calculateCostsVector(final Blackhole blackhole) {
+		for (Period period : periods) {
+			vectorCalc.calculateCosts(rentalUnits, period, costs);
+			blackhole.consume(costs);
+		}
+	}
+
+}
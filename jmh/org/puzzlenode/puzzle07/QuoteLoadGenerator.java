@@ -0,0 +1,176 @@
+package org.puzzlenode.puzzle07;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.util.DateFormatter;
+
+/**
+ * A local load generator for the QuoteServer: it starts a server on a
+ * synthetic catalogue, fires GET /quote requests from several client threads
+ * (over keep-alive connections) and reports the throughput and the
+ * latency percentiles, as seen by the clients (and by the server).
+ * Only the completed requests are timed; the failed ones are counted
+ * (and the client goes on with its next request)
+ * @author pek
+ */
+public final class QuoteLoadGenerator {
+	private static final DateFormatter FORMATTER = new DateFormatter(); // a DateFormatter instance
+
+	private QuoteLoadGenerator() {
+	}
+
+	/**
+	 * Load generation starts here
+	 * @param args Optionally, the amount of client threads (default: the cores),
+	 * of requests per thread (default: 20000) and of units (default: 10000)
+	 */
+	public static void main(String[] args) throws Exception {
+		final int threads = (args.length > 0)
+								? Integer.parseInt(args[0])
+								: Runtime.getRuntime().availableProcessors();
+		final int requests = (args.length > 1) ? Integer.parseInt(args[1]) : 20000;
+		final int units = (args.length > 2) ? Integer.parseInt(args[2]) : 10000;
+
+		if (System.getProperty(QuoteServer.NO_DELAY_PROPERTY) == null) {
+			System.setProperty(QuoteServer.NO_DELAY_PROPERTY, "true");
+		}
+
+		final QuoteServer server = QuoteServer.newQuoteServer(
+										SyntheticData.loadCatalogue(units, 1, 50, 7L), 0);
+		server.start();
+
+		try {
+			final String[] urls = urls(server.getPort(), units, 4096);
+			run(urls, threads, requests / 10);	// warm-up
+			final long[][] latencies = new long[threads][];
+			final int[] failures = new int[threads];
+			final long elapsed = run(urls, threads, requests, latencies, failures);
+			report(latencies, failures, elapsed);
+			System.out.print(server.getMetrics().getReport());
+		} finally {
+			server.stop();
+		}
+	}
+
+	private static String[] urls(final int port, final int units, final int count) {
+		final Period[] periods = SyntheticData.periods(count, 1, 30, 11L);
+		final String[] urls = new String[count];
+
+		for (int i = 0; i < count; i++) {
+			urls[i] = "http://localhost:" + port + "/quote?unit="
+						+ URLEncoder.encode("Unit " + (i * 7919 % units), StandardCharsets.UTF_8)
+						+ "&from=" + FORMATTER.formatDate(periods[i].getFrom())
+						+ "&to=" + FORMATTER.formatDate(periods[i].getTo());
+		}
+
+		return urls;
+	}
+
+	private static long run(final String[] urls, final int threads, final int requests)
+			throws InterruptedException {
+		return run(urls, threads, requests, new long[threads][], new int[threads]);
+	}
+
+	/**
+	 * Runs the clients
+	 * @param latencies The latencies of the completed requests of every client
+	 * (filled in)
+	 * @param failures The failed requests of every client (filled in)
+	 * @return The elapsed time (ns)
+	 */
+	private static long run(final String[] urls, final int threads, final int requests,
+							final long[][] latencies, final int[] failures)
+			throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(threads);
+		final long start = System.nanoTime();
+
+		for (int t = 0; t < threads; t++) {
+			final int client = t;
+			final Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					final long[] completed = new long[requests];
+					int count = 0;
+
+					try {
+						for (int i = 0; i < requests; i++) {
+							final long before = System.nanoTime();
+
+							try {
+								get(urls[(client * requests + i) % urls.length]);
+								completed[count++] = System.nanoTime() - before;
+							} catch (IOException e) {
+								if (failures[client]++ == 0) {
+									System.err.println("Request failed: " + e.getMessage());
+								}
+							}
+						}
+					} finally {
+						latencies[client] = Arrays.copyOf(completed, count);
+						done.countDown();
+					}
+				}
+			});
+			thread.start();
+		}
+
+		done.await();
+		return System.nanoTime() - start;
+	}
+
+	private static void get(final String url) throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+
+		try (InputStream input = connection.getInputStream()) {
+			final byte[] buffer = new byte[256];
+
+			while (input.read(buffer) >= 0) {
+				// the response is read to the end, so the connection is reused
+			}
+		}
+	}
+
+	private static void report(final long[][] latencies, final int[] failures,
+								final long elapsed) {
+		int count = 0;
+		int failed = 0;
+
+		for (int client = 0; client < latencies.length; client++) {
+			count += latencies[client].length;
+			failed += failures[client];
+		}
+
+		final long[] all = new long[count];
+		int position = 0;
+
+		for (long[] clientLatencies : latencies) {
+			System.arraycopy(clientLatencies, 0, all, position, clientLatencies.length);
+			position += clientLatencies.length;
+		}
+
+		Arrays.sort(all);
+		System.out.println(String.format("%d requests in %.2f s: %.0f requests/s, %d failed",
+							count, elapsed / 1e9, count / (elapsed / 1e9), failed));
+
+		if (count == 0) {
+			return;
+		}
+
+		System.out.println(String.format("latency p50 %d us, p99 %d us, p99.9 %d us, max %d us",
+							percentile(all, 0.50), percentile(all, 0.99),
+							percentile(all, 0.999), all[all.length - 1] / 1000));
+	}
+
+	private static long percentile(final long[] sorted, final double fraction) {
+		return sorted[(int) Math.min(sorted.length - 1, sorted.length * fraction)] / 1000;
+	}
+
+}
@@ -0,0 +1,106 @@
+package org.puzzlenode.puzzle07;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.puzzlenode.puzzle07.ShardCoordinator.NamedQuote;
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+
+/**
+ * An end-to-end check of the sharded mode on the local machine: it starts
+ * local ShardWorker processes on a synthetic catalogue and compares the quotes
+ * and the top-k results of a ShardCoordinator with the ones of the whole
+ * catalogue in this JVM, while a worker is killed (and started again) every
+ * so often; it reports the mismatches, the failed requests and the throughput
+ * @author pek
+ */
+public final class ShardedQuotingCheck {
+	private static final int K = 10;	// the cheapest units of a top-k request
+
+	private ShardedQuotingCheck() {
+	}
+
+	/**
+	 * The check starts here
+	 * @param args Optionally, the amount of shards (default: 4),
+	 * of units (default: 20000), of requests (default: 20000)
+	 * and the port of the first worker (default: 7070)
+	 */
+	public static void main(String[] args) throws Exception {
+		final int shards = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+		final int units = (args.length > 1) ? Integer.parseInt(args[1]) : 20000;
+		final int requests = (args.length > 2) ? Integer.parseInt(args[2]) : 20000;
+		final int port = (args.length > 3) ? Integer.parseInt(args[3]) : 7070;
+
+		final Path catalogue = Files.createTempFile("catalogue", ".json");
+		SyntheticData.writeCatalogue(catalogue, units, 1, 50, 7L);
+		final RentalUnits rentalUnits = RentalUnits.newRentalUnits(catalogue.toString());
+		final BasicCostCalculator calc = new BasicCostCalculator();
+		final CheapestUnits cheapestUnits = new CheapestUnits(calc);
+		final Period[] periods = SyntheticData.periods(requests, 1, 30, 11L);
+		final Random random = new Random(13L);
+		int mismatches = 0;
+		int failures = 0;
+
+		try (ShardWorkers workers = ShardWorkers.newShardWorkers(catalogue.toString(),
+																	shards, port);
+				ShardCoordinator coordinator
+					= ShardCoordinator.newShardCoordinator(workers.getAddresses())) {
+			final long start = System.nanoTime();
+
+			for (int i = 0; i < requests; i++) {
+				if (i > 0 && i % (requests / 4) == 0) {
+					workers.restart(i / (requests / 4) % shards);	// a worker is restarted mid-run
+				}
+
+				try {
+					if (i % 10 == 0) {
+						mismatches += check(coordinator.cheapest(periods[i], K),
+											cheapestUnits.find(rentalUnits, periods[i], K));
+					} else {
+						final RentalUnit rentalUnit = rentalUnits.getRentalUnit(
+														random.nextInt(rentalUnits.size()));
+						final Double cost = coordinator.quote(rentalUnit.getName(), periods[i]);
+						mismatches += (cost != null
+										&& cost == calc.calculateCost(rentalUnit, periods[i]))
+										? 0 : 1;
+					}
+				} catch (IOException e) {
+					failures++;
+					System.err.println("Request " + i + " failed: " + e.getMessage());
+				}
+			}
+
+			final double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(String.format(
+					"%d shards, %d units, %d requests in %.2f s (%.0f/s): %d mismatches, %d failed",
+					shards, units, requests, seconds, requests / seconds, mismatches, failures));
+		} finally {
+			Files.delete(catalogue);
+		}
+	}
+
+	/**
+	 * Returns 1 if the merged top-k differs from the one of the whole catalogue;
+	 * 0 otherwise (units of equal costs may come in another order)
+	 */
+	private static int check(final List<NamedQuote> merged, final List<Quote> expected) {
+		if (merged.size() != expected.size()) {
+			return 1;
+		}
+
+		for (int i = 0; i < merged.size(); i++) {
+			if (merged.get(i).getCost() != expected.get(i).getCost()) {
+				return 1;
+			}
+		}
+
+		return 0;
+	}
+
+}
@@ -0,0 +1,77 @@
+package org.puzzlenode.puzzle07;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the whole flow of the Solver: loading of the catalogue
+ * and of the period, calculation and output of the costs
+ * (the output is discarded)
+ * @author pek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+	@Param({"1000", "10000"})
+	public int units;			// The amount of rental units of the catalogue
+
+	@Param({"7", "3650"})
+	public int nights;			// The amount of nights of the period
+
+	private final Solver solver = new Solver(); // the benchmarked solver
+	private Path catalogue;		// The JSON catalogue
+	private Path period;		// The period file
+	private PrintStream out;	// The original standard output
+
+	@Setup
+	public void setUp() throws Exception {
+		catalogue = Files.createTempFile("catalogue", ".json");
+		period = Files.createTempFile("period", ".txt");
+		SyntheticData.writeCatalogue(catalogue, units, 1, 50, 7L);
+		SyntheticData.writePeriod(period, SyntheticData.periods(1, nights, nights, 11L)[0]);
+		out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(final int b) {
+			}
+
+			@Override
+			public void write(final byte[] b, final int off, final int len) {
+			}
+		}));
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		System.setOut(out);
+		Files.delete(catalogue);
+		Files.delete(period);
+	}
+
+	@Benchmark
+	public void solve() {
+		solver.solve("Benchmark", catalogue.toString(), period.toString());
+	}
+
+}
@@ -0,0 +1,167 @@
+package org.puzzlenode.puzzle07;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+import org.puzzlenode.puzzle07.util.DateFactory;
+import org.puzzlenode.puzzle07.util.DateFormatter;
+
+/**
+ * Generator of synthetic (but reproducible) input data for the benchmarks:
+ * JSON catalogues of rental units and reservation periods
+ * @author pek
+ */
+final class SyntheticData {
+	private static final DateFactory DATE_FACTORY = new DateFactory(); // a DateFactory instance
+	private static final DateFormatter FORMATTER = new DateFormatter(); // a DateFormatter instance
+	private static final int DAYS_IN_YEAR = 365;	// days of the year of the seasons
+	private static final int FIRST_YEAR = 2000;	// the first year of the periods
+	private static final int YEARS = 30;			// the years of the starting dates
+
+	private SyntheticData() {
+	}
+
+	/**
+	 * Writes a JSON catalogue of rental units; the seasons of every unit
+	 * cover the whole year, starting on a random day, so the last season
+	 * of every unit with more than one season wraps across the end of the year
+	 * @param file The JSON file to write
+	 * @param units The amount of rental units
+	 * @param minSeasons The minimum amount of seasons of a unit
+	 * @param maxSeasons The maximum amount of seasons of a unit
+	 * @param seed The seed of the random generator
+	 */
+	static void writeCatalogue(final Path file, final int units,
+								final int minSeasons, final int maxSeasons,
+								final long seed) throws IOException {
+		final Random random = new Random(seed);
+
+		try (BufferedWriter output = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			output.write("[\n");
+
+			for (int unit = 0; unit < units; unit++) {
+				final int seasons = minSeasons + random.nextInt(maxSeasons - minSeasons + 1);
+				output.write(unit == 0 ? "  {" : ",\n  {");
+				output.write("\"name\": \"Unit " + unit + "\", ");
+
+				if (seasons == 1) {
+					output.write("\"rate\": \"" + amount(random) + "\", ");
+				} else {
+					writeSeasons(output, seasons, random);
+				}
+
+				output.write("\"cleaning fee\": \"" + amount(random) + "\"}");
+			}
+
+			output.write("\n]\n");
+		}
+	}
+
+	/**
+	 * Loads the rental units of a synthetic catalogue (see writeCatalogue()),
+	 * through a temporary JSON file, which is always deleted
+	 * @param units The amount of rental units
+	 * @param minSeasons The minimum amount of seasons of a unit
+	 * @param maxSeasons The maximum amount of seasons of a unit
+	 * @param seed The seed of the random generator
+	 * @return The rental units
+	 */
+	static RentalUnits loadCatalogue(final int units, final int minSeasons, final int maxSeasons,
+										final long seed) throws IOException {
+		final Path file = Files.createTempFile("catalogue", ".json");
+
+		try {
+			writeCatalogue(file, units, minSeasons, maxSeasons, seed);
+			return RentalUnits.newRentalUnits(file.toString());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static void writeSeasons(final BufferedWriter output, final int seasons,
+										final Random random) throws IOException {
+		final int[] starts = new int[seasons];
+		final int offset = random.nextInt(DAYS_IN_YEAR);
+
+		for (int i = 0; i < seasons; i++) {
+			starts[i] = (i == 0) ? 0 : 1 + random.nextInt(DAYS_IN_YEAR - 1);
+		}
+
+		Arrays.sort(starts);
+		output.write("\"seasons\": [");
+
+		for (int i = 0; i < seasons; i++) {
+			final int start = (starts[i] + offset) % DAYS_IN_YEAR;
+			final int next = (i + 1 < seasons) ? starts[i + 1] : DAYS_IN_YEAR;
+			final int end = (Math.max(next, starts[i] + 1) - 1 + offset) % DAYS_IN_YEAR;
+			output.write(i == 0 ? "{" : ", {");
+			output.write("\"s" + i + "\": {\"start\": \"" + FORMATTER.formatMonthDay(start)
+							+ "\", \"end\": \"" + FORMATTER.formatMonthDay(end)
+							+ "\", \"rate\": \"" + amount(random) + "\"}}");
+		}
+
+		output.write("], ");
+	}
+
+	/**
+	 * Creates reservation periods starting on random days of the years 2000-2029
+	 * @param count The amount of periods
+	 * @param minNights The minimum amount of nights of a period
+	 * @param maxNights The maximum amount of nights of a period
+	 * @param seed The seed of the random generator
+	 */
+	static Period[] periods(final int count, final int minNights, final int maxNights,
+							final long seed) {
+		final Random random = new Random(seed);
+		final int first = DATE_FACTORY.createFirstDateOfYear(FIRST_YEAR);
+		final int days = DATE_FACTORY.createFirstDateOfYear(FIRST_YEAR + YEARS) - first;
+		final Period[] periods = new Period[count];
+
+		for (int i = 0; i < count; i++) {
+			final int from = first + random.nextInt(days);
+			final int nights = minNights + random.nextInt(maxNights - minNights + 1);
+			periods[i] = Period.makePeriod(from, from + nights);
+		}
+
+		return periods;
+	}
+
+	/**
+	 * Writes a reservation period file (the format of Period.newPeriod())
+	 * @param file The text file to write
+	 * @param period The reservation period
+	 */
+	static void writePeriod(final Path file, final Period period) throws IOException {
+		final String from = FORMATTER.formatDate(period.getFrom());
+		final String to = FORMATTER.formatDate(period.getTo());
+		Files.write(file, (from + " - " + to + "\n").getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes a periods file (the format of PeriodsReader)
+	 * @param file The text file to write
+	 * @param periods The reservation periods
+	 */
+	static void writePeriods(final Path file, final Period[] periods) throws IOException {
+		final StringBuilder sb = new StringBuilder();
+
+		for (Period period : periods) {
+			sb.append(FORMATTER.formatDate(period.getFrom())).append(" - ")
+				.append(FORMATTER.formatDate(period.getTo())).append('\n');
+		}
+
+		Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String amount(final Random random) {
+		return String.format("$%d.%02d", 20 + random.nextInt(480), random.nextInt(100));
+	}
+
+}
@@ -0,0 +1,131 @@
+package org.puzzlenode.puzzle07;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+
+/**
+ * It answers reverse queries: the longest stay (i.e. the latest check-out)
+ * starting on a given date that a given budget affords, cleaning fee and tax
+ * included. The cost of a stay never decreases with its length (the rates
+ * are not negative), so the longest affordable one is searched for:
+ * the length is doubled until the budget is exceeded and the last step
+ * is then halved (binary search); since every cost is calculated in constant
+ * time (see BasicCostCalculator), a query costs O(log n) for n nights.
+ * The portfolio-wide variant answers the query for every unit, in parallel
+ * @author pek
+ */
+public final class AffordableStays {
+	static final int MAX_NIGHTS = 36600;	// the longest stay searched for (about 100 years)
+	// the order of the results: longest first, then cheapest (then in catalogue order)
+	private static final Comparator<Stay> LONGEST_FIRST = new Comparator<Stay>() {
+		@Override
+		public int compare(final Stay s1, final Stay s2) {
+			final int byNights = Integer.compare(s2.getPeriod().getNights(),
+													s1.getPeriod().getNights());
+			return (byNights != 0) ? byNights : Double.compare(s1.getCost(), s2.getCost());
+		}
+	};
+
+	private final CostCalculator calc;	// the calculator of the costs
+
+	/**
+	 * Constructor
+	 * @param calc The calculator of the costs
+	 */
+	AffordableStays(final CostCalculator calc) {
+		this.calc = calc;
+	}
+
+	/**
+	 * Constructor; a BasicCostCalculator is used
+	 */
+	public AffordableStays() {
+		this(new BasicCostCalculator());
+	}
+
+	/**
+	 * Finds and returns the longest stay in a given rental unit, starting
+	 * on a given date, that costs no more than a given budget
+	 * @param rentalUnit The given rental unit
+	 * @param from The starting date of the stay (an epoch-day)
+	 * @param budget The given budget (cleaning fee and tax included)
+	 * @return The longest affordable stay (of at most MAX_NIGHTS nights);
+	 * null if not even one night is affordable
+	 */
+	public Stay find(final RentalUnit rentalUnit, final int from, final double budget) {
+		double cost = calc.calculateCost(rentalUnit, Period.makePeriod(from, from + 1));
+
+		if (!(cost <= budget)) {
+			return null;
+		}
+
+		int affordable = 1;		// the longest affordable stay found so far
+		int unaffordable = MAX_NIGHTS + 1;	// the shortest unaffordable one found so far
+
+		// galloping: the stay is doubled until the budget is exceeded
+		while (affordable < MAX_NIGHTS) {
+			final int nights = Math.min(affordable * 2, MAX_NIGHTS);
+			final double nightsCost = calc.calculateCost(rentalUnit,
+														Period.makePeriod(from, from + nights));
+
+			if (nightsCost > budget) {
+				unaffordable = nights;
+				break;
+			}
+
+			affordable = nights;
+			cost = nightsCost;
+		}
+
+		// binary search between the longest affordable and the shortest unaffordable stay
+		while (unaffordable - affordable > 1) {
+			final int nights = (affordable + unaffordable) >>> 1;
+			final double nightsCost = calc.calculateCost(rentalUnit,
+														Period.makePeriod(from, from + nights));
+
+			if (nightsCost > budget) {
+				unaffordable = nights;
+			} else {
+				affordable = nights;
+				cost = nightsCost;
+			}
+		}
+
+		return new Stay(rentalUnit, Period.makePeriod(from, from + affordable), cost);
+	}
+
+	/**
+	 * Finds and returns the longest stay in every given rental unit, starting
+	 * on a given date, that costs no more than a given budget
+	 * @param rentalUnits The given rental units
+	 * @param from The starting date of the stays (an epoch-day)
+	 * @param budget The given budget (cleaning fee and tax included)
+	 * @return The longest affordable stays, longest (and then cheapest) first;
+	 * the units where not even one night is affordable are left out
+	 */
+	public List<Stay> find(final RentalUnits rentalUnits, final int from, final double budget) {
+		final Stay[] stays = new Stay[rentalUnits.size()];
+		IntStream.range(0, stays.length).parallel().forEach(i -> {
+			stays[i] = find(rentalUnits.getRentalUnit(i), from, budget);
+		});
+
+		final List<Stay> affordable = new ArrayList<Stay>();
+
+		for (Stay stay : stays) {
+			if (stay != null) {
+				affordable.add(stay);
+			}
+		}
+
+		Collections.sort(affordable, LONGEST_FIRST);
+		return affordable;
+	}
+
+}
@@ -0,0 +1,74 @@
+package org.puzzlenode.puzzle07;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+
+/**
+ * It finds the rental units that are available (i.e. not booked)
+ * for a given reservation period, cheapest first. The availability of a unit
+ * is checked in its BookingCalendar (O(log n) for n bookings) and only
+ * the available units are calculated, in parallel
+ * @author pek
+ */
+public final class AvailableUnits {
+	// the order of the results: by cost (ties keep the order in the catalogue)
+	private static final Comparator<Quote> CHEAPEST_FIRST = new Comparator<Quote>() {
+		@Override
+		public int compare(final Quote q1, final Quote q2) {
+			return Double.compare(q1.getCost(), q2.getCost());
+		}
+	};
+
+	private final CostCalculator calc;	// the calculator of the costs
+
+	/**
+	 * Constructor
+	 * @param calc The calculator of the costs
+	 */
+	AvailableUnits(final CostCalculator calc) {
+		this.calc = calc;
+	}
+
+	/**
+	 * Constructor; a BasicCostCalculator is used
+	 */
+	public AvailableUnits() {
+		this(new BasicCostCalculator());
+	}
+
+	/**
+	 * Finds and returns the available rental units for a given reservation period
+	 * @param rentalUnits The given rental units
+	 * @param period The given reservation period
+	 * @return The quotes of the available rental units, cheapest first
+	 */
+	public List<Quote> find(final RentalUnits rentalUnits, final Period period) {
+		final Quote[] quotes = new Quote[rentalUnits.size()];
+		IntStream.range(0, quotes.length).parallel().forEach(i -> {
+			final RentalUnit rentalUnit = rentalUnits.getRentalUnit(i);
+
+			if (rentalUnit.getBookingCalendar().isAvailable(period)) {
+				quotes[i] = new Quote(rentalUnit, calc.calculateCost(rentalUnit, period));
+			}
+		});
+
+		final List<Quote> available = new ArrayList<Quote>();
+
+		for (Quote quote : quotes) {
+			if (quote != null) {
+				available.add(quote);
+			}
+		}
+
+		Collections.sort(available, CHEAPEST_FIRST);
+		return available;
+	}
+
+}
@@ -1,11 +1,10 @@
 package org.puzzlenode.puzzle07;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RateBounds;
+import org.puzzlenode.puzzle07.rentalunits.RateTable;
 import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
-import org.puzzlenode.puzzle07.rentalunits.SeasonalRate;
+import org.puzzlenode.puzzle07.rentalunits.SeasonalRateStore;
 
 /**
  * It calculates the accommodation cost in the rental units
@@ -13,7 +12,9 @@ import org.puzzlenode.puzzle07.rentalunits.SeasonalRate;
  */
 class BasicCostCalculator extends CostCalculator {
 
-	private final static double TAX = 0.0411416;	// The tax for this policy 
+	final static double TAX = 0.0411416;		// The tax for this policy 
+	private final static int NON_LEAP_YEAR = 1970;	// a reference non-leap year
+	private final static int LEAP_YEAR = 1972;		// a reference leap year
 	
 	/**
 	 * Calculates and returns the accommodation cost for a given rental unit 
@@ -29,42 +30,164 @@ class BasicCostCalculator extends CostCalculator {
 		return totalCost;
 	}
 
-	// --- helper methods for the above method ---
+	/**
+	 * Calculates and returns a lower bound of the accommodation cost
+	 * for a given rental unit and for a given reservation period;
+	 * it depends only on the length of the period
+	 * @param rentalUnit The given rental unit
+	 * @param period The given reservation period
+	 */
+	public double calculateMinimumCost(final RentalUnit rentalUnit, final Period period) {
+		final double basicRentalCost 
+			= rentalUnit.getRateTable().calculateMinimumCost(period.getNights());
+		return (basicRentalCost + rentalUnit.getCleaningFee()) * (1.00 + TAX);
+	}
+
+	/**
+	 * Calculates and returns an upper bound of the accommodation cost
+	 * for a given rental unit and for a given reservation period;
+	 * it depends only on the length of the period
+	 * @param rentalUnit The given rental unit
+	 * @param period The given reservation period
+	 */
+	public double calculateMaximumCost(final RentalUnit rentalUnit, final Period period) {
+		final double basicRentalCost 
+			= rentalUnit.getRateTable().calculateMaximumCost(period.getNights());
+		return (basicRentalCost + rentalUnit.getCleaningFee()) * (1.00 + TAX);
+	}
+
+	/**
+	 * Calculates and returns a lower bound of the accommodation cost
+	 * for a given rental unit of a catalogue and for a given reservation period;
+	 * the same as calculateMinimumCost(RentalUnit, Period)
+	 * @param bounds The bounds of the rates of the catalogue
+	 * @param unit The index of the given rental unit in the catalogue
+	 * @param period The given reservation period
+	 */
+	public double calculateMinimumCost(final RateBounds bounds, final int unit,
+										final Period period) {
+		final double basicRentalCost = bounds.calculateMinimumCost(unit, period.getNights());
+		return (basicRentalCost + bounds.getCleaningFee(unit)) * (1.00 + TAX);
+	}
+
+	/**
+	 * Calculates and returns an upper bound of the accommodation cost
+	 * for a given rental unit of a catalogue and for a given reservation period;
+	 * the same as calculateMaximumCost(RentalUnit, Period)
+	 * @param bounds The bounds of the rates of the catalogue
+	 * @param unit The index of the given rental unit in the catalogue
+	 * @param period The given reservation period
+	 */
+	public double calculateMaximumCost(final RateBounds bounds, final int unit,
+										final Period period) {
+		final double basicRentalCost = bounds.calculateMaximumCost(unit, period.getNights());
+		return (basicRentalCost + bounds.getCleaningFee(unit)) * (1.00 + TAX);
+	}
+
+	/**
+	 * Calculates and returns the accommodation cost for a given rental unit
+	 * of a SeasonalRateStore and for a given reservation period;
+	 * the rates are read straight from the store
+	 * @param store The given SeasonalRateStore
+	 * @param unit The index of the given rental unit in the store
+	 * @param period The given reservation period
+	 */
+	public double calculateCost(final SeasonalRateStore store, final int unit, 
+								final Period period) {
+		final double basicRentalCost = this.calcBaseRentalCost(store, unit, period);
+		final double rentalCost = basicRentalCost + store.getCleaningFee(unit);
+		final double totalCost = rentalCost * (1.00 + TAX);
+		return totalCost;
+	}
+
+	// --- helper methods for the above methods ---
 	
+	/**
+	 * The period is split in (at most) three ranges: the part of its first year,
+	 * the whole years in between and the part of its last year;
+	 * all whole years cost the same, apart from leap ones, so they are priced
+	 * by multiplication (i.e. the cost does not depend on the length of the period)
+	 */
 	private double calcBaseRentalCost(final RentalUnit rentalUnit, final Period period) {
-		double cost = 0.0;
-		final List<Period> shortPeriods = splitPeriod(period);
+		final RateTable rateTable = rentalUnit.getRateTable();
+		final int fromYear = period.getFromYear();
+		final int toYear = period.getToYear();
+		final int firstOfFromYear = DATE_FACTORY.createFirstDateOfYear(fromYear);
+		final boolean leapFromYear = DATE_FACTORY.isLeapYear(fromYear);
 		
-		for (Period shortPeriod : shortPeriods) {
-			for (SeasonalRate seasonalRate : rentalUnit.getSeasonalRates()) {
-				final long nights = calculateNights(seasonalRate, shortPeriod);
-				cost += nights * seasonalRate.getRate();
-			}
+		if (fromYear == toYear) {
+			return rateTable.calculateCost(period.getFrom() - firstOfFromYear, 
+											period.getTo() - firstOfFromYear, leapFromYear);
 		}
 		
+		final int firstOfToYear = DATE_FACTORY.createFirstDateOfYear(toYear);
+		final int leapYears = DATE_FACTORY.countLeapYears(fromYear + 1, toYear - 1);
+		final int otherYears = toYear - fromYear - 1 - leapYears;
+		double cost = rateTable.calculateCost(period.getFrom() - firstOfFromYear,
+									DATE_FACTORY.createLastDateOfYear(fromYear) - firstOfFromYear,
+									leapFromYear);
+		cost += leapYears * rateTable.calculateYearCost(true) 
+				+ otherYears * rateTable.calculateYearCost(false);
+		cost += rateTable.calculateCost(0, period.getTo() - firstOfToYear,
+										DATE_FACTORY.isLeapYear(toYear));
 		return cost;
 	}
-
-	private List<Period> splitPeriod (final Period longPeriod) {
-		final List<Period> periods = new ArrayList<Period>();
+	
+	/**
+	 * The period is split as in the above method; the whole years in between 
+	 * are priced by a reference leap and a reference non-leap year
+	 */
+	private double calcBaseRentalCost(final SeasonalRateStore store, final int unit, 
+										final Period period) {
+		final int fromYear = period.getFromYear();
+		final int toYear = period.getToYear();
+		
+		if (fromYear == toYear) {
+			return calcBaseRentalCost(store, unit, period.getFrom(), period.getTo(), fromYear);
+		}
+		
+		final int leapYears = DATE_FACTORY.countLeapYears(fromYear + 1, toYear - 1);
+		final int otherYears = toYear - fromYear - 1 - leapYears;
+		double cost = calcBaseRentalCost(store, unit, period.getFrom(), 
+										DATE_FACTORY.createLastDateOfYear(fromYear), fromYear);
+		
+		if (leapYears > 0) {
+			cost += leapYears * calcBaseRentalCost(store, unit, LEAP_YEAR);
+		}
 		
-		if (longPeriod.spannedYears() == 0) {
-			periods.add(longPeriod);
-		} else {
-			final int fromYear = longPeriod.getFromYear();
-			final int toYear = longPeriod.getToYear();
-			
-			for (int year = fromYear; year <= toYear; year++) {
-				if (year == fromYear) {
-					periods.add(Period.makePeriodTillEndOfYear(longPeriod.getFrom(), fromYear));
-				} else if (year == toYear) {
-					periods.add(Period.makePeriodFromStartOfYear(longPeriod.getTo(), toYear));
-				} else {
-					periods.add(Period.makePeriodForYear(year));
-				}
-			}
+		if (otherYears > 0) {
+			cost += otherYears * calcBaseRentalCost(store, unit, NON_LEAP_YEAR);
 		}
 		
-		return periods;
+		cost += calcBaseRentalCost(store, unit, DATE_FACTORY.createFirstDateOfYear(toYear),
+									period.getTo(), toYear);
+		return cost;
+	}
+	
+	/**
+	 * Returns the cost of a whole year (the same for every leap or non-leap year)
+	 */
+	private double calcBaseRentalCost(final SeasonalRateStore store, final int unit, 
+										final int year) {
+		return calcBaseRentalCost(store, unit, DATE_FACTORY.createFirstDateOfYear(year),
+									DATE_FACTORY.createLastDateOfYear(year), year);
+	}
+	
+	/**
+	 * Returns the cost of a range of dates within a given year
+	 */
+	private double calcBaseRentalCost(final SeasonalRateStore store, final int unit, 
+										final int first, final int last, final int year) {
+		double cost = 0.0;
+		final int firstSeason = store.getFirstSeason(unit);
+		final int lastSeason = store.getFirstSeason(unit + 1);
+		
+		for (int season = firstSeason; season < lastSeason; season++) {
+			final long nights = calculateNights(store.getStart(season), store.getEnd(season),
+												first, last, year, year);
+			cost += nights * store.getRate(season);
+		}
+		
+		return cost;
 	}
 }
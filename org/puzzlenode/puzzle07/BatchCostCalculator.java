@@ -0,0 +1,144 @@
+package org.puzzlenode.puzzle07;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.puzzlenode.puzzle07.metrics.Metrics;
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+
+/**
+ * It calculates the accommodation costs of many reservation periods
+ * in many rental units at once, spreading the work over all cores.
+ * The periods x units matrix is split recursively (fork-join) into tiles
+ * small enough for the pricing data of their units to stay in the cache;
+ * every cell is calculated by the same CostCalculator as the serial flow,
+ * so the results are exactly the same.
+ * The tiles may be metered: their latencies are recorded and their quotes
+ * are counted once per tile, not once per cost
+ * @author pek
+ */
+public final class BatchCostCalculator {
+	private static final int UNITS_PER_TILE = 64;	 // max units of a tile
+	private static final int PERIODS_PER_TILE = 256; // max periods of a tile
+	private static final String TILE = "batch.tile";	 // the name of the tile latencies
+
+	private final CostCalculator calc;	// the calculator of every single cost
+	private final ForkJoinPool pool;	// the pool running the calculations
+	private final Metrics metrics;		// the metrics of the tiles; null if not metered
+
+	/**
+	 * Constructor
+	 * @param calc The calculator of every single cost
+	 * @param pool The pool running the calculations
+	 * @param metrics The metrics of the tiles; null if not metered
+	 */
+	BatchCostCalculator(final CostCalculator calc, final ForkJoinPool pool,
+						final Metrics metrics) {
+		this.calc = calc;
+		this.pool = pool;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Constructor; a BasicCostCalculator on the common pool
+	 */
+	public BatchCostCalculator() {
+		this(new BasicCostCalculator(), ForkJoinPool.commonPool(), null);
+	}
+
+	/**
+	 * Constructor; a metered BasicCostCalculator on the common pool
+	 * @param metrics The metrics of the tiles
+	 */
+	public BatchCostCalculator(final Metrics metrics) {
+		this(new BasicCostCalculator(), ForkJoinPool.commonPool(), metrics);
+	}
+
+	/**
+	 * Calculates and returns the accommodation costs for given rental units
+	 * and for given reservation periods
+	 * @param rentalUnits The given rental units
+	 * @param periods The given reservation periods
+	 * @return The costs; the cost of period i in unit j is at [i][j]
+	 */
+	public double[][] calculateCosts(final RentalUnits rentalUnits, final List<Period> periods) {
+		final Period[] periodArray = periods.toArray(new Period[periods.size()]);
+		final double[][] costs = new double[periodArray.length][rentalUnits.size()];
+		pool.invoke(new Tile(rentalUnits, periodArray, costs,
+								0, rentalUnits.size(), 0, periodArray.length));
+		return costs;
+	}
+
+	/**
+	 * A rectangle of the periods x units matrix;
+	 * it is either split in halves or calculated directly
+	 */
+	private final class Tile extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final RentalUnits rentalUnits;	// all rental units
+		private final Period[] periods;			// all periods
+		private final double[][] costs;			// the matrix of the results
+		private final int fromUnit;				// the first unit (inclusive)
+		private final int toUnit;				// the last unit (exclusive)
+		private final int fromPeriod;			// the first period (inclusive)
+		private final int toPeriod;				// the last period (exclusive)
+
+		private Tile(final RentalUnits rentalUnits, final Period[] periods,
+						final double[][] costs,
+						final int fromUnit, final int toUnit,
+						final int fromPeriod, final int toPeriod) {
+			this.rentalUnits = rentalUnits;
+			this.periods = periods;
+			this.costs = costs;
+			this.fromUnit = fromUnit;
+			this.toUnit = toUnit;
+			this.fromPeriod = fromPeriod;
+			this.toPeriod = toPeriod;
+		}
+
+		@Override
+		protected void compute() {
+			if (toUnit - fromUnit > UNITS_PER_TILE) {
+				final int middle = (fromUnit + toUnit) >>> 1;
+				invokeAll(new Tile(rentalUnits, periods, costs,
+									fromUnit, middle, fromPeriod, toPeriod),
+							new Tile(rentalUnits, periods, costs,
+									middle, toUnit, fromPeriod, toPeriod));
+			} else if (toPeriod - fromPeriod > PERIODS_PER_TILE) {
+				final int middle = (fromPeriod + toPeriod) >>> 1;
+				invokeAll(new Tile(rentalUnits, periods, costs,
+									fromUnit, toUnit, fromPeriod, middle),
+							new Tile(rentalUnits, periods, costs,
+									fromUnit, toUnit, middle, toPeriod));
+			} else if (metrics == null) {
+				calculate();
+			} else {
+				final long before = System.nanoTime();
+				calculate();
+				metrics.histogram(TILE).record(System.nanoTime() - before);
+				count();
+			}
+		}
+
+		private void calculate() {
+			for (int unit = fromUnit; unit < toUnit; unit++) {
+				for (int period = fromPeriod; period < toPeriod; period++) {
+					costs[period][unit]
+						= calc.calculateCost(rentalUnits.getRentalUnit(unit), periods[period]);
+				}
+			}
+		}
+
+		/**
+		 * Counts the quotes of the tile (as MeteringCostCalculator does)
+		 */
+		private void count() {
+			metrics.counter(MeteringCostCalculator.QUOTES)
+				.add((long) (toUnit - fromUnit) * (toPeriod - fromPeriod));
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+package org.puzzlenode.puzzle07;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.PeriodsReader;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+import org.puzzlenode.puzzle07.util.AmountFormatter;
+import org.puzzlenode.puzzle07.util.DateFormatter;
+
+/**
+ * A bulk version of the Solver: it streams any amount of reservation periods
+ * from a text file (see PeriodsReader) and quotes each one against every
+ * rental unit of a catalogue, one line per quote
+ * ("yyyy/MM/dd - yyyy/MM/dd<TAB>NAME: $COST").
+ * The lines are formatted straight into a large buffer (the names are encoded
+ * once, every period once for all its quotes, the costs without allocating)
+ * which is written to a channel whenever it fills up; so nothing
+ * is synchronized or flushed per line
+ * @author pek
+ */
+public final class BulkSolver {
+	private static final int BUFFER_BYTES = 1 << 20;	// the size of the output buffer
+	static final int PERIOD_BYTES = 24;					// the bytes of a formatted period
+	private static final int MAX_QUOTE_BYTES = 384;	// max bytes of a line but the name
+													// (a cost may have up to 309 digits)
+	private static final DateFormatter FORMATTER = new DateFormatter(); // dates formatter
+	private static final AmountFormatter AMOUNT_FORMATTER = new AmountFormatter(); // costs formatter
+	private static final byte[] PERIOD_SEPARATOR = " - ".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] NAME_SEPARATOR = ": $".getBytes(StandardCharsets.US_ASCII);
+
+	private final CostCalculator calc;	// the calculator of the costs
+
+	/**
+	 * Constructor
+	 * @param calc The calculator of the costs
+	 */
+	BulkSolver(final CostCalculator calc) {
+		this.calc = calc;
+	}
+
+	/**
+	 * Constructor; a BasicCostCalculator is used
+	 */
+	public BulkSolver() {
+		this(new BasicCostCalculator());
+	}
+
+	/**
+	 * Quotes every reservation period of a text file against given rental units
+	 * @param rentalUnits The given rental units
+	 * @param periodsInputFile The filename of the text file of the periods
+	 * @param output The channel to write the quotes to (it is not closed)
+	 * @return The amount of quoted periods
+	 * @throws IOException If the periods cannot be read or the quotes cannot be written
+	 */
+	public long solve(final RentalUnits rentalUnits, final String periodsInputFile,
+						final WritableByteChannel output) throws IOException {
+		final byte[][] names = encodeNames(rentalUnits);
+		final int maxLineBytes = maxLineBytes(names);
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_BYTES, maxLineBytes));
+		final ByteBuffer periodBuffer = ByteBuffer.allocate(PERIOD_BYTES);
+		long periods = 0;
+
+		try (PeriodsReader reader = PeriodsReader.newPeriodsReader(periodsInputFile)) {
+			while (reader.hasNext()) {
+				final Period period = reader.next();
+				periods++;
+				formatPeriod(period, periodBuffer);
+
+				for (int unit = 0; unit < names.length; unit++) {
+					if (buffer.remaining() < maxLineBytes) {
+						write(buffer, output);
+					}
+
+					final double cost = calc.calculateCost(rentalUnits.getRentalUnit(unit), period);
+					formatQuote(periodBuffer, names[unit], cost, buffer);
+				}
+			}
+
+			if (reader.getFailure() != null) {
+				write(buffer, output);	// the quotes of the periods read so far
+				throw reader.getFailure();
+			}
+		}
+
+		write(buffer, output);
+		return periods;
+	}
+
+	// --- helper methods (shared with the PipelinedBulkSolver) ---
+
+	/**
+	 * Returns the names of given rental units encoded in UTF-8
+	 */
+	static byte[][] encodeNames(final RentalUnits rentalUnits) {
+		final byte[][] names = new byte[rentalUnits.size()][];
+
+		for (int unit = 0; unit < names.length; unit++) {
+			names[unit] = rentalUnits.getRentalUnit(unit).getName().getBytes(StandardCharsets.UTF_8);
+		}
+
+		return names;
+	}
+
+	/**
+	 * Returns the maximum bytes of a line of given (encoded) names
+	 */
+	static int maxLineBytes(final byte[][] names) {
+		int maxNameBytes = 0;
+
+		for (byte[] name : names) {
+			maxNameBytes = Math.max(maxNameBytes, name.length);
+		}
+
+		return maxNameBytes + MAX_QUOTE_BYTES;
+	}
+
+	/**
+	 * Formats the prefix of the lines of a period ("yyyy/MM/dd - yyyy/MM/dd<TAB>")
+	 * into a buffer (of PERIOD_BYTES), which is cleared first
+	 */
+	static void formatPeriod(final Period period, final ByteBuffer periodBuffer) {
+		periodBuffer.clear();
+		FORMATTER.formatDate(period.getFrom(), periodBuffer);
+		periodBuffer.put(PERIOD_SEPARATOR);
+		FORMATTER.formatDate(period.getTo(), periodBuffer);
+		periodBuffer.put((byte) '\t');
+	}
+
+	/**
+	 * Formats the line of a quote into a buffer
+	 * @param periodBuffer The formatted period (see formatPeriod())
+	 * @param name The encoded name of the rental unit
+	 * @param cost The cost
+	 * @param buffer The buffer; at least maxLineBytes() must remain
+	 */
+	static void formatQuote(final ByteBuffer periodBuffer, final byte[] name,
+							final double cost, final ByteBuffer buffer) {
+		buffer.put(periodBuffer.array(), 0, periodBuffer.position());
+		buffer.put(name);
+		buffer.put(NAME_SEPARATOR);
+		AMOUNT_FORMATTER.formatAmount(cost, buffer);
+		buffer.put((byte) '\n');
+	}
+
+	/**
+	 * Writes (and empties) a buffer
+	 */
+	static void write(final ByteBuffer buffer, final WritableByteChannel output)
+			throws IOException {
+		buffer.flip();
+
+		while (buffer.hasRemaining()) {
+			output.write(buffer);
+		}
+
+		buffer.clear();
+	}
+
+	/**
+	 * Bulk solving starts here
+	 * @param args The filenames of the JSON file of the rental units,
+	 * of the text file of the periods and (optionally) of the output file;
+	 * the quotes are written to the standard output otherwise
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: BulkSolver <rental units JSON file> <periods file> [output file]");
+			return;
+		}
+
+		final RentalUnits rentalUnits = RentalUnits.newRentalUnits(args[0]);
+		System.err.println(rentalUnits.getScheduleStatistics());
+
+		try (WritableByteChannel output = (args.length > 2)
+											? new FileOutputStream(args[2]).getChannel()
+											: Channels.newChannel(System.out)) {
+			final long start = System.nanoTime();
+			final long periods = new BulkSolver().solve(rentalUnits, args[1], output);
+			System.err.println(String.format("%d periods quoted in %.2f s", periods,
+												(System.nanoTime() - start) / 1e9));
+		}
+	}
+
+}
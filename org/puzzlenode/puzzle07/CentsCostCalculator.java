@@ -0,0 +1,96 @@
+package org.puzzlenode.puzzle07;
+
+import org.puzzlenode.puzzle07.rentalunits.CentsRateTable;
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
+
+/**
+ * It calculates the accommodation cost in the rental units, like
+ * BasicCostCalculator, but in fixed-point arithmetic: whole cents in longs
+ * and the tax as a scaled integer. The rounding rules are explicit:
+ * (a) every rate and the cleaning fee are rounded half-up to whole cents
+ * (b) the nights and the fee are added up exactly
+ * (c) the taxed total is rounded half-up to whole cents, once.
+ * So a cost is reproducible to the cent on any platform; it differs from
+ * the BasicCostCalculator (rounded to cents) only where the exact taxed total
+ * is (almost) a half cent, which the doubles may round either way
+ * @author pek
+ */
+final class CentsCostCalculator extends CostCalculator {
+	// the tax for this policy (0.0411416, as in BasicCostCalculator) in units of TAX_SCALE
+	private static final long TAX_SCALE = 10000000L;
+	private static final long TAXED = TAX_SCALE + 411416L;	// the taxed share (1 + tax)
+
+	/**
+	 * Calculates and returns the accommodation cost for a given rental unit
+	 * and for a given reservation period
+	 * @param rentalUnit The given rental unit
+	 * @param period The given reservation period
+	 */
+	@Override
+	double calculateCost(final RentalUnit rentalUnit, final Period period) {
+		return calculateCents(rentalUnit, period) / 100.0;
+	}
+
+	/**
+	 * Calculates and returns the accommodation cost (cents) for a given rental unit
+	 * and for a given reservation period
+	 * @param rentalUnit The given rental unit
+	 * @param period The given reservation period
+	 * @throws ArithmeticException If the cost overflows a long (above $10^9)
+	 */
+	long calculateCents(final RentalUnit rentalUnit, final Period period) {
+		return roundHalfUp(Math.multiplyExact(calculateRentalCents(rentalUnit, period), TAXED),
+							TAX_SCALE);
+	}
+
+	/**
+	 * Calculates and returns the accommodation cost (cents) before the tax,
+	 * i.e. the overnights plus the cleaning fee; it is exact
+	 * @param rentalUnit The given rental unit
+	 * @param period The given reservation period
+	 */
+	long calculateRentalCents(final RentalUnit rentalUnit, final Period period) {
+		return calcBaseRentalCents(rentalUnit, period)
+				+ CentsRateTable.toCents(rentalUnit.getCleaningFee());
+	}
+
+	// --- helper methods for the above methods ---
+
+	/**
+	 * Divides and rounds half-up (i.e. away from zero for halves)
+	 */
+	private static long roundHalfUp(final long dividend, final long divisor) {
+		final long half = divisor / 2;
+		return (dividend >= 0) ? (dividend + half) / divisor : -((half - dividend) / divisor);
+	}
+
+	/**
+	 * The period is split as in BasicCostCalculator: the part of its first year,
+	 * the whole years in between and the part of its last year
+	 */
+	private long calcBaseRentalCents(final RentalUnit rentalUnit, final Period period) {
+		final CentsRateTable rateTable = rentalUnit.getCentsRateTable();
+		final int fromYear = period.getFromYear();
+		final int toYear = period.getToYear();
+		final int firstOfFromYear = DATE_FACTORY.createFirstDateOfYear(fromYear);
+		final boolean leapFromYear = DATE_FACTORY.isLeapYear(fromYear);
+
+		if (fromYear == toYear) {
+			return rateTable.calculateCents(period.getFrom() - firstOfFromYear,
+											period.getTo() - firstOfFromYear, leapFromYear);
+		}
+
+		final int firstOfToYear = DATE_FACTORY.createFirstDateOfYear(toYear);
+		final int leapYears = DATE_FACTORY.countLeapYears(fromYear + 1, toYear - 1);
+		final int otherYears = toYear - fromYear - 1 - leapYears;
+		return rateTable.calculateCents(period.getFrom() - firstOfFromYear,
+									DATE_FACTORY.createLastDateOfYear(fromYear) - firstOfFromYear,
+									leapFromYear)
+				+ leapYears * rateTable.calculateYearCents(true)
+				+ otherYears * rateTable.calculateYearCents(false)
+				+ rateTable.calculateCents(0, period.getTo() - firstOfToYear,
+											DATE_FACTORY.isLeapYear(toYear));
+	}
+
+}
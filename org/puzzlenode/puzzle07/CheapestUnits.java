@@ -0,0 +1,247 @@
+package org.puzzlenode.puzzle07;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RateBounds;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+
+/**
+ * It finds the k cheapest rental units for a given reservation period,
+ * without calculating the cost of every unit. Every unit has cheap lower
+ * and upper bounds of its cost (the minimum and maximum nightly rates for
+ * the length of the period, plus the cleaning fee), read from the bounds
+ * gathered once per catalogue (see RentalUnits.getRateBounds()); units whose
+ * lower bound is above the k-th smallest upper bound (found by a heap of k
+ * bounds) are never considered, and the rest
+ * are calculated (in parallel rounds) in order of their lower bound,
+ * until no remaining unit can enter the k cheapest ones found so far.
+ * The result is the same as calculating every unit and sorting
+ * (by cost and then by order in the catalogue)
+ * @author pek
+ */
+public final class CheapestUnits {
+	private static final int CANDIDATES_PER_ROUND = 256; // units calculated in parallel
+	private static final double BOUND_SLACK = 1e-9;	 // relative slack for rounding errors
+	// the order of the results: by cost and then by order in the catalogue
+	private static final Comparator<Candidate> CHEAPEST_FIRST = new Comparator<Candidate>() {
+		@Override
+		public int compare(final Candidate c1, final Candidate c2) {
+			final int byCost = Double.compare(c1.cost, c2.cost);
+			return (byCost != 0) ? byCost : Integer.compare(c1.index, c2.index);
+		}
+	};
+
+	private final BasicCostCalculator calc;	// the calculator of costs and bounds
+
+	/**
+	 * Constructor
+	 * @param calc The calculator of costs and bounds
+	 */
+	CheapestUnits(final BasicCostCalculator calc) {
+		this.calc = calc;
+	}
+
+	/**
+	 * Constructor; a BasicCostCalculator is used
+	 */
+	public CheapestUnits() {
+		this(new BasicCostCalculator());
+	}
+
+	/**
+	 * Finds and returns the cheapest rental units for a given reservation period
+	 * @param rentalUnits The given rental units
+	 * @param period The given reservation period
+	 * @param k The (maximum) amount of rental units to return
+	 * @return The quotes of the k cheapest rental units, cheapest first
+	 */
+	public List<Quote> find(final RentalUnits rentalUnits, final Period period, final int k) {
+		final int units = rentalUnits.size();
+
+		if (k <= 0 || units == 0) {
+			return new ArrayList<Quote>();
+		}
+
+		final RateBounds bounds = rentalUnits.getRateBounds();
+		final double[] lowerBounds = new double[units];
+		final double[] upperBounds = new double[units];
+
+		for (int i = 0; i < units; i++) {
+			final double lower = calc.calculateMinimumCost(bounds, i, period);
+			final double upper = calc.calculateMaximumCost(bounds, i, period);
+			lowerBounds[i] = lower - Math.abs(lower) * BOUND_SLACK;
+			upperBounds[i] = upper + Math.abs(upper) * BOUND_SLACK;
+		}
+
+		final int[] candidates = candidates(lowerBounds, upperBounds, k);
+		final int[] round = new int[CANDIDATES_PER_ROUND];
+		final PriorityQueue<Candidate> cheapest
+			= new PriorityQueue<Candidate>(k, Collections.reverseOrder(CHEAPEST_FIRST));
+
+		for (int remaining = candidates.length; remaining > 0; ) {
+			if (cheapest.size() == k
+				&& lowerBounds[candidates[0]] > cheapest.peek().cost) {
+				break;	// no remaining unit can be cheaper
+			}
+
+			int roundSize = 0;
+
+			while (roundSize < round.length && remaining > 0) {
+				round[roundSize++] = candidates[0];
+				remaining--;
+				siftDown(candidates, remaining, 0, candidates[remaining], lowerBounds);
+			}
+
+			for (Candidate candidate : calculate(rentalUnits, period, round, roundSize)) {
+				cheapest.add(candidate);
+
+				if (cheapest.size() > k) {
+					cheapest.poll();
+				}
+			}
+		}
+
+		final List<Candidate> sorted = new ArrayList<Candidate>(cheapest);
+		Collections.sort(sorted, CHEAPEST_FIRST);
+		final List<Quote> quotes = new ArrayList<Quote>(sorted.size());
+
+		for (Candidate candidate : sorted) {
+			quotes.add(new Quote(rentalUnits.getRentalUnit(candidate.index), candidate.cost));
+		}
+
+		return quotes;
+	}
+
+	// --- helper methods for the above method ---
+
+	/**
+	 * Returns the units that may be among the k cheapest ones
+	 * (i.e. with a lower bound up to the k-th smallest upper bound)
+	 * in a binary min-heap by their lower bound; so the units are taken
+	 * in order of their lower bound, but only those taken are ever ordered
+	 */
+	private static int[] candidates(final double[] lowerBounds, final double[] upperBounds,
+									final int k) {
+		final double threshold = (upperBounds.length > k)
+									? smallest(upperBounds, k)
+									: Double.POSITIVE_INFINITY;
+		int[] candidates = new int[lowerBounds.length];
+		int count = 0;
+
+		for (int i = 0; i < lowerBounds.length; i++) {
+			if (lowerBounds[i] <= threshold) {
+				candidates[count++] = i;
+			}
+		}
+
+		candidates = Arrays.copyOf(candidates, count);
+
+		for (int i = count / 2 - 1; i >= 0; i--) {
+			siftDown(candidates, count, i, candidates[i], lowerBounds);
+		}
+
+		return candidates;
+	}
+
+	/**
+	 * Returns the k-th smallest of given values (0 < k <= values); the k smallest
+	 * values seen so far are kept in a binary max-heap, so it takes O(n log k)
+	 * time (little more than one pass, when k is small) and no boxing
+	 */
+	private static double smallest(final double[] values, final int k) {
+		final double[] heap = Arrays.copyOf(values, k);
+
+		for (int i = k / 2 - 1; i >= 0; i--) {
+			siftDown(heap, i, heap[i]);
+		}
+
+		for (int i = k; i < values.length; i++) {
+			if (values[i] < heap[0]) {
+				siftDown(heap, 0, values[i]);
+			}
+		}
+
+		return heap[0];
+	}
+
+	/**
+	 * Puts a value at a position of a max-heap and sifts it down into place
+	 */
+	private static void siftDown(final double[] heap, int position, final double value) {
+		while (2 * position + 1 < heap.length) {
+			int child = 2 * position + 1;
+
+			if (child + 1 < heap.length && heap[child + 1] > heap[child]) {
+				child++;
+			}
+
+			if (heap[child] <= value) {
+				break;
+			}
+
+			heap[position] = heap[child];
+			position = child;
+		}
+
+		heap[position] = value;
+	}
+
+	/**
+	 * Puts a unit at a position of a min-heap of units (by their key)
+	 * and sifts it down into place
+	 */
+	private static void siftDown(final int[] heap, final int size, int position,
+									final int unit, final double[] keys) {
+		while (2 * position + 1 < size) {
+			int child = 2 * position + 1;
+
+			if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+				child++;
+			}
+
+			if (keys[heap[child]] >= keys[unit]) {
+				break;
+			}
+
+			heap[position] = heap[child];
+			position = child;
+		}
+
+		heap[position] = unit;
+	}
+
+	/**
+	 * Calculates (in parallel) the costs of the first given units
+	 */
+	private Candidate[] calculate(final RentalUnits rentalUnits, final Period period,
+									final int[] indexes, final int count) {
+		final Candidate[] calculated = new Candidate[count];
+		IntStream.range(0, calculated.length).parallel().forEach(i -> {
+			final int index = indexes[i];
+			calculated[i] = new Candidate(index,
+								calc.calculateCost(rentalUnits.getRentalUnit(index), period));
+		});
+		return calculated;
+	}
+
+	/**
+	 * A rental unit (by its index) and its cost
+	 */
+	private static final class Candidate {
+		private final int index;	// The index of the rental unit
+		private final double cost;	// Its cost
+
+		private Candidate(final int index, final double cost) {
+			this.index = index;
+			this.cost = cost;
+		}
+	}
+
+}
@@ -1,7 +1,5 @@
 package org.puzzlenode.puzzle07;
 
-import java.util.Date;
-
 import org.puzzlenode.puzzle07.rentalunits.Period;
 import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
 import org.puzzlenode.puzzle07.rentalunits.SeasonalRate;
@@ -36,27 +34,38 @@ abstract class CostCalculator {
 	 * @param period The given reservation period
 	 */
 	protected long calculateNights (final SeasonalRate seasonalRate, final Period period) {
+		return calculateNights(seasonalRate.getStart(), seasonalRate.getEnd(), 
+								period.getFrom(), period.getTo(), 
+								period.getFromYear(), period.getToYear());
+	}
+	
+	/**
+	 * Calculates and returns the amount of overnights for a given season
+	 * and for a given range of dates; allocation-free variant of the above method
+	 * @param seasonStart The starting date of the season (an epoch-day of year 1970)
+	 * @param seasonEnd The ending date of the season (an epoch-day of year 1970)
+	 * @param periodFirst The first date of the range (an epoch-day)
+	 * @param periodLast The last date of the range (an epoch-day)
+	 * @param fromYear The year of the first date
+	 * @param toYear The year of the last date
+	 */
+	protected long calculateNights (final int seasonStart, final int seasonEnd, 
+									final int periodFirst, final int periodLast,
+									final int fromYear, final int toYear) {
 		long nights = 0;
-		final Date seasonFirst = DATE_FACTORY.createDateOfYear(seasonalRate.getStart(), 
-																period.getFromYear());
-		final Date seasonLast = DATE_FACTORY.createDateOfYear(seasonalRate.getEnd(), 
-																period.getToYear());
-		final Date periodFirst = period.getFrom();
-		final Date periodLast = period.getTo();
+		final int seasonFirst = DATE_FACTORY.createDateOfYear(seasonStart, fromYear);
+		final int seasonLast = DATE_FACTORY.createDateOfYear(seasonEnd, toYear);
 		
-		if (seasonLast.compareTo(seasonFirst) >= 0) {
-			final DateOverlap overlap 
-				= DateOverlap.newDateOverlap(seasonFirst, seasonLast, periodFirst, periodLast);
-			nights = overlap.calculateOverlap(true);
+		if (seasonLast >= seasonFirst) {
+			nights = DateOverlap.calculateOverlap(seasonFirst, seasonLast, 
+													periodFirst, periodLast, true);
 		} else {
-			final Date firstOfYear = DATE_FACTORY.createFirstDateOfYear(period.getFromYear());
-			final Date lastOfYear = DATE_FACTORY.createLastDateOfYear(period.getToYear());
-			final DateOverlap overlapFirst 
-				= DateOverlap.newDateOverlap(firstOfYear, seasonLast, periodFirst, periodLast);
-			final DateOverlap overlapLast 
-				= DateOverlap.newDateOverlap(seasonFirst, lastOfYear, periodFirst, periodLast);
-			nights = overlapFirst.calculateOverlap(true) 
-						+ overlapLast.calculateOverlap(true);
+			final int firstOfYear = DATE_FACTORY.createFirstDateOfYear(fromYear);
+			final int lastOfYear = DATE_FACTORY.createLastDateOfYear(toYear);
+			nights = DateOverlap.calculateOverlap(firstOfYear, seasonLast, 
+													periodFirst, periodLast, true) 
+						+ DateOverlap.calculateOverlap(seasonFirst, lastOfYear, 
+													periodFirst, periodLast, true);
 		}
 		
 		return nights;
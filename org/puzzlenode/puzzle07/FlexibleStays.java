@@ -0,0 +1,167 @@
+package org.puzzlenode.puzzle07;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RateTable;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+import org.puzzlenode.puzzle07.util.DateFactory;
+
+/**
+ * It answers flexible-dates queries: the cheapest stays of a given amount
+ * of nights anywhere within a given range of dates (e.g. "7 nights in
+ * July-September"). A window of the nights slides over the range one night
+ * at a time; while the window lies within a year, its cost is two lookups
+ * in the cumulative rates of the unit (see RateTable), with no period
+ * to create or split, and only the windows across the end of a year
+ * are quoted as a whole. The costs are the very ones of BasicCostCalculator;
+ * the cheapest windows are kept in a bounded heap, so a unit costs O(d log k)
+ * for d starting dates and the top k windows. The portfolio-wide variants
+ * search every unit, in parallel
+ * @author pek
+ */
+public final class FlexibleStays {
+	private static final DateFactory DATE_FACTORY = new DateFactory(); // a DateFactory instance
+	private static final double TAXED = 1.00 + BasicCostCalculator.TAX; // the taxed share
+	// the order of the results: cheapest first, then earliest
+	private static final Comparator<Stay> CHEAPEST_FIRST = new Comparator<Stay>() {
+		@Override
+		public int compare(final Stay s1, final Stay s2) {
+			final int byCost = Double.compare(s1.getCost(), s2.getCost());
+			return (byCost != 0)
+					? byCost
+					: Integer.compare(s1.getPeriod().getFrom(), s2.getPeriod().getFrom());
+		}
+	};
+
+	private final BasicCostCalculator calc;	// the calculator of the costs
+
+	/**
+	 * Constructor
+	 * @param calc The calculator of the costs
+	 */
+	FlexibleStays(final BasicCostCalculator calc) {
+		this.calc = calc;
+	}
+
+	/**
+	 * Constructor; a BasicCostCalculator is used
+	 */
+	public FlexibleStays() {
+		this(new BasicCostCalculator());
+	}
+
+	/**
+	 * Finds and returns the cheapest stays in a given rental unit of a given
+	 * amount of nights within a given range of dates
+	 * @param rentalUnit The given rental unit
+	 * @param range The range of dates (no stay starts before its starting date,
+	 * nor finishes after its finishing date)
+	 * @param nights The amount of nights of every stay
+	 * @param k The (maximum) amount of stays to return
+	 * @return The k cheapest stays, cheapest (and then earliest) first
+	 */
+	public List<Stay> find(final RentalUnit rentalUnit, final Period range,
+							final int nights, final int k) {
+		final List<Stay> stays = new ArrayList<Stay>();
+
+		if (k <= 0 || nights <= 0 || range.getTo() - range.getFrom() < nights) {
+			return stays;
+		}
+
+		final RateTable rateTable = rentalUnit.getRateTable();
+		final double fee = rentalUnit.getCleaningFee();
+		final PriorityQueue<Stay> cheapest
+			= new PriorityQueue<Stay>(k, Collections.reverseOrder(CHEAPEST_FIRST));
+		final int lastFrom = range.getTo() - nights;
+		int from = range.getFrom();
+
+		while (from <= lastFrom) {
+			final int year = DATE_FACTORY.yearOfDate(from);
+			final int firstOfYear = DATE_FACTORY.createFirstDateOfYear(year);
+			final int lastOfYear = DATE_FACTORY.createLastDateOfYear(year);
+			final boolean leapYear = DATE_FACTORY.isLeapYear(year);
+
+			// the windows within the year: the one step of BasicCostCalculator
+			for (final int last = Math.min(lastFrom, lastOfYear - nights); from <= last; from++) {
+				final double baseCost = rateTable.calculateCost(from - firstOfYear,
+														from + nights - firstOfYear, leapYear);
+				final double rentalCost = baseCost + fee;
+				offer(cheapest, k, rentalUnit, from, nights, rentalCost * TAXED);
+			}
+
+			// the windows across the end of the year
+			for (final int last = Math.min(lastFrom, lastOfYear); from <= last; from++) {
+				offer(cheapest, k, rentalUnit, from, nights,
+						calc.calculateCost(rentalUnit, Period.makePeriod(from, from + nights)));
+			}
+		}
+
+		stays.addAll(cheapest);
+		Collections.sort(stays, CHEAPEST_FIRST);
+		return stays;
+	}
+
+	/**
+	 * Finds and returns the cheapest stays in every given rental unit of a given
+	 * amount of nights within a given range of dates
+	 * @param rentalUnits The given rental units
+	 * @param range The range of dates
+	 * @param nights The amount of nights of every stay
+	 * @param k The (maximum) amount of stays per unit
+	 * @return The k cheapest stays of every unit (see the above method),
+	 * in the order of the units in the catalogue
+	 */
+	public List<List<Stay>> find(final RentalUnits rentalUnits, final Period range,
+									final int nights, final int k) {
+		return IntStream.range(0, rentalUnits.size()).parallel()
+				.mapToObj(i -> find(rentalUnits.getRentalUnit(i), range, nights, k))
+				.collect(Collectors.toList());	// in the order of the units
+	}
+
+	/**
+	 * Finds and returns the cheapest stay in every given rental unit of a given
+	 * amount of nights within a given range of dates
+	 * @param rentalUnits The given rental units
+	 * @param range The range of dates
+	 * @param nights The amount of nights of every stay
+	 * @return The cheapest stay of every unit, cheapest (and then earliest) first
+	 */
+	public List<Stay> findCheapest(final RentalUnits rentalUnits, final Period range,
+									final int nights) {
+		final List<Stay> cheapest = new ArrayList<Stay>();
+
+		for (List<Stay> stays : find(rentalUnits, range, nights, 1)) {
+			cheapest.addAll(stays);
+		}
+
+		Collections.sort(cheapest, CHEAPEST_FIRST);
+		return cheapest;
+	}
+
+	/**
+	 * Keeps a window if it is among the k cheapest ones so far; the windows
+	 * come in order of their starting date, so an equal cost is not cheaper
+	 */
+	private static void offer(final PriorityQueue<Stay> cheapest, final int k,
+								final RentalUnit rentalUnit,
+								final int from, final int nights, final double cost) {
+		if (cheapest.size() == k) {
+			if (cost >= cheapest.peek().getCost()) {
+				return;
+			}
+
+			cheapest.poll();
+		}
+
+		cheapest.add(new Stay(rentalUnit, Period.makePeriod(from, from + nights), cost));
+	}
+
+}
@@ -0,0 +1,91 @@
+package org.puzzlenode.puzzle07;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.puzzlenode.puzzle07.metrics.LatencyHistogram;
+import org.puzzlenode.puzzle07.metrics.Metrics;
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+
+/**
+ * It meters the accommodation costs calculated by another CostCalculator
+ * (decorator). A quote costs a few tens of ns, about as much as timing it
+ * or as updating a shared counter; so the quotes of bulk callers are metered
+ * by batch (see calculateCosts()): a batch of quotes is counted, timed and
+ * its allocations measured once, for about 200 ns (under 2% of a batch
+ * of a few hundred quotes or more). A single quote (see calculateCost()) is counted
+ * and timed by itself, which suits callers that quote one at a time
+ * (e.g. one per request), where a quote is a small part of the work
+ * @author pek
+ */
+final class MeteringCostCalculator extends CostCalculator {
+	static final String QUOTE = "quote";			// the names of the metrics
+	static final String QUOTES = "quote.count";
+	static final String BATCH = "quote.batch";
+
+	private final CostCalculator calc;			// The metered calculator
+	private final Metrics metrics;				// The metrics
+	private final LongAdder quotes;				// counter of quotes
+	private final LatencyHistogram latencies;	// The latencies of the single quotes
+	private final LatencyHistogram batches;		// The latencies of the batches
+
+	/**
+	 * Constructor
+	 * @param calc The calculator to meter
+	 * @param metrics The metrics to record to
+	 */
+	MeteringCostCalculator(final CostCalculator calc, final Metrics metrics) {
+		this.calc = calc;
+		this.metrics = metrics;
+		this.quotes = metrics.counter(QUOTES);
+		this.latencies = metrics.histogram(QUOTE);
+		this.batches = metrics.histogram(BATCH);
+	}
+
+	/**
+	 * Calculates and returns the accommodation cost for a given rental unit
+	 * and for a given reservation period, by the metered calculator;
+	 * the quote is counted and timed
+	 * @param rentalUnit The given rental unit
+	 * @param period The given reservation period
+	 */
+	@Override
+	double calculateCost(final RentalUnit rentalUnit, final Period period) {
+		final long before = System.nanoTime();
+		final double cost = calc.calculateCost(rentalUnit, period);
+		latencies.record(System.nanoTime() - before);
+		quotes.increment();
+		return cost;
+	}
+
+	/**
+	 * Calculates the accommodation costs of given rental units for a given
+	 * reservation period, by the metered calculator; the quotes are metered
+	 * as one batch (counted, timed and their allocations measured once)
+	 * @param rentalUnits The given rental units
+	 * @param period The given reservation period
+	 * @param costs The array to store the costs into, by rental unit
+	 * (of rentalUnits.size() at least); null to create one
+	 * @return The costs, by rental unit
+	 */
+	double[] calculateCosts(final RentalUnits rentalUnits, final Period period, double[] costs) {
+		final long allocatedBefore = Metrics.allocatedBytes();
+		final long before = System.nanoTime();
+		final int units = rentalUnits.size();
+
+		if (costs == null) {
+			costs = new double[units];
+		}
+
+		for (int unit = 0; unit < units; unit++) {
+			costs[unit] = calc.calculateCost(rentalUnits.getRentalUnit(unit), period);
+		}
+
+		batches.record(System.nanoTime() - before);
+		quotes.add(units);
+		metrics.recordAllocatedBytes(BATCH, allocatedBefore);
+		return costs;
+	}
+
+}
@@ -0,0 +1,387 @@
+package org.puzzlenode.puzzle07;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.PeriodsReader;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+
+/**
+ * A pipelined version of the BulkSolver, with the same output: the reading
+ * (and parsing) of the periods, the pricing, the formatting and the writing
+ * of the quotes are stages that run at the same time, connected
+ * by bounded queues. The work flows in items of about ITEM_QUOTES quotes
+ * (some periods against all rental units, or one period against some
+ * of them); the pricing and the formatting have their own amount of threads,
+ * the reading is one thread (the periods file is read sequentially)
+ * and the writing is the calling thread, which writes the items in order.
+ * At most a given amount of items is in flight (backpressure): the reader
+ * waits for a permit, which the writer gives back once an item is written;
+ * so the memory held is bounded, however many periods there are.
+ * If the periods file fails, the quotes of the periods read so far are
+ * written first (as by the BulkSolver); if a stage fails, the writer is
+ * stopped by a FAILED item
+ * @author pek
+ */
+public final class PipelinedBulkSolver {
+	private static final int ITEM_QUOTES = 1 << 16;	// the quotes of an item (at most)
+	private static final int CHUNK_BYTES = 1 << 18;	// the size of a formatted chunk
+	private static final Item END = new Item(-1, new Period[0], 0, 0); // end of a stage
+	private static final Item FAILED = new Item(-2, new Period[0], 0, 0); // a failed stage
+
+	private final CostCalculator calc;	// the calculator of the costs
+	private final int pricers;			// the threads of the pricing stage
+	private final int formatters;		// the threads of the formatting stage
+	private final int capacity;			// the maximum items in flight
+
+	/**
+	 * Constructor
+	 * @param calc The calculator of the costs
+	 * @param pricers The threads of the pricing stage
+	 * @param formatters The threads of the formatting stage
+	 * @param capacity The maximum items in flight
+	 */
+	PipelinedBulkSolver(final CostCalculator calc, final int pricers, final int formatters,
+						final int capacity) {
+		this.calc = calc;
+		this.pricers = Math.max(1, pricers);
+		this.formatters = Math.max(1, formatters);
+		this.capacity = Math.max(1, capacity);
+	}
+
+	/**
+	 * Constructor; a BasicCostCalculator is used
+	 * @param pricers The threads of the pricing stage
+	 * @param formatters The threads of the formatting stage
+	 * @param capacity The maximum items in flight
+	 */
+	public PipelinedBulkSolver(final int pricers, final int formatters, final int capacity) {
+		this(new BasicCostCalculator(), pricers, formatters, capacity);
+	}
+
+	/**
+	 * Constructor; a BasicCostCalculator is used, with as many pricing threads
+	 * as processors, half as many formatting ones and about three items in flight
+	 * per processor
+	 */
+	public PipelinedBulkSolver() {
+		this(Runtime.getRuntime().availableProcessors(),
+				Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+				3 * Runtime.getRuntime().availableProcessors() + 2);
+	}
+
+	/**
+	 * Quotes every reservation period of a text file against given rental units
+	 * @param rentalUnits The given rental units
+	 * @param periodsInputFile The filename of the text file of the periods
+	 * @param output The channel to write the quotes to (it is not closed)
+	 * @return The amount of quoted periods
+	 * @throws IOException If the periods cannot be read, the quotes cannot be written,
+	 * or a stage fails
+	 */
+	public long solve(final RentalUnits rentalUnits, final String periodsInputFile,
+						final WritableByteChannel output) throws IOException {
+		final Run run = new Run(rentalUnits);
+		final List<Thread> threads = new ArrayList<Thread>();
+
+		threads.add(run.start("Pipeline reader", () -> run.read(periodsInputFile)));
+
+		for (int i = 0; i < pricers; i++) {
+			threads.add(run.start("Pipeline pricer " + i, run::price));
+		}
+
+		for (int i = 0; i < formatters; i++) {
+			threads.add(run.start("Pipeline formatter " + i, run::format));
+		}
+
+		try {
+			run.write(output);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();	// restored for the caller
+			run.failure.compareAndSet(null, new InterruptedIOException("The pipeline is interrupted"));
+		} catch (IOException | RuntimeException e) {
+			run.failure.compareAndSet(null, e);
+		} finally {
+			for (Thread thread : threads) {
+				thread.interrupt();
+			}
+		}
+
+		final Throwable failure = run.failure.get();
+
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		} else if (failure != null) {
+			throw new IOException("The pipeline has failed", failure);
+		} else if (run.readFailure != null) {
+			throw run.readFailure;	// after the quotes of the periods read so far
+		}
+
+		return run.periods;
+	}
+
+	/**
+	 * A stage of a Run
+	 */
+	private interface Stage {
+		void run() throws InterruptedException, IOException;
+	}
+
+	/**
+	 * Some periods against some rental units, on their way through the stages;
+	 * every stage fills in its part (the queues order the accesses)
+	 */
+	private static final class Item {
+		final long sequence;	// the position of the item in the output
+		final Period[] periods;	// the periods
+		final int fromUnit;		// the first rental unit
+		final int toUnit;		// the last rental unit (exclusive)
+		double[] costs;			// the costs, by period and rental unit
+		List<ByteBuffer> chunks;	// the formatted quotes
+
+		Item(final long sequence, final Period[] periods, final int fromUnit, final int toUnit) {
+			this.sequence = sequence;
+			this.periods = periods;
+			this.fromUnit = fromUnit;
+			this.toUnit = toUnit;
+		}
+	}
+
+	/**
+	 * One run of the pipeline, with its queues
+	 */
+	private final class Run {
+		private final RentalUnits rentalUnits;	// the rental units
+		private final byte[][] names;			// their encoded names
+		private final int maxLineBytes;			// the maximum bytes of a line
+		private final Semaphore inFlight = new Semaphore(capacity); // permits of the items
+		private final BlockingQueue<Item> toPrice
+			= new ArrayBlockingQueue<Item>(capacity + pricers);		// the read items
+		private final BlockingQueue<Item> toFormat
+			= new ArrayBlockingQueue<Item>(capacity + formatters);	// the priced items
+		private final BlockingQueue<Item> toWrite
+			= new ArrayBlockingQueue<Item>(capacity + 2);	// the formatted items, END and FAILED
+		private final AtomicInteger pricing = new AtomicInteger(pricers);	// running pricers
+		private final AtomicInteger formatting = new AtomicInteger(formatters); // and formatters
+		private final AtomicReference<Throwable> failure
+			= new AtomicReference<Throwable>();	// the first failure of a stage
+		private volatile IOException readFailure;	// the failure of the periods file
+		private volatile long periods = 0;		// the amount of periods read
+
+		Run(final RentalUnits rentalUnits) {
+			this.rentalUnits = rentalUnits;
+			this.names = BulkSolver.encodeNames(rentalUnits);
+			this.maxLineBytes = BulkSolver.maxLineBytes(names);
+		}
+
+		/**
+		 * Starts a thread of a stage; a failure of the stage is recorded
+		 * and the writer is stopped (by a FAILED item, which always fits:
+		 * at most capacity items, END and FAILED are ever queued to be written)
+		 */
+		Thread start(final String name, final Stage stage) {
+			final Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						stage.run();
+					} catch (InterruptedException e) {
+						// the pipeline is stopped
+					} catch (IOException | RuntimeException | Error e) {
+						if (failure.compareAndSet(null, e)) {
+							try {
+								toWrite.put(FAILED);
+							} catch (InterruptedException stopped) {
+								// the pipeline is stopped
+							}
+						}
+					}
+				}
+			}, name);
+			thread.setDaemon(true);
+			thread.start();
+			return thread;
+		}
+
+		/**
+		 * The reading stage: it reads the periods into items; a failure
+		 * of the periods file ends the stage as usual, so that the items read
+		 * so far go through the pipeline (it is thrown afterwards)
+		 */
+		void read(final String periodsInputFile) throws InterruptedException, IOException {
+			final int units = names.length;
+			final int periodsPerItem = Math.max(1, ITEM_QUOTES / Math.max(1, units));
+			final int unitsPerItem = Math.max(1, Math.min(units, ITEM_QUOTES));
+			final List<Period> batch = new ArrayList<Period>(periodsPerItem);
+			long sequence = 0;
+			long count = 0;
+
+			try (PeriodsReader reader = PeriodsReader.newPeriodsReader(periodsInputFile)) {
+				while (reader.hasNext()) {
+					batch.add(reader.next());
+					count++;
+
+					if (batch.size() == periodsPerItem || !reader.hasNext()) {
+						final Period[] items = batch.toArray(new Period[batch.size()]);
+						batch.clear();
+
+						for (int from = 0; from < Math.max(1, units); from += unitsPerItem) {
+							inFlight.acquire();
+							toPrice.put(new Item(sequence++, items, from,
+													Math.min(units, from + unitsPerItem)));
+						}
+					}
+				}
+
+				readFailure = reader.getFailure();
+			}
+
+			periods = count;
+
+			for (int i = 0; i < pricers; i++) {
+				toPrice.put(END);
+			}
+		}
+
+		/**
+		 * The pricing stage: it calculates the costs of the items
+		 */
+		void price() throws InterruptedException {
+			Item item;
+
+			while ((item = toPrice.take()) != END) {
+				final double[] costs = new double[item.periods.length * (item.toUnit - item.fromUnit)];
+				int i = 0;
+
+				for (Period period : item.periods) {
+					for (int unit = item.fromUnit; unit < item.toUnit; unit++) {
+						costs[i++] = calc.calculateCost(rentalUnits.getRentalUnit(unit), period);
+					}
+				}
+
+				item.costs = costs;
+				toFormat.put(item);
+			}
+
+			if (pricing.decrementAndGet() == 0) {
+				for (int i = 0; i < formatters; i++) {
+					toFormat.put(END);
+				}
+			}
+		}
+
+		/**
+		 * The formatting stage: it formats the quotes of the items into chunks
+		 */
+		void format() throws InterruptedException {
+			final ByteBuffer periodBuffer = ByteBuffer.allocate(BulkSolver.PERIOD_BYTES);
+			final int chunkBytes = Math.max(CHUNK_BYTES, maxLineBytes);
+			Item item;
+
+			while ((item = toFormat.take()) != END) {
+				final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+				ByteBuffer chunk = ByteBuffer.allocate(chunkBytes);
+				int i = 0;
+
+				for (Period period : item.periods) {
+					BulkSolver.formatPeriod(period, periodBuffer);
+
+					for (int unit = item.fromUnit; unit < item.toUnit; unit++) {
+						if (chunk.remaining() < maxLineBytes) {
+							chunk.flip();
+							chunks.add(chunk);
+							chunk = ByteBuffer.allocate(chunkBytes);
+						}
+
+						BulkSolver.formatQuote(periodBuffer, names[unit], item.costs[i++], chunk);
+					}
+				}
+
+				chunk.flip();
+				chunks.add(chunk);
+				item.costs = null;
+				item.chunks = chunks;
+				toWrite.put(item);
+			}
+
+			if (formatting.decrementAndGet() == 0) {
+				toWrite.put(END);
+			}
+		}
+
+		/**
+		 * The writing stage: it writes the chunks of the items in order
+		 * (the items that come early wait for the ones before them)
+		 */
+		void write(final WritableByteChannel output) throws IOException, InterruptedException {
+			final Map<Long, Item> early = new HashMap<Long, Item>();
+			long next = 0;
+			Item item;
+
+			while ((item = toWrite.take()) != END) {
+				if (item == FAILED) {
+					return;	// a stage has failed (see start())
+				}
+
+				early.put(item.sequence, item);
+
+				while ((item = early.remove(next)) != null) {
+					for (ByteBuffer chunk : item.chunks) {
+						while (chunk.hasRemaining()) {
+							output.write(chunk);
+						}
+					}
+
+					next++;
+					inFlight.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pipelined bulk solving starts here
+	 * @param args The filenames of the JSON file of the rental units,
+	 * of the text file of the periods and (optionally) of the output file
+	 * ("-" for the standard output, the default), the threads of the pricing
+	 * and of the formatting stages and the maximum items in flight
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: PipelinedBulkSolver <rental units JSON file> <periods file>"
+								+ " [output file|- [pricers [formatters [items in flight]]]]");
+			return;
+		}
+
+		final PipelinedBulkSolver solver = (args.length > 3)
+				? new PipelinedBulkSolver(Integer.parseInt(args[3]),
+											(args.length > 4) ? Integer.parseInt(args[4]) : 1,
+											(args.length > 5) ? Integer.parseInt(args[5]) : 16)
+				: new PipelinedBulkSolver();
+		final RentalUnits rentalUnits = RentalUnits.newRentalUnits(args[0]);
+
+		try (WritableByteChannel output = (args.length > 2 && !args[2].equals("-"))
+											? new FileOutputStream(args[2]).getChannel()
+											: Channels.newChannel(System.out)) {
+			final long start = System.nanoTime();
+			final long periods = solver.solve(rentalUnits, args[1], output);
+			System.err.println(String.format("%d periods quoted in %.2f s", periods,
+												(System.nanoTime() - start) / 1e9));
+		}
+	}
+
+}
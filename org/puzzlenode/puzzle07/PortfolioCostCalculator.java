@@ -0,0 +1,210 @@
+package org.puzzlenode.puzzle07;
+
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RateColumns;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+import org.puzzlenode.puzzle07.util.DateFactory;
+
+/**
+ * It calculates the accommodation costs of one reservation period in all
+ * the rental units of a catalogue at once: the period is split in years
+ * (as in BasicCostCalculator) once, and then the same arithmetic is applied
+ * to the rates of every unit, laid out column-wise (see RateColumns).
+ * The arithmetic is done by a kernel: a SIMD one on the Vector API
+ * (jdk.incubator.vector; the JVM must be run with
+ * '--add-modules jdk.incubator.vector') or, when that is not available,
+ * a scalar one. Both do the very operations of BasicCostCalculator,
+ * in the same order, so the costs are exactly the same
+ * @author pek
+ */
+public final class PortfolioCostCalculator {
+	private static final DateFactory DATE_FACTORY = new DateFactory(); // a DateFactory instance
+	static final double TAXED = 1.00 + BasicCostCalculator.TAX;	// the taxed share of a cost
+	private static final String VECTOR_KERNEL = "org.puzzlenode.puzzle07.VectorPortfolioKernel";
+
+	private final Kernel kernel;	// the kernel of the arithmetic
+
+	/**
+	 * Constructor
+	 * @param kernel The kernel of the arithmetic
+	 */
+	private PortfolioCostCalculator(final Kernel kernel) {
+		this.kernel = kernel;
+	}
+
+	/**
+	 * Factory method idiom to create a PortfolioCostCalculator; the SIMD kernel
+	 * is used if the Vector API is available (and has more than one lane)
+	 * @return A new PortfolioCostCalculator instance
+	 */
+	public static PortfolioCostCalculator newPortfolioCostCalculator() {
+		try {
+			final Kernel vectorKernel = (Kernel) Class.forName(VECTOR_KERNEL)
+												.getDeclaredConstructor().newInstance();
+
+			if (vectorKernel.getLanes() > 1) {
+				return new PortfolioCostCalculator(vectorKernel);
+			}
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// no jdk.incubator.vector module: the scalar kernel is used
+		}
+
+		return newScalarPortfolioCostCalculator();
+	}
+
+	/**
+	 * Factory method idiom to create a PortfolioCostCalculator on the scalar kernel
+	 * @return A new PortfolioCostCalculator instance
+	 */
+	static PortfolioCostCalculator newScalarPortfolioCostCalculator() {
+		return new PortfolioCostCalculator(new ScalarKernel());
+	}
+
+	/**
+	 * Returns the amount of units the kernel calculates at once (1 if scalar)
+	 */
+	public int getLanes() {
+		return kernel.getLanes();
+	}
+
+	/**
+	 * Calculates and returns the accommodation costs for all given rental units
+	 * and for a given reservation period
+	 * @param rentalUnits The given rental units
+	 * @param period The given reservation period
+	 * @return The costs; the cost in unit i is at [i]
+	 */
+	public double[] calculateCosts(final RentalUnits rentalUnits, final Period period) {
+		final double[] costs = new double[rentalUnits.size()];
+		calculateCosts(rentalUnits, period, costs);
+		return costs;
+	}
+
+	/**
+	 * Calculates the accommodation costs for all given rental units
+	 * and for a given reservation period into a given array
+	 * @param rentalUnits The given rental units
+	 * @param period The given reservation period
+	 * @param costs The array of the costs (of at least as many elements as units)
+	 */
+	public void calculateCosts(final RentalUnits rentalUnits, final Period period,
+								final double[] costs) {
+		final RateColumns columns = rentalUnits.getRateColumns();
+		final int fromYear = period.getFromYear();
+		final int toYear = period.getToYear();
+		final int firstOfFromYear = DATE_FACTORY.createFirstDateOfYear(fromYear);
+		final boolean leapFromYear = DATE_FACTORY.isLeapYear(fromYear);
+
+		if (fromYear == toYear) {
+			kernel.calculateCosts(columns, period.getFrom() - firstOfFromYear,
+									period.getTo() - firstOfFromYear, leapFromYear,
+									costs, 0, columns.size());
+			return;
+		}
+
+		final int firstOfToYear = DATE_FACTORY.createFirstDateOfYear(toYear);
+		final int leapYears = DATE_FACTORY.countLeapYears(fromYear + 1, toYear - 1);
+		kernel.calculateCosts(columns, period.getFrom() - firstOfFromYear,
+								DATE_FACTORY.createLastDateOfYear(fromYear) - firstOfFromYear,
+								leapFromYear, leapYears, toYear - fromYear - 1 - leapYears,
+								period.getTo() - firstOfToYear, DATE_FACTORY.isLeapYear(toYear),
+								costs, 0, columns.size());
+	}
+
+	/**
+	 * The arithmetic of the costs of a range of units
+	 */
+	interface Kernel {
+
+		/**
+		 * Returns the amount of units calculated at once
+		 */
+		int getLanes();
+
+		/**
+		 * Calculates the costs of a period within a year
+		 * @param columns The rates of all units
+		 * @param first The first day of the period (zero-based day of the year)
+		 * @param last The last day of the period (zero-based day of the year)
+		 * @param leapYear Whether or not the year is a leap year
+		 * @param costs The array of the costs
+		 * @param fromUnit The first unit (inclusive)
+		 * @param toUnit The last unit (exclusive)
+		 */
+		void calculateCosts(RateColumns columns, int first, int last, boolean leapYear,
+							double[] costs, int fromUnit, int toUnit);
+
+		/**
+		 * Calculates the costs of a period spanning years
+		 * @param columns The rates of all units
+		 * @param first The first day of the period (zero-based day of its first year)
+		 * @param lastOfFromYear The last day of the first year (zero-based)
+		 * @param leapFromYear Whether or not the first year is a leap year
+		 * @param leapYears The amount of whole leap years in between
+		 * @param otherYears The amount of whole non-leap years in between
+		 * @param last The last day of the period (zero-based day of its last year)
+		 * @param leapToYear Whether or not the last year is a leap year
+		 * @param costs The array of the costs
+		 * @param fromUnit The first unit (inclusive)
+		 * @param toUnit The last unit (exclusive)
+		 */
+		void calculateCosts(RateColumns columns, int first, int lastOfFromYear,
+							boolean leapFromYear, int leapYears, int otherYears,
+							int last, boolean leapToYear,
+							double[] costs, int fromUnit, int toUnit);
+	}
+
+	/**
+	 * The scalar kernel: one unit at a time
+	 */
+	static final class ScalarKernel implements Kernel {
+
+		@Override
+		public int getLanes() {
+			return 1;
+		}
+
+		@Override
+		public void calculateCosts(final RateColumns columns,
+									final int first, final int last, final boolean leapYear,
+									final double[] costs, final int fromUnit, final int toUnit) {
+			final double[] firstRates = columns.getCumulativeRates(first, leapYear);
+			final double[] lastRates = columns.getCumulativeRates(last, leapYear);
+			final double[] lastDayRates = columns.getLastDayRates(last, leapYear);
+			final double[] fees = columns.getCleaningFees();
+
+			for (int unit = fromUnit; unit < toUnit; unit++) {
+				costs[unit] = (lastRates[unit] - firstRates[unit] + lastDayRates[unit]
+								+ fees[unit]) * TAXED;
+			}
+		}
+
+		@Override
+		public void calculateCosts(final RateColumns columns, final int first,
+									final int lastOfFromYear, final boolean leapFromYear,
+									final int leapYears, final int otherYears,
+									final int last, final boolean leapToYear,
+									final double[] costs, final int fromUnit, final int toUnit) {
+			final double[] firstRates = columns.getCumulativeRates(first, leapFromYear);
+			final double[] lastOfFromYearRates
+				= columns.getCumulativeRates(lastOfFromYear, leapFromYear);
+			final double[] lastOfFromYearDayRates
+				= columns.getLastDayRates(lastOfFromYear, leapFromYear);
+			final double[] leapYearCosts = columns.getYearCosts(true);
+			final double[] yearCosts = columns.getYearCosts(false);
+			final double[] firstOfToYearRates = columns.getCumulativeRates(0, leapToYear);
+			final double[] lastRates = columns.getCumulativeRates(last, leapToYear);
+			final double[] lastDayRates = columns.getLastDayRates(last, leapToYear);
+			final double[] fees = columns.getCleaningFees();
+
+			for (int unit = fromUnit; unit < toUnit; unit++) {
+				double cost = lastOfFromYearRates[unit] - firstRates[unit]
+								+ lastOfFromYearDayRates[unit];
+				cost += leapYears * leapYearCosts[unit] + otherYears * yearCosts[unit];
+				cost += lastRates[unit] - firstOfToYearRates[unit] + lastDayRates[unit];
+				costs[unit] = (cost + fees[unit]) * TAXED;
+			}
+		}
+	}
+
+}
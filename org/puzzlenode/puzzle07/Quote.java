@@ -0,0 +1,40 @@
+package org.puzzlenode.puzzle07;
+
+import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
+
+/**
+ * The accommodation cost of a rental unit (for some reservation period)
+ * @author pek
+ */
+public final class Quote {
+	private final RentalUnit rentalUnit;	// The rental unit
+	private final double cost;				// Its accommodation cost
+
+	/**
+	 * Constructor
+	 * @param rentalUnit The rental unit
+	 * @param cost Its accommodation cost
+	 */
+	Quote(final RentalUnit rentalUnit, final double cost) {
+		this.rentalUnit = rentalUnit;
+		this.cost = cost;
+	}
+
+	// --- getters ---
+
+	public RentalUnit getRentalUnit() {
+		return rentalUnit;
+	}
+
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * Useful for inspection
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s: $%.2f", rentalUnit.getName(), cost);
+	}
+}
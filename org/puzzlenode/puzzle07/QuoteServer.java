@@ -0,0 +1,351 @@
+package org.puzzlenode.puzzle07;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.puzzlenode.puzzle07.metrics.Metrics;
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnitsCatalogue;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnitsWatcher;
+import org.puzzlenode.puzzle07.util.AmountFormatter;
+import org.puzzlenode.puzzle07.util.DateFormatter;
+
+/**
+ * An embedded HTTP server quoting the rental units of a catalogue,
+ * which is loaded once. It answers:
+ * (a) GET /quote?unit=NAME&from=yyyy/MM/dd&to=yyyy/MM/dd with one quote
+ * (b) POST /quote with one such query string per line of the body,
+ * with one quote (or error) per line of the response.
+ * Quotes are formatted like the Solver does ("NAME: $COST").
+ * The catalogue may be kept up to date by a RentalUnitsWatcher; every request
+ * is quoted against the version of the catalogue current when it arrived.
+ * The requests and the quotes are metered (see getMetrics()).
+ * Every request runs on its own virtual thread when the JVM offers them
+ * (Java 21+); otherwise (e.g. on Java 17) on a fixed pool of 4 platform threads
+ * per core. A request is parsed and answered without regular expressions
+ * or String.format(), since on such short requests they would cost more than
+ * the quote itself; main() disables Nagle's algorithm for the responses
+ * @author pek
+ */
+public final class QuoteServer {
+	private static final String PATH = "/quote";	// the path of the service
+	private static final int BAD_REQUEST = 400;		// HTTP status codes
+	private static final int NOT_FOUND = 404;
+	private static final int METHOD_NOT_ALLOWED = 405;
+	private static final int OK = 200;
+	private static final String REQUEST = "request";	// the name of the request metrics
+	private static final long REPORT_SECONDS = 60;		// the period of the metrics reports
+	// the property of the JDK server disabling Nagle's algorithm, which would
+	// otherwise delay every small response by the delayed ACK of the client (~40ms);
+	// it is read once, when the JDK server is first used
+	static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+	// a thread-safe formatter of 'yyyy/MM/dd' dates
+	private static final DateFormatter FORMATTER = new DateFormatter();
+	// a thread-safe formatter of the costs
+	private static final AmountFormatter AMOUNT_FORMATTER = new AmountFormatter();
+
+	private final HttpServer server;			// The underlying server
+	private final ExecutorService executor;		// The executor of the requests
+	private final Supplier<RentalUnits> catalogue;	// The current version of the rental units
+	private final Metrics metrics = Metrics.newMetrics("QuoteServer"); // the metrics
+	private final CostCalculator calc
+		= new MeteringCostCalculator(new BasicCostCalculator(), metrics); // the calculator
+
+	/**
+	 * Constructor
+	 * @param server The underlying server
+	 * @param executor The executor of the requests
+	 * @param catalogue The current version of the rental units
+	 */
+	private QuoteServer(final HttpServer server, final ExecutorService executor,
+						final Supplier<RentalUnits> catalogue) {
+		this.server = server;
+		this.executor = executor;
+		this.catalogue = catalogue;
+	}
+
+	/**
+	 * Factory method idiom to create a (not yet started) QuoteServer
+	 * @param rentalUnits The rental units to quote
+	 * @param port The port to listen to; 0 for any free port
+	 * @return A new QuoteServer instance
+	 * @throws IOException If the server cannot bind to the port
+	 */
+	public static QuoteServer newQuoteServer(final RentalUnits rentalUnits, final int port)
+			throws IOException {
+		return newQuoteServer(() -> rentalUnits, port);
+	}
+
+	/**
+	 * Factory method idiom to create a (not yet started) QuoteServer
+	 * of a watched (i.e. hot-reloaded) catalogue
+	 * @param watcher The watcher of the rental units to quote
+	 * @param port The port to listen to; 0 for any free port
+	 * @return A new QuoteServer instance
+	 * @throws IOException If the server cannot bind to the port
+	 */
+	public static QuoteServer newQuoteServer(final RentalUnitsWatcher watcher, final int port)
+			throws IOException {
+		return newQuoteServer(watcher::getRentalUnits, port);
+	}
+
+	/**
+	 * Factory method idiom to create a (not yet started) QuoteServer
+	 * of a versioned (i.e. edited while quoting) catalogue
+	 * @param catalogue The catalogue of the rental units to quote
+	 * @param port The port to listen to; 0 for any free port
+	 * @return A new QuoteServer instance
+	 * @throws IOException If the server cannot bind to the port
+	 */
+	public static QuoteServer newQuoteServer(final RentalUnitsCatalogue catalogue, final int port)
+			throws IOException {
+		return newQuoteServer(catalogue::getRentalUnits, port);
+	}
+
+	private static QuoteServer newQuoteServer(final Supplier<RentalUnits> catalogue,
+												final int port) throws IOException {
+		final HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+		final ExecutorService executor = newExecutor();
+		final QuoteServer quoteServer = new QuoteServer(server, executor, catalogue);
+		server.setExecutor(executor);
+		server.createContext(PATH, new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				quoteServer.handle(exchange);
+			}
+		});
+		return quoteServer;
+	}
+
+	/**
+	 * Returns an executor running every task on a new virtual thread
+	 * if the JVM offers them (Java 21+); otherwise a fixed pool of platform threads
+	 */
+	private static ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) Executors.class
+						.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(4 * Runtime.getRuntime().availableProcessors());
+		}
+	}
+
+	/**
+	 * Starts the server
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops the server
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdown();
+	}
+
+	/**
+	 * Returns the metrics of the requests and of the quotes
+	 */
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the port the server listens to
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	// --- helper methods for the requests ---
+
+	private void handle(final HttpExchange exchange) throws IOException {
+		final long allocatedBefore = Metrics.allocatedBytes();
+		final long before = System.nanoTime();
+
+		try {
+			final String method = exchange.getRequestMethod();
+
+			if ("GET".equals(method)) {
+				final String query = exchange.getRequestURI().getRawQuery();
+				final StringBuilder response = new StringBuilder();
+				final int status = quote(catalogue.get(), query, response);
+				respond(exchange, status, response.append('\n'));
+			} else if ("POST".equals(method)) {
+				respond(exchange, OK, quoteAll(exchange));
+			} else {
+				respond(exchange, METHOD_NOT_ALLOWED, new StringBuilder("Use GET or POST\n"));
+			}
+		} finally {
+			exchange.close();
+			metrics.histogram(REQUEST).record(System.nanoTime() - before);
+			metrics.recordAllocatedBytes(REQUEST, allocatedBefore);
+		}
+	}
+
+	/**
+	 * Quotes every line (query string) of the body of a POST request
+	 */
+	private StringBuilder quoteAll(final HttpExchange exchange) throws IOException {
+		final StringBuilder response = new StringBuilder();
+		final RentalUnits rentalUnits = catalogue.get();	// one version for the whole batch
+
+		try (BufferedReader input = new BufferedReader(
+				new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+			String line;
+
+			while ((line = input.readLine()) != null) {
+				if (!line.trim().isEmpty()) {
+					quote(rentalUnits, line.trim(), response);
+					response.append('\n');
+				}
+			}
+		}
+
+		return response;
+	}
+
+	/**
+	 * Quotes a query string ("unit=NAME&from=yyyy/MM/dd&to=yyyy/MM/dd")
+	 * @param rentalUnits The (version of the) rental units to quote
+	 * @param query The query string
+	 * @param response The response to append the quote (or error) to
+	 * @return The HTTP status code
+	 */
+	private int quote(final RentalUnits rentalUnits, final String query,
+						final StringBuilder response) {
+		String unit = null;
+		String from = null;
+		String to = null;
+
+		if (query != null) {
+			int start = 0;
+
+			while (start < query.length()) {
+				final int ampersand = query.indexOf('&', start);
+				final int end = (ampersand < 0) ? query.length() : ampersand;
+				final int equals = query.indexOf('=', start);
+
+				if (equals > start && equals < end) {
+					if (isParameter(query, start, equals, "unit")) {
+						unit = decode(query, equals + 1, end);
+					} else if (isParameter(query, start, equals, "from")) {
+						from = decode(query, equals + 1, end);
+					} else if (isParameter(query, start, equals, "to")) {
+						to = decode(query, equals + 1, end);
+					}
+				}
+
+				start = end + 1;
+			}
+		}
+
+		if (unit == null || from == null || to == null) {
+			response.append("Error: parameters unit, from and to are required");
+			return BAD_REQUEST;
+		}
+
+		final RentalUnit rentalUnit = rentalUnits.getRentalUnit(unit);
+
+		if (rentalUnit == null) {
+			response.append("Error: unknown unit ").append(unit);
+			return NOT_FOUND;
+		}
+
+		final Period period;
+
+		try {
+			period = Period.makePeriod(FORMATTER.parseDate(from), FORMATTER.parseDate(to));
+		} catch (ParseException e) {
+			response.append("Error: ").append(e.getMessage());
+			return BAD_REQUEST;
+		}
+
+		if (!period.isValid()) {
+			response.append("Error: invalid period ").append(from).append(" - ").append(to);
+			return BAD_REQUEST;
+		}
+
+		final double cost = calc.calculateCost(rentalUnit, period);
+		response.append(rentalUnit.getName()).append(": $");
+		AMOUNT_FORMATTER.formatAmount(cost, response);
+		return OK;
+	}
+
+	/**
+	 * Returns whether the name of a parameter of a query string is a given one
+	 */
+	private static boolean isParameter(final String query, final int start, final int equals,
+										final String name) {
+		return equals - start == name.length() && query.startsWith(name, start);
+	}
+
+	/**
+	 * Decodes the value of a parameter of a query string; only values
+	 * with escapes ('%') are decoded by the URLDecoder
+	 */
+	private static String decode(final String query, final int start, final int end) {
+		final String value = query.substring(start, end);
+
+		if (value.indexOf('%') >= 0) {
+			return URLDecoder.decode(value, StandardCharsets.UTF_8);
+		}
+
+		return (value.indexOf('+') >= 0) ? value.replace('+', ' ') : value;
+	}
+
+	private static void respond(final HttpExchange exchange, final int status,
+								final CharSequence response) throws IOException {
+		final byte[] body = response.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	/**
+	 * Server starts here
+	 * @param args The filename of the JSON file of the rental units
+	 * and (optionally) the port to listen to (8080 by default);
+	 * the JSON file is watched and reloaded whenever it changes, and the metrics
+	 * are exposed through JMX and printed every REPORT_SECONDS
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: QuoteServer <rental units JSON file> [port]");
+			return;
+		}
+
+		if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+			System.setProperty(NO_DELAY_PROPERTY, "true");
+		}
+
+		final int port = (args.length > 1) ? Integer.parseInt(args[1]) : 8080;
+		final QuoteServer quoteServer = newQuoteServer(
+											RentalUnitsWatcher.newRentalUnitsWatcher(args[0]), port);
+		quoteServer.getMetrics().register();
+		quoteServer.getMetrics().startReports(System.out, REPORT_SECONDS);
+		quoteServer.start();
+		System.out.println("Quoting on port " + quoteServer.getPort());
+	}
+
+}
@@ -0,0 +1,374 @@
+package org.puzzlenode.puzzle07;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.util.DateFormatter;
+
+/**
+ * The coordinator of the sharded mode: the rental units of a catalogue are
+ * partitioned by the hash of their names across ShardWorker processes,
+ * and the coordinator sends every quote to the worker of its unit, fans every
+ * top-k request out to all workers (in parallel) and merges their results.
+ * The connections to a worker are pooled; all requests are read-only,
+ * so a request failing on a broken connection (e.g. a worker restarted
+ * mid-run) is retried on a new one, with exponential backoff,
+ * until the worker is back or RETRY_MILLIS have passed
+ * @author pek
+ */
+public final class ShardCoordinator implements Closeable {
+	static final long RETRY_MILLIS = 30000;			// how long a request is retried
+	private static final long FIRST_BACKOFF_MILLIS = 20;	// the first wait between retries
+	private static final long MAX_BACKOFF_MILLIS = 1000;	// the longest wait between retries
+	private static final int READ_TIMEOUT_MILLIS = 10000;	// the longest wait for a response
+	private static final int CONNECT_TIMEOUT_MILLIS = 1000;	// the longest wait for a connection
+	// a thread-safe formatter of 'yyyy/MM/dd' dates
+	private static final DateFormatter FORMATTER = new DateFormatter();
+	// the order of the merged results: by cost and then by name
+	private static final Comparator<NamedQuote> CHEAPEST_FIRST = new Comparator<NamedQuote>() {
+		@Override
+		public int compare(final NamedQuote q1, final NamedQuote q2) {
+			final int byCost = Double.compare(q1.cost, q2.cost);
+			return (byCost != 0) ? byCost : q1.name.compareTo(q2.name);
+		}
+	};
+
+	private final List<Worker> workers;		// the workers, by shard
+	private final ExecutorService executor;	// the executor of the fan-outs
+
+	/**
+	 * Constructor
+	 * @param workers The workers, by shard
+	 * @param executor The executor of the fan-outs
+	 */
+	private ShardCoordinator(final List<Worker> workers, final ExecutorService executor) {
+		this.workers = workers;
+		this.executor = executor;
+	}
+
+	/**
+	 * Factory method idiom to create a ShardCoordinator; no connection is opened yet
+	 * @param addresses The addresses of the workers, by shard
+	 * @return A new ShardCoordinator instance
+	 */
+	public static ShardCoordinator newShardCoordinator(final List<InetSocketAddress> addresses) {
+		final List<Worker> workers = new ArrayList<Worker>(addresses.size());
+
+		for (InetSocketAddress address : addresses) {
+			workers.add(new Worker(address));
+		}
+
+		return new ShardCoordinator(workers, Executors.newCachedThreadPool());
+	}
+
+	/**
+	 * Returns the amount of shards
+	 */
+	public int getShards() {
+		return workers.size();
+	}
+
+	/**
+	 * Quotes a rental unit (on the worker of its shard)
+	 * @param name The name of the rental unit
+	 * @param period The reservation period
+	 * @return The accommodation cost; null if there is no such unit
+	 * @throws IOException If the worker cannot be reached for RETRY_MILLIS
+	 */
+	public Double quote(final String name, final Period period) throws IOException {
+		final String response = workers.get(ShardWorker.shardOf(name, workers.size()))
+									.request(ShardWorker.QUOTE + " " + period(period) + " " + name);
+
+		if (response.equals(ShardWorker.ERROR + " " + ShardWorker.UNKNOWN_UNIT)) {
+			return null;
+		}
+
+		return Double.valueOf(payload(response).trim());
+	}
+
+	/**
+	 * Finds and returns the cheapest rental units of all shards
+	 * @param period The reservation period
+	 * @param k The (maximum) amount of rental units to return
+	 * @return The k cheapest rental units, cheapest first (and then by name)
+	 * @throws IOException If some worker cannot be reached for RETRY_MILLIS
+	 */
+	public List<NamedQuote> cheapest(final Period period, final int k) throws IOException {
+		final String request = ShardWorker.CHEAPEST + " " + period(period) + " " + k;
+		final List<Future<String>> responses = new ArrayList<Future<String>>(workers.size());
+
+		for (final Worker worker : workers) {
+			responses.add(executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws IOException {
+					return worker.request(request);
+				}
+			}));
+		}
+
+		final List<NamedQuote> quotes = new ArrayList<NamedQuote>();
+
+		for (Future<String> response : responses) {
+			final String[] fields = payload(get(response)).split("\t");
+
+			for (int i = 1; i + 1 < fields.length; i += 2) {
+				quotes.add(new NamedQuote(fields[i + 1], Double.parseDouble(fields[i])));
+			}
+		}
+
+		Collections.sort(quotes, CHEAPEST_FIRST);
+		return new ArrayList<NamedQuote>(quotes.subList(0, Math.min(k, quotes.size())));
+	}
+
+	/**
+	 * Closes all connections
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+
+		for (Worker worker : workers) {
+			worker.close();
+		}
+	}
+
+	// --- helper methods for the requests ---
+
+	private static String period(final Period period) {
+		return FORMATTER.formatDate(period.getFrom()) + " " + FORMATTER.formatDate(period.getTo());
+	}
+
+	/**
+	 * Returns a response without its "OK"
+	 * @throws IOException If the response is an error
+	 */
+	private static String payload(final String response) throws IOException {
+		if (!response.startsWith(ShardWorker.OK)) {
+			throw new IOException("Worker error: " + response);
+		}
+
+		return response.substring(ShardWorker.OK.length());
+	}
+
+	private static String get(final Future<String> response) throws IOException {
+		try {
+			return response.get();
+		} catch (ExecutionException e) {
+			throw (e.getCause() instanceof IOException)
+					? (IOException) e.getCause()
+					: new IOException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	/**
+	 * A worker: its address and its pool of idle connections
+	 */
+	private static final class Worker {
+		private final InetSocketAddress address;	// The address of the worker
+		private final ConcurrentLinkedQueue<Connection> idle
+			= new ConcurrentLinkedQueue<Connection>(); // The idle connections
+
+		private Worker(final InetSocketAddress address) {
+			this.address = address;
+		}
+
+		/**
+		 * Sends a request on an idle (or new) connection and returns the response;
+		 * on failure, all idle connections are dropped (they are likely broken too)
+		 * and the request is retried on a new one
+		 */
+		private String request(final String request) throws IOException {
+			final long deadline = System.currentTimeMillis() + RETRY_MILLIS;
+			long backoff = FIRST_BACKOFF_MILLIS;
+
+			while (true) {
+				Connection connection = idle.poll();
+
+				try {
+					if (connection == null) {
+						connection = new Connection(address);
+					}
+
+					final String response = connection.request(request);
+					idle.add(connection);
+					return response;
+				} catch (IOException e) {
+					if (connection != null) {
+						connection.close();
+					}
+
+					close();
+
+					if (System.currentTimeMillis() + backoff > deadline) {
+						throw new IOException("Worker " + address + " unreachable: "
+												+ e.getMessage(), e);
+					}
+				}
+
+				try {
+					Thread.sleep(backoff);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+
+				backoff = Math.min(2 * backoff, MAX_BACKOFF_MILLIS);
+			}
+		}
+
+		private void close() {
+			Connection connection;
+
+			while ((connection = idle.poll()) != null) {
+				connection.close();
+			}
+		}
+	}
+
+	/**
+	 * A connection to a worker
+	 */
+	private static final class Connection {
+		private final Socket socket;		// The socket
+		private final BufferedReader input;	// Its input
+		private final Writer output;		// Its output
+
+		private Connection(final InetSocketAddress address) throws IOException {
+			socket = new Socket();
+
+			try {
+				socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+				socket.setTcpNoDelay(true);
+				socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+				input = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+																	StandardCharsets.UTF_8));
+				output = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+																	StandardCharsets.UTF_8));
+			} catch (IOException e) {
+				socket.close();
+				throw e;
+			}
+		}
+
+		private String request(final String request) throws IOException {
+			output.write(request);
+			output.write('\n');
+			output.flush();
+			final String response = input.readLine();
+
+			if (response == null) {
+				throw new EOFException("Connection closed by the worker");
+			}
+
+			return response;
+		}
+
+		private void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// nothing to do
+			}
+		}
+	}
+
+	/**
+	 * The accommodation cost of a rental unit (by name) of some shard
+	 */
+	public static final class NamedQuote {
+		private final String name;	// The name of the rental unit
+		private final double cost;	// Its accommodation cost
+
+		private NamedQuote(final String name, final double cost) {
+			this.name = name;
+			this.cost = cost;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public double getCost() {
+			return cost;
+		}
+
+		/**
+		 * Useful for inspection
+		 */
+		@Override
+		public String toString() {
+			return String.format("%s: $%.2f", name, cost);
+		}
+	}
+
+	/**
+	 * Sharded quoting starts here: local worker processes are started
+	 * (and restarted whenever they exit; see ShardWorkers) and every line
+	 * of the standard input ('yyyy/MM/dd - yyyy/MM/dd') is answered
+	 * with the 10 cheapest rental units of the whole catalogue
+	 * @param args The filename of the JSON file of the rental units, the amount
+	 * of shards and (optionally) the port of the first worker (7070 by default)
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: ShardCoordinator <rental units JSON file> <shards> [port]");
+			return;
+		}
+
+		final int port = (args.length > 2) ? Integer.parseInt(args[2]) : 7070;
+
+		try (ShardWorkers shardWorkers
+				= ShardWorkers.newShardWorkers(args[0], Integer.parseInt(args[1]), port);
+				ShardCoordinator coordinator = newShardCoordinator(shardWorkers.getAddresses());
+				BufferedReader input = new BufferedReader(
+										new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+			String line;
+
+			while ((line = input.readLine()) != null) {
+				final String[] dates = line.trim().split("\\s*-\\s*");
+
+				try {
+					final Period period = Period.makePeriod(FORMATTER.parseDate(dates[0]),
+															FORMATTER.parseDate(dates[1]));
+
+					if (!period.isValid()) {
+						System.err.println("Invalid period: " + line);
+						continue;
+					}
+
+					for (NamedQuote quote : coordinator.cheapest(period, 10)) {
+						System.out.println(quote);
+					}
+				} catch (ParseException | ArrayIndexOutOfBoundsException e) {
+					System.err.println("Could not parse line: " + line);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,258 @@
+package org.puzzlenode.puzzle07;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+import org.puzzlenode.puzzle07.util.DateFormatter;
+
+/**
+ * A worker process of the sharded mode: it loads (and compiles) only its own
+ * shard of a catalogue, i.e. the units whose names hash to it (see shardOf()),
+ * and quotes them for a ShardCoordinator over TCP. The protocol is text,
+ * one request per line and one response line per request (UTF-8):
+ * (a) "QUOTE yyyy/MM/dd yyyy/MM/dd NAME" answered by "OK COST"
+ * (b) "CHEAPEST yyyy/MM/dd yyyy/MM/dd K" answered by "OK" followed by
+ * a tab, a cost, a tab and a name for each of the K cheapest units of the shard
+ * (c) "PING" answered by "OK SHARD UNITS"
+ * and any error by "ERR MESSAGE". The costs are written in full
+ * (Double.toString()), so the coordinator merges the very costs of the worker.
+ * Every connection is served by its own (virtual, if the JVM offers them) thread
+ * @author pek
+ */
+public final class ShardWorker implements Closeable {
+	static final String QUOTE = "QUOTE";		// the commands of the protocol
+	static final String CHEAPEST = "CHEAPEST";
+	static final String PING = "PING";
+	static final String OK = "OK";				// the responses of the protocol
+	static final String ERROR = "ERR";
+	static final String UNKNOWN_UNIT = "unknown unit";	// the error of a unit of another shard
+	// a thread-safe formatter of 'yyyy/MM/dd' dates
+	private static final DateFormatter FORMATTER = new DateFormatter();
+
+	private final int shard;					// The shard of the worker
+	private final RentalUnits rentalUnits;		// The rental units of the shard
+	private final ServerSocket serverSocket;	// The socket accepting the connections
+	private final ExecutorService executor;		// The executor of the connections
+	private final BasicCostCalculator calc = new BasicCostCalculator(); // the calculator
+	private final CheapestUnits cheapestUnits = new CheapestUnits(calc); // top-k of the shard
+
+	/**
+	 * Constructor
+	 * @param shard The shard of the worker
+	 * @param rentalUnits The rental units of the shard
+	 * @param serverSocket The socket accepting the connections
+	 * @param executor The executor of the connections
+	 */
+	private ShardWorker(final int shard, final RentalUnits rentalUnits,
+						final ServerSocket serverSocket, final ExecutorService executor) {
+		this.shard = shard;
+		this.rentalUnits = rentalUnits;
+		this.serverSocket = serverSocket;
+		this.executor = executor;
+	}
+
+	/**
+	 * Factory method idiom to create a (not yet started) ShardWorker
+	 * @param inputFile The filename of the JSON file of the whole catalogue
+	 * @param shard The shard of the worker (0 to shards - 1)
+	 * @param shards The amount of shards
+	 * @param port The port to listen to; 0 for any free port
+	 * @return A new ShardWorker instance
+	 * @throws IOException If the worker cannot bind to the port
+	 */
+	public static ShardWorker newShardWorker(final String inputFile, final int shard,
+												final int shards, final int port)
+			throws IOException {
+		final RentalUnits rentalUnits
+			= RentalUnits.newRentalUnits(inputFile, name -> shardOf(name, shards) == shard);
+		final ServerSocket serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);	// a restarted worker binds to the same port at once
+		serverSocket.bind(new InetSocketAddress(port));
+		return new ShardWorker(shard, rentalUnits, serverSocket, newExecutor());
+	}
+
+	/**
+	 * Returns the shard of a rental unit
+	 * @param name The name of the rental unit
+	 * @param shards The amount of shards
+	 */
+	static int shardOf(final String name, final int shards) {
+		return Math.floorMod(name.hashCode(), shards);
+	}
+
+	/**
+	 * Returns an executor running every task on a new virtual thread
+	 * if the JVM offers them; otherwise on a new platform thread
+	 */
+	private static ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) Executors.class
+						.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Starts accepting connections
+	 */
+	public void start() {
+		final Thread acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accept();
+			}
+		}, "ShardWorker-" + shard);
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * Stops accepting connections and closes the open ones
+	 */
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Returns the port the worker listens to
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Returns the amount of rental units of the shard
+	 */
+	public int size() {
+		return rentalUnits.size();
+	}
+
+	// --- helper methods for the connections ---
+
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			try {
+				final Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						serve(socket);
+					}
+				});
+			} catch (SocketException e) {
+				// closed
+			} catch (IOException e) {
+				System.err.println("Cannot accept a connection: " + e.getMessage());
+			}
+		}
+	}
+
+	private void serve(final Socket socket) {
+		try (Socket connection = socket;
+				BufferedReader input = new BufferedReader(new InputStreamReader(
+										connection.getInputStream(), StandardCharsets.UTF_8));
+				Writer output = new BufferedWriter(new OutputStreamWriter(
+										connection.getOutputStream(), StandardCharsets.UTF_8))) {
+			String request;
+
+			while ((request = input.readLine()) != null) {
+				output.write(answer(request));
+				output.write('\n');
+				output.flush();
+			}
+		} catch (IOException e) {
+			// the coordinator has gone away
+		}
+	}
+
+	/**
+	 * Answers a request of the protocol
+	 * @param request The request line
+	 * @return The response line
+	 */
+	String answer(final String request) {
+		final String[] fields = request.split(" ", 4);
+
+		try {
+			if (PING.equals(fields[0])) {
+				return OK + " " + shard + " " + rentalUnits.size();
+			} else if (QUOTE.equals(fields[0]) && fields.length == 4) {
+				final RentalUnit rentalUnit = rentalUnits.getRentalUnit(fields[3]);
+
+				if (rentalUnit == null) {
+					return ERROR + " " + UNKNOWN_UNIT;
+				}
+
+				return OK + " " + calc.calculateCost(rentalUnit, period(fields[1], fields[2]));
+			} else if (CHEAPEST.equals(fields[0]) && fields.length == 4) {
+				final List<Quote> quotes = cheapestUnits.find(rentalUnits,
+												period(fields[1], fields[2]),
+												Integer.parseInt(fields[3]));
+				final StringBuilder response = new StringBuilder(OK);
+
+				for (Quote quote : quotes) {
+					response.append('\t').append(quote.getCost())
+							.append('\t').append(quote.getRentalUnit().getName());
+				}
+
+				return response.toString();
+			}
+		} catch (ParseException | IllegalArgumentException e) {
+			return ERROR + " " + e.getMessage();
+		}
+
+		return ERROR + " bad request";
+	}
+
+	private static Period period(final String from, final String to) throws ParseException {
+		final Period period = Period.makePeriod(FORMATTER.parseDate(from), FORMATTER.parseDate(to));
+
+		if (!period.isValid()) {
+			throw new IllegalArgumentException("invalid period " + from + " - " + to);
+		}
+
+		return period;
+	}
+
+	/**
+	 * Worker starts here
+	 * @param args The filename of the JSON file of the whole catalogue,
+	 * the shard of the worker, the amount of shards and the port to listen to
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 4) {
+			System.err.println("Usage: ShardWorker <rental units JSON file> <shard> <shards> <port>");
+			return;
+		}
+
+		final ShardWorker worker = newShardWorker(args[0], Integer.parseInt(args[1]),
+													Integer.parseInt(args[2]),
+													Integer.parseInt(args[3]));
+		// to the standard error, which the coordinator shares (not its quotes' output)
+		System.err.println(String.format("Shard %s/%s: %d rental units on port %d",
+											args[1], args[2], worker.size(), worker.getPort()));
+		worker.accept();
+	}
+
+}
@@ -0,0 +1,149 @@
+package org.puzzlenode.puzzle07;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ShardWorker processes of a catalogue on the local machine, one per shard,
+ * listening to consecutive ports. They run on the same java and class path
+ * as this JVM, and every worker that exits (or is killed) is started again
+ * on its port, until the ShardWorkers are closed
+ * @author pek
+ */
+public final class ShardWorkers implements Closeable {
+	private final String inputFile;		// The filename of the JSON file of the catalogue
+	private final int port;				// The port of the first worker
+	private final Process[] processes;	// The current process of every shard
+	// Whether or not the workers are stopped; it is set (and a process is started)
+	// only while holding the processes, so no worker is started after close()
+	private volatile boolean closed = false;
+
+	/**
+	 * Constructor
+	 * @param inputFile The filename of the JSON file of the catalogue
+	 * @param shards The amount of shards
+	 * @param port The port of the first worker
+	 */
+	private ShardWorkers(final String inputFile, final int shards, final int port) {
+		this.inputFile = inputFile;
+		this.port = port;
+		this.processes = new Process[shards];
+	}
+
+	/**
+	 * Factory method idiom to start the ShardWorker processes of a catalogue
+	 * @param inputFile The filename of the JSON file of the catalogue
+	 * @param shards The amount of shards
+	 * @param port The port of the first worker (shard i listens to port + i)
+	 * @return A new ShardWorkers instance
+	 * @throws IOException If a process cannot be started
+	 */
+	public static ShardWorkers newShardWorkers(final String inputFile, final int shards,
+												final int port) throws IOException {
+		final ShardWorkers shardWorkers = new ShardWorkers(inputFile, shards, port);
+
+		try {
+			for (int shard = 0; shard < shards; shard++) {
+				shardWorkers.start(shard);
+			}
+		} catch (IOException e) {
+			shardWorkers.close();
+			throw e;
+		}
+
+		return shardWorkers;
+	}
+
+	/**
+	 * Returns the addresses of the workers, by shard
+	 */
+	public List<InetSocketAddress> getAddresses() {
+		final List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+
+		for (int shard = 0; shard < processes.length; shard++) {
+			addresses.add(new InetSocketAddress("localhost", port + shard));
+		}
+
+		return addresses;
+	}
+
+	/**
+	 * Kills the process of a shard, which is then started again
+	 * (e.g. to try the recovery of a coordinator)
+	 * @param shard The shard
+	 */
+	public void restart(final int shard) {
+		final Process process;
+
+		synchronized (processes) {
+			process = processes[shard];
+		}
+
+		process.destroyForcibly();
+	}
+
+	/**
+	 * Stops all worker processes
+	 */
+	@Override
+	public void close() {
+		synchronized (processes) {
+			closed = true;
+
+			for (Process process : processes) {
+				if (process != null) {
+					process.destroy();
+				}
+			}
+		}
+	}
+
+	// --- helper methods for the processes ---
+
+	private void start(final int shard) throws IOException {
+		final String java = System.getProperty("java.home") + File.separator + "bin"
+							+ File.separator + "java";
+		final Process process;
+
+		synchronized (processes) {
+			if (closed) {
+				return;
+			}
+
+			process = new ProcessBuilder(java,
+							"-cp", System.getProperty("java.class.path"),
+							ShardWorker.class.getName(), inputFile,
+							String.valueOf(shard), String.valueOf(processes.length),
+							String.valueOf(port + shard))
+							.inheritIO()
+							.start();
+			processes[shard] = process;
+		}
+
+		process.onExit().thenRun(new Runnable() {
+			@Override
+			public void run() {
+				restarted(shard);
+			}
+		});
+	}
+
+	private void restarted(final int shard) {
+		if (closed) {
+			return;
+		}
+
+		System.err.println("Shard worker " + shard + " exited; starting it again");
+
+		try {
+			start(shard);
+		} catch (IOException e) {
+			System.err.println("Cannot start shard worker " + shard + ": " + e.getMessage());
+		}
+	}
+
+}
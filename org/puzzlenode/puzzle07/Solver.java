@@ -1,8 +1,12 @@
 package org.puzzlenode.puzzle07;
 
+import java.util.Arrays;
+
+import org.puzzlenode.puzzle07.metrics.Metrics;
 import org.puzzlenode.puzzle07.rentalunits.Period;
 import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
 import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
+import org.puzzlenode.puzzle07.rentalunits.ScheduleStatistics;
 
 /**
  * A solution for problem 7 (aka 'Blue Hawaii') of 'Puzzle Node'
@@ -12,9 +16,13 @@ import org.puzzlenode.puzzle07.rentalunits.RentalUnits;
  * @author pek
  */
 public class Solver {
+	private static final String METRICS_FLAG = "--metrics";	// asks for the metrics report
 
-	// a BasicCostCalculator instance for the calculations
-	private final CostCalculator calc = new BasicCostCalculator();
+	// the metrics of loading and quoting
+	private final Metrics metrics = Metrics.newMetrics("Solver");
+	// a (metered) BasicCostCalculator instance for the calculations
+	private final MeteringCostCalculator calc
+		= new MeteringCostCalculator(new BasicCostCalculator(), metrics);
 	
 	/**
 	 * It solves the problem
@@ -24,20 +32,30 @@ public class Solver {
 	 * @param periodInputFileName The filename of the text file containing
 	 * the data for the reservation period 
 	 */
-	private void solve(final String title, 
+	void solve(final String title, 
 							final String rentalUnitsInputFileName, 
 							final String periodInputFileName) {
 		printOpening(title);
 		
-		final RentalUnits rentalUnits = RentalUnits.newRentalUnits(rentalUnitsInputFileName);
-		final Period period = Period.newPeriod(periodInputFileName);
+		final RentalUnits rentalUnits = metrics.time("load.rentalUnits", 
+									() -> RentalUnits.newRentalUnits(rentalUnitsInputFileName));
+		final Period period = metrics.time("load.period", 
+									() -> Period.newPeriod(periodInputFileName));
+		final ScheduleStatistics statistics = rentalUnits.getScheduleStatistics();
+		metrics.counter("load.units").add(statistics.getUnits());
+		metrics.counter("load.schedules").add(statistics.getSchedules());
+		metrics.counter("load.bytesSaved").add(statistics.getBytesSaved());
+		final long before = System.nanoTime();
+		
+		final double[] costs = calc.calculateCosts(rentalUnits, period, null);
 		
-		for (RentalUnit rentalUnit : rentalUnits.getRentalUnits()) {
-			double cost = calc.calculateCost(rentalUnit, period);
-			String msg = String.format("%s: $%.2f", rentalUnit.getName(), cost);
+		for (int unit = 0; unit < costs.length; unit++) {
+			final RentalUnit rentalUnit = rentalUnits.getRentalUnit(unit);
+			String msg = String.format("%s: $%.2f", rentalUnit.getName(), costs[unit]);
 			System.out.println(msg);
 		}
 		
+		metrics.histogram("solve.output").record(System.nanoTime() - before);
 		printClosing();
 	}
 
@@ -62,11 +80,20 @@ public class Solver {
 
 	
 	/**
-	 * Application starts here
-	 * @param args No arguments needed
+	 * Returns the metrics of loading and quoting
+	 */
+	Metrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Application starts here; the metrics are exposed through JMX meanwhile
+	 * and, if asked, printed to the standard error at the end
+	 * @param args Optionally, METRICS_FLAG to print the metrics
 	 */	
 	public static void main(String[] args) {
 		Solver solver = new Solver();
+		solver.getMetrics().register();
 		solver.solve("Sample Problem", 
 					"/home/pek/workspace/puzzlenode07/io/sample_vacation_rentals.json",
 					"/home/pek/workspace/puzzlenode07/io/sample_input.txt");
@@ -74,6 +101,10 @@ public class Solver {
 		solver.solve("Main Problem", 
 					"/home/pek/workspace/puzzlenode07/io/vacation_rentals.json",
 					"/home/pek/workspace/puzzlenode07/io/input.txt");
+		
+		if (Arrays.asList(args).contains(METRICS_FLAG)) {
+			System.err.print(solver.getMetrics().getReport());
+		}
 	}
 	
 }
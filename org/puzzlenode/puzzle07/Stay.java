@@ -0,0 +1,54 @@
+package org.puzzlenode.puzzle07;
+
+import org.puzzlenode.puzzle07.rentalunits.Period;
+import org.puzzlenode.puzzle07.rentalunits.RentalUnit;
+import org.puzzlenode.puzzle07.util.DateFormatter;
+
+/**
+ * A reservation period in a rental unit and its accommodation cost
+ * (e.g. the longest stay affordable with some budget)
+ * @author pek
+ */
+public final class Stay {
+	private static final DateFormatter FORMATTER = new DateFormatter(); // a DateFormatter instance
+
+	private final RentalUnit rentalUnit;	// The rental unit
+	private final Period period;			// The reservation period
+	private final double cost;				// Its accommodation cost
+
+	/**
+	 * Constructor
+	 * @param rentalUnit The rental unit
+	 * @param period The reservation period
+	 * @param cost Its accommodation cost
+	 */
+	Stay(final RentalUnit rentalUnit, final Period period, final double cost) {
+		this.rentalUnit = rentalUnit;
+		this.period = period;
+		this.cost = cost;
+	}
+
+	// --- getters ---
+
+	public RentalUnit getRentalUnit() {
+		return rentalUnit;
+	}
+
+	public Period getPeriod() {
+		return period;
+	}
+
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * Useful for inspection
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s: %d nights (%s - %s), $%.2f", rentalUnit.getName(),
+								period.getNights(), FORMATTER.formatDate(period.getFrom()),
+								FORMATTER.formatDate(period.getTo()), cost);
+	}
+}
@@ -0,0 +1,96 @@
+package org.puzzlenode.puzzle07;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import org.puzzlenode.puzzle07.rentalunits.RateColumns;
+
+/**
+ * The SIMD kernel of the PortfolioCostCalculator, on the Vector API:
+ * as many units at once as the lanes of the widest vectors of the CPU,
+ * and the remaining units (fewer than the lanes) by the scalar kernel.
+ * It is loaded reflectively, so that the rest works without the
+ * jdk.incubator.vector module
+ * @author pek
+ */
+final class VectorPortfolioKernel implements PortfolioCostCalculator.Kernel {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	private final PortfolioCostCalculator.Kernel tailKernel
+		= new PortfolioCostCalculator.ScalarKernel(); // the kernel of the remaining units
+
+	@Override
+	public int getLanes() {
+		return SPECIES.length();
+	}
+
+	@Override
+	public void calculateCosts(final RateColumns columns,
+								final int first, final int last, final boolean leapYear,
+								final double[] costs, final int fromUnit, final int toUnit) {
+		final double[] firstRates = columns.getCumulativeRates(first, leapYear);
+		final double[] lastRates = columns.getCumulativeRates(last, leapYear);
+		final double[] lastDayRates = columns.getLastDayRates(last, leapYear);
+		final double[] fees = columns.getCleaningFees();
+		final int bound = fromUnit + SPECIES.loopBound(toUnit - fromUnit);
+		int unit = fromUnit;
+
+		for (; unit < bound; unit += SPECIES.length()) {
+			DoubleVector.fromArray(SPECIES, lastRates, unit)
+				.sub(DoubleVector.fromArray(SPECIES, firstRates, unit))
+				.add(DoubleVector.fromArray(SPECIES, lastDayRates, unit))
+				.add(DoubleVector.fromArray(SPECIES, fees, unit))
+				.mul(PortfolioCostCalculator.TAXED)
+				.intoArray(costs, unit);
+		}
+
+		tailKernel.calculateCosts(columns, first, last, leapYear, costs, unit, toUnit);
+	}
+
+	@Override
+	public void calculateCosts(final RateColumns columns, final int first,
+								final int lastOfFromYear, final boolean leapFromYear,
+								final int leapYears, final int otherYears,
+								final int last, final boolean leapToYear,
+								final double[] costs, final int fromUnit, final int toUnit) {
+		final double[] firstRates = columns.getCumulativeRates(first, leapFromYear);
+		final double[] lastOfFromYearRates
+			= columns.getCumulativeRates(lastOfFromYear, leapFromYear);
+		final double[] lastOfFromYearDayRates
+			= columns.getLastDayRates(lastOfFromYear, leapFromYear);
+		final double[] leapYearCosts = columns.getYearCosts(true);
+		final double[] yearCosts = columns.getYearCosts(false);
+		final double[] firstOfToYearRates = columns.getCumulativeRates(0, leapToYear);
+		final double[] lastRates = columns.getCumulativeRates(last, leapToYear);
+		final double[] lastDayRates = columns.getLastDayRates(last, leapToYear);
+		final double[] fees = columns.getCleaningFees();
+		final int bound = fromUnit + SPECIES.loopBound(toUnit - fromUnit);
+		int unit = fromUnit;
+
+		for (; unit < bound; unit += SPECIES.length()) {
+			// the operations (and their order) of the scalar kernel, lane-wise
+			final DoubleVector years = DoubleVector.fromArray(SPECIES, leapYearCosts, unit)
+											.mul(leapYears)
+											.add(DoubleVector.fromArray(SPECIES, yearCosts, unit)
+													.mul(otherYears));
+			final DoubleVector lastYear = DoubleVector.fromArray(SPECIES, lastRates, unit)
+											.sub(DoubleVector.fromArray(SPECIES,
+																firstOfToYearRates, unit))
+											.add(DoubleVector.fromArray(SPECIES,
+																lastDayRates, unit));
+			DoubleVector.fromArray(SPECIES, lastOfFromYearRates, unit)
+				.sub(DoubleVector.fromArray(SPECIES, firstRates, unit))
+				.add(DoubleVector.fromArray(SPECIES, lastOfFromYearDayRates, unit))
+				.add(years)
+				.add(lastYear)
+				.add(DoubleVector.fromArray(SPECIES, fees, unit))
+				.mul(PortfolioCostCalculator.TAXED)
+				.intoArray(costs, unit);
+		}
+
+		tailKernel.calculateCosts(columns, first, lastOfFromYear, leapFromYear,
+									leapYears, otherYears, last, leapToYear,
+									costs, unit, toUnit);
+	}
+
+}
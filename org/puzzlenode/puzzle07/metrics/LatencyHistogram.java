@@ -0,0 +1,131 @@
+package org.puzzlenode.puzzle07.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies (in nanoseconds) in the style of HdrHistogram:
+ * every power of two is split in 32 linear buckets, so that any recorded value
+ * is reported within ~3% of its true value, from 1 ns up to Long.MAX_VALUE,
+ * in a fixed array of counts. Recording is lock-free and allocation-free
+ * @author pek
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 5;	// 32 buckets per power of two
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BUCKET_BITS);
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS); // counts per bucket
+	private final LongAdder count = new LongAdder();	// the amount of recorded values
+	private final LongAdder total = new LongAdder();	// the sum of recorded values
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0L); // the maximum one
+
+	/**
+	 * Constructor
+	 */
+	private LatencyHistogram() {
+	}
+
+	/**
+	 * Factory method idiom to create an empty LatencyHistogram
+	 * @return A new LatencyHistogram instance
+	 */
+	public static LatencyHistogram newLatencyHistogram() {
+		return new LatencyHistogram();
+	}
+
+	/**
+	 * Records a latency
+	 * @param nanos The latency (ns); negative latencies count as 0
+	 */
+	public void record(final long nanos) {
+		final long value = Math.max(0L, nanos);
+		counts.incrementAndGet(bucket(value));
+		count.increment();
+		total.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * Returns the amount of recorded latencies
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Returns the mean of the recorded latencies (ns); 0 if none
+	 */
+	public double getMean() {
+		final long n = count.sum();
+		return (n == 0) ? 0.0 : (double) total.sum() / n;
+	}
+
+	/**
+	 * Returns the maximum recorded latency (ns)
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns a percentile of the recorded latencies
+	 * @param percentile The percentile (0.0 to 100.0)
+	 * @return The (upper end of the bucket of the) latency (ns) that
+	 * the given percentage of the recorded latencies do not exceed; 0 if none
+	 */
+	public long getPercentile(final double percentile) {
+		long remaining = (long) Math.ceil(count.sum() * Math.min(100.0, percentile) / 100.0);
+
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			remaining -= counts.get(bucket);
+
+			if (remaining <= 0 && counts.get(bucket) > 0) {
+				return Math.min(highestValue(bucket), max.get());
+			}
+		}
+
+		return max.get();
+	}
+
+	/**
+	 * Useful for inspection
+	 */
+	@Override
+	public String toString() {
+		return String.format("count %d, mean %.0f ns, p50 %d ns, p99 %d ns, p99.9 %d ns, max %d ns",
+								getCount(), getMean(), getPercentile(50.0), getPercentile(99.0),
+								getPercentile(99.9), getMax());
+	}
+
+	// --- helper methods for the buckets ---
+
+	/**
+	 * Returns the bucket of a (non-negative) value: values below 32
+	 * have a bucket each; a value from 2^k up to 2^(k+1) (k >= 5)
+	 * falls in one of 32 buckets of width 2^(k-5)
+	 */
+	private static int bucket(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return SUB_BUCKETS * (shift + 1) + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * Returns the highest value of a bucket
+	 */
+	private static long highestValue(final int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+
+		final int shift = bucket / SUB_BUCKETS - 1;
+		final long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+}
@@ -0,0 +1,233 @@
+package org.puzzlenode.puzzle07.metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A registry of named counters and latency histograms, created on first use.
+ * Counters are LongAdders, so that threads do not contend on them.
+ * The allocations of a timed piece of work are measured (on HotSpot)
+ * by the bytes allocated by the current thread.
+ * The registry is exposed through JMX (see register()) and
+ * as a text report, which may be printed periodically (see startReports())
+ * @author pek
+ */
+public final class Metrics implements MetricsMXBean {
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final boolean ALLOCATIONS = isAllocationMeasurable(); // whether on HotSpot
+
+	private final String name;	// The name of the metrics (e.g. of the application)
+	private final ConcurrentHashMap<String, LongAdder> counters
+		= new ConcurrentHashMap<String, LongAdder>();			// the counters by name
+	private final ConcurrentHashMap<String, LatencyHistogram> histograms
+		= new ConcurrentHashMap<String, LatencyHistogram>();	// the histograms by name
+
+	/**
+	 * Constructor
+	 * @param name The name of the metrics
+	 */
+	private Metrics(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Factory method idiom to create an empty Metrics registry
+	 * @param name The name of the metrics (e.g. of the application)
+	 * @return A new Metrics instance
+	 */
+	public static Metrics newMetrics(final String name) {
+		return new Metrics(name);
+	}
+
+	/**
+	 * Returns the counter with a given name; it is created on first use
+	 * @param counterName The name of the counter
+	 */
+	public LongAdder counter(final String counterName) {
+		final LongAdder counter = counters.get(counterName);
+		return (counter != null) ? counter : counters.computeIfAbsent(counterName, k -> new LongAdder());
+	}
+
+	/**
+	 * Returns the latency histogram with a given name; it is created on first use
+	 * @param histogramName The name of the histogram
+	 */
+	public LatencyHistogram histogram(final String histogramName) {
+		final LatencyHistogram histogram = histograms.get(histogramName);
+		return (histogram != null)
+				? histogram
+				: histograms.computeIfAbsent(histogramName, k -> LatencyHistogram.newLatencyHistogram());
+	}
+
+	/**
+	 * Runs a piece of work (e.g. loading a file), recording its latency
+	 * in the histogram with a given name and its allocations
+	 * in the counter of the same name plus ".allocatedBytes"
+	 * @param workName The name of the work
+	 * @param work The work
+	 * @return The result of the work
+	 */
+	public <T> T time(final String workName, final Supplier<T> work) {
+		final long allocatedBefore = allocatedBytes();
+		final long before = System.nanoTime();
+
+		try {
+			return work.get();
+		} finally {
+			histogram(workName).record(System.nanoTime() - before);
+			recordAllocatedBytes(workName, allocatedBefore);
+		}
+	}
+
+	/**
+	 * Adds the bytes allocated by the current thread since a given point
+	 * to the counter of a given name plus ".allocatedBytes"
+	 * @param workName The name of the work
+	 * @param allocatedBefore The bytes allocated by the current thread
+	 * before the work (see allocatedBytes()); negative if unknown
+	 */
+	public void recordAllocatedBytes(final String workName, final long allocatedBefore) {
+		final long allocatedAfter = allocatedBytes();
+
+		if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+			counter(workName + ".allocatedBytes").add(allocatedAfter - allocatedBefore);
+		}
+	}
+
+	/**
+	 * Returns the bytes allocated so far by the current thread;
+	 * -1 if unknown (i.e. not on HotSpot, or on a virtual thread)
+	 */
+	public static long allocatedBytes() {
+		if (!ALLOCATIONS) {
+			return -1L;
+		}
+
+		return ((com.sun.management.ThreadMXBean) THREADS)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Registers these metrics as an MXBean, named
+	 * "org.puzzlenode.puzzle07:type=Metrics,name=NAME"
+	 * @return Whether or not the metrics were registered
+	 */
+	public boolean register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+				new ObjectName("org.puzzlenode.puzzle07:type=Metrics,name=" + ObjectName.quote(name)));
+			return true;
+		} catch (JMException e) {
+			System.err.println("Cannot register metrics: " + name);
+			System.err.println(e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Starts printing the report of these metrics periodically
+	 * @param output The stream to print to
+	 * @param periodSeconds The period (seconds)
+	 * @return The (daemon) scheduler of the reports; shut it down to stop them
+	 */
+	public ScheduledExecutorService startReports(final PrintStream output, final long periodSeconds) {
+		final ScheduledExecutorService scheduler
+			= Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "Metrics " + name);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				output.print(getReport());
+				output.flush();
+			}
+		}, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+		return scheduler;
+	}
+
+	// --- the management interface ---
+
+	@Override
+	public Map<String, Long> getCounters() {
+		final Map<String, Long> values = new TreeMap<String, Long>();
+
+		for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+			values.put(counter.getKey(), counter.getValue().sum());
+		}
+
+		return values;
+	}
+
+	@Override
+	public Map<String, Long> getP99Latencies() {
+		final Map<String, Long> values = new TreeMap<String, Long>();
+
+		for (Map.Entry<String, LatencyHistogram> histogram : histograms.entrySet()) {
+			values.put(histogram.getKey(), histogram.getValue().getPercentile(99.0));
+		}
+
+		return values;
+	}
+
+	@Override
+	public String getReport() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("--- metrics of ").append(name).append(" ---").append("\n");
+
+		for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+			sb.append(String.format("  %-32s %d", counter.getKey(), counter.getValue())).append("\n");
+		}
+
+		for (Map.Entry<String, LatencyHistogram> histogram
+				: new TreeMap<String, LatencyHistogram>(histograms).entrySet()) {
+			sb.append(String.format("  %-32s %s", histogram.getKey(), histogram.getValue()))
+				.append("\n");
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Useful for inspection
+	 */
+	@Override
+	public String toString() {
+		return getReport();
+	}
+
+	private static boolean isAllocationMeasurable() {
+		try {
+			if (THREADS instanceof com.sun.management.ThreadMXBean) {
+				final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+
+				if (threads.isThreadAllocatedMemorySupported()) {
+					threads.setThreadAllocatedMemoryEnabled(true);
+					return true;
+				}
+			}
+		} catch (LinkageError | UnsupportedOperationException e) {
+			// not on HotSpot
+		}
+
+		return false;
+	}
+
+}
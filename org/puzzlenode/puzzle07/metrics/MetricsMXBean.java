@@ -0,0 +1,26 @@
+package org.puzzlenode.puzzle07.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of Metrics, exposed through JMX
+ * @author pek
+ */
+public interface MetricsMXBean {
+
+	/**
+	 * Returns the values of all counters, by name
+	 */
+	Map<String, Long> getCounters();
+
+	/**
+	 * Returns the 99th percentiles (ns) of all latency histograms, by name
+	 */
+	Map<String, Long> getP99Latencies();
+
+	/**
+	 * Returns a text report of all counters and latency histograms
+	 */
+	String getReport();
+
+}
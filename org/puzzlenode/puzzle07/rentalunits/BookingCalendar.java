@@ -0,0 +1,88 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The booked nights of a rental unit. Bookings are kept as disjoint,
+ * coalesced ranges of nights in a sorted map (check-in date to check-out date,
+ * both epoch-days), so that both booking and checking the availability
+ * of a period cost O(log n) for n ranges, without scanning them.
+ * It is safe to use from any number of threads
+ * @author pek
+ */
+public final class BookingCalendar {
+	private final TreeMap<Integer, Integer> bookings
+		= new TreeMap<Integer, Integer>();	// check-in date to check-out date
+
+	/**
+	 * Constructor
+	 */
+	private BookingCalendar() {
+	}
+
+	/**
+	 * Factory method idiom to create an empty BookingCalendar
+	 * @return A new BookingCalendar instance
+	 */
+	static BookingCalendar newBookingCalendar() {
+		return new BookingCalendar();
+	}
+
+	/**
+	 * Checks whether all nights of a given period are free
+	 * @param period The given period
+	 * @return It returns \a true if no night of the period is booked;
+	 * \a false otherwise
+	 */
+	public synchronized boolean isAvailable(final Period period) {
+		final Map.Entry<Integer, Integer> before = bookings.lowerEntry(period.getTo());
+		return before == null || before.getValue() <= period.getFrom();
+	}
+
+	/**
+	 * Books the nights of a given period, if they are all free
+	 * @param period The given period
+	 * @return It returns \a true if the period was booked;
+	 * \a false if some night of it was already booked
+	 */
+	public synchronized boolean book(final Period period) {
+		if (!isAvailable(period)) {
+			return false;
+		}
+
+		int checkIn = period.getFrom();
+		int checkOut = period.getTo();
+		final Map.Entry<Integer, Integer> before = bookings.lowerEntry(checkIn);
+		final Integer after = bookings.get(checkOut);
+
+		// coalesce with adjacent bookings
+		if (before != null && before.getValue() == checkIn) {
+			checkIn = before.getKey();
+		}
+
+		if (after != null) {
+			bookings.remove(checkOut);
+			checkOut = after;
+		}
+
+		bookings.put(checkIn, checkOut);
+		return true;
+	}
+
+	/**
+	 * Returns the amount of (coalesced) ranges of booked nights
+	 */
+	public synchronized int size() {
+		return bookings.size();
+	}
+
+	/**
+	 * Useful for inspection
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("%d booked ranges", bookings.size());
+	}
+
+}
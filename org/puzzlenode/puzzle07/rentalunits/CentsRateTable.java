@@ -0,0 +1,150 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.util.List;
+
+import org.puzzlenode.puzzle07.util.DateFactory;
+
+/**
+ * The seasonal rates of a rental unit compiled into day-of-year tables
+ * of whole cents (longs), for exact fixed-point pricing; otherwise the same
+ * as RateTable (cumulative nightly rates, plus the rates of seasons ending
+ * on each day). Every rate is rounded (half-up) to a whole cent once,
+ * when compiled; from then on all arithmetic is exact, so a cost does not
+ * depend on the order of the additions, nor on the platform
+ * @author pek
+ */
+public final class CentsRateTable {
+	private static final DateFactory DATE_FACTORY = new DateFactory(); // a DateFactory instance
+	private static final int NON_LEAP_YEAR = 1970;	// a reference non-leap year
+	private static final int LEAP_YEAR = 1972;		// a reference leap year
+
+	private final long[] cumulativeCents;		// cumulative rates of a non-leap year
+	private final long[] lastDayCents;			// rates of seasons ending on each day
+	private final long[] leapCumulativeCents;	// cumulative rates of a leap year
+	private final long[] leapLastDayCents;		// rates of seasons ending on each day
+	private final long yearCents;				// the cost of a whole non-leap year
+	private final long leapYearCents;			// the cost of a whole leap year
+
+	/**
+	 * Constructor
+	 * @param cumulativeCents The cumulative rates of a non-leap year
+	 * @param lastDayCents The rates of seasons ending on each day of a non-leap year
+	 * @param leapCumulativeCents The cumulative rates of a leap year
+	 * @param leapLastDayCents The rates of seasons ending on each day of a leap year
+	 */
+	private CentsRateTable (final long[] cumulativeCents,
+							final long[] lastDayCents,
+							final long[] leapCumulativeCents,
+							final long[] leapLastDayCents) {
+		this.cumulativeCents = cumulativeCents;
+		this.lastDayCents = lastDayCents;
+		this.leapCumulativeCents = leapCumulativeCents;
+		this.leapLastDayCents = leapLastDayCents;
+		this.yearCents = calculateCents(0, lastDayCents.length - 1, false);
+		this.leapYearCents = calculateCents(0, leapLastDayCents.length - 1, true);
+	}
+
+	/**
+	 * Factory method idiom to compile a CentsRateTable from given seasonal rates
+	 * @param seasonalRates The given seasonal rates
+	 * @return A new CentsRateTable instance
+	 */
+	static CentsRateTable newCentsRateTable (final List<SeasonalRate> seasonalRates) {
+		final int days = DATE_FACTORY.createLastDateOfYear(NON_LEAP_YEAR)
+							- DATE_FACTORY.createFirstDateOfYear(NON_LEAP_YEAR) + 1;
+		final long[] lastDayCents = new long[days];
+		final long[] leapLastDayCents = new long[days + 1];
+		final long[] cumulativeCents = compile(seasonalRates, NON_LEAP_YEAR, lastDayCents);
+		final long[] leapCumulativeCents = compile(seasonalRates, LEAP_YEAR, leapLastDayCents);
+		return new CentsRateTable(cumulativeCents, lastDayCents,
+									leapCumulativeCents, leapLastDayCents);
+	}
+
+	/**
+	 * Rounds (half-up) an amount to whole cents
+	 * @param amount The amount
+	 * @return The amount in cents
+	 */
+	public static long toCents (final double amount) {
+		return Math.round(amount * 100.0);
+	}
+
+	/**
+	 * Helper method for the above factory method; It compiles the seasonal
+	 * rates for a given reference year (see RateTable)
+	 * @param seasonalRates The given seasonal rates
+	 * @param year The given reference year
+	 * @param lastDayCents The rates of seasons ending on each day (to fill in)
+	 * @return The cumulative rates of the given year
+	 */
+	private static long[] compile (final List<SeasonalRate> seasonalRates,
+									final int year,
+									final long[] lastDayCents) {
+		final int firstOfYear = DATE_FACTORY.createFirstDateOfYear(year);
+		final int lastDay = lastDayCents.length - 1;
+		final long[] dayCents = new long[lastDayCents.length];
+
+		for (SeasonalRate seasonalRate : seasonalRates) {
+			final long cents = toCents(seasonalRate.getRate());
+			final int first = DATE_FACTORY.createDateOfYear(seasonalRate.getStart(), year)
+								- firstOfYear;
+			final int last = DATE_FACTORY.createDateOfYear(seasonalRate.getEnd(), year)
+								- firstOfYear;
+
+			if (last >= first) {
+				addCents(dayCents, first, last, cents);
+				lastDayCents[last] += cents;
+			} else {
+				// a season wrapping across the end of the year
+				addCents(dayCents, 0, last, cents);
+				addCents(dayCents, first, lastDay, cents);
+				lastDayCents[last] += cents;
+				lastDayCents[lastDay] += cents;
+			}
+		}
+
+		final long[] cumulativeCents = new long[dayCents.length + 1];
+
+		for (int day = 0; day < dayCents.length; day++) {
+			cumulativeCents[day + 1] = cumulativeCents[day] + dayCents[day];
+		}
+
+		return cumulativeCents;
+	}
+
+	/**
+	 * Adds a rate to a range of days; a plain loop the JIT vectorises
+	 */
+	private static void addCents (final long[] dayCents,
+									final int first, final int last,
+									final long cents) {
+		for (int day = first; day <= last; day++) {
+			dayCents[day] += cents;
+		}
+	}
+
+	/**
+	 * Returns the cost (cents) of the overnights of a whole year
+	 * @param leapYear Whether or not the year is a leap year
+	 */
+	public long calculateYearCents (final boolean leapYear) {
+		return leapYear ? leapYearCents : yearCents;
+	}
+
+	/**
+	 * Calculates and returns the cost (cents) of the overnights for a given range
+	 * of days within a year
+	 * @param first The first day of the range (zero-based day of the year)
+	 * @param last The last day of the range (zero-based day of the year)
+	 * @param leapYear Whether or not the range lies in a leap year
+	 */
+	public long calculateCents (final int first, final int last, final boolean leapYear) {
+		if (leapYear) {
+			return leapCumulativeCents[last] - leapCumulativeCents[first]
+					+ leapLastDayCents[last];
+		}
+
+		return cumulativeCents[last] - cumulativeCents[first] + lastDayCents[last];
+	}
+
+}
@@ -0,0 +1,192 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Rental Units of a JSON input file (or of a snapshot of it), loaded on demand.
+ * One scan of the (memory-mapped) file indexes the names of the rental units;
+ * a rental unit is parsed and compiled only on first access and is kept
+ * in a bounded cache of the least recently used ones. So the startup time
+ * and the memory held depend on the rental units actually used (and on
+ * the index), not on the size of the catalogue.
+ * A rental unit that is evicted and used again is parsed again: it is a new
+ * RentalUnit instance, and the seasonal rates of the cached rental units
+ * are not shared (see ScheduleInterner). Their booked nights are kept apart
+ * from the cache, by position, from the first access of every rental unit on;
+ * so every instance of a rental unit shares the same BookingCalendar, and
+ * the nights booked on an evicted instance are never lost
+ * @author pek
+ */
+public final class LazyRentalUnits {
+	private final Loader loader;	// The loader of the rental units of the file
+	private final Map<String, Integer> indexByName;	// The positions of the units, by name
+	private final Map<Integer, RentalUnit> cache;	// The loaded units (least recently used first)
+	private final Map<Integer, BookingCalendar> calendars
+		= new HashMap<Integer, BookingCalendar>();	// The booked nights of the units accessed
+
+	/**
+	 * Loads the rental units of a file by position
+	 */
+	interface Loader {
+
+		/**
+		 * Returns the names of the rental units of the file, by position
+		 */
+		List<String> getNames();
+
+		/**
+		 * Parses and returns the rental unit at a given position
+		 * @param index The position of the rental unit
+		 * @return A new RentalUnit instance; null if it cannot be parsed
+		 */
+		RentalUnit load(int index);
+	}
+
+	/**
+	 * Constructor
+	 * @param loader The loader of the rental units of the file
+	 * @param capacity The maximum amount of cached rental units
+	 */
+	@SuppressWarnings("serial")
+	private LazyRentalUnits(final Loader loader, final int capacity) {
+		final List<String> names = loader.getNames();
+		this.loader = loader;
+		this.indexByName = new HashMap<String, Integer>(names.size() * 2);
+		this.cache = new LinkedHashMap<Integer, RentalUnit>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Integer, RentalUnit> eldest) {
+				return size() > capacity;
+			}
+		};
+
+		for (int index = 0; index < names.size(); index++) {
+			indexByName.put(names.get(index), index);
+		}
+	}
+
+	/**
+	 * Factory method idiom to index the rental units of a given JSON file
+	 * @param inputFile The filename of the JSON/text file to map and index
+	 * @param capacity The maximum amount of cached rental units
+	 * @return A new LazyRentalUnits instance; null if the file
+	 * cannot be read or indexed
+	 */
+	public static LazyRentalUnits newLazyRentalUnits(final String inputFile, final int capacity) {
+		final Loader loader = MappedJsonLoader.newMappedJsonLoader(inputFile);
+		return (loader == null) ? null : new LazyRentalUnits(loader, Math.max(1, capacity));
+	}
+
+	/**
+	 * Factory method idiom to index the rental units of a given JSON file
+	 * through a binary snapshot of it: the snapshot is used if it is up to date;
+	 * otherwise the JSON file itself is indexed (and no snapshot is written,
+	 * since that takes all rental units; see RentalUnits.newRentalUnits(String, String))
+	 * @param inputFile The filename of the JSON/text file
+	 * @param snapshotFile The filename of the snapshot of the JSON file
+	 * @param capacity The maximum amount of cached rental units
+	 * @return A new LazyRentalUnits instance; null if neither file
+	 * can be read or indexed
+	 */
+	public static LazyRentalUnits newLazyRentalUnits(final String inputFile,
+														final String snapshotFile,
+														final int capacity) {
+		final Loader loader = RentalUnitsSnapshot.map(snapshotFile, inputFile);
+
+		if (loader == null) {
+			return newLazyRentalUnits(inputFile, capacity);
+		}
+
+		return new LazyRentalUnits(loader, Math.max(1, capacity));
+	}
+
+	/**
+	 * Returns the amount of Rental Units of the file
+	 */
+	public int size() {
+		return loader.getNames().size();
+	}
+
+	/**
+	 * Returns the name of the Rental Unit at a given position (it is not loaded)
+	 * @param index The position of the Rental Unit
+	 */
+	public String getName(final int index) {
+		return loader.getNames().get(index);
+	}
+
+	/**
+	 * Returns the Rental Unit at a given position; it is loaded on a miss
+	 * @param index The position of the Rental Unit
+	 * @return The Rental Unit; null if it cannot be parsed
+	 */
+	public RentalUnit getRentalUnit(final int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+
+		synchronized (cache) {
+			final RentalUnit rentalUnit = cache.get(index);
+
+			if (rentalUnit != null) {
+				return rentalUnit;
+			}
+		}
+
+		final RentalUnit loaded = loader.load(index);	// parsed outside the lock
+
+		if (loaded == null) {
+			return null;
+		}
+
+		synchronized (cache) {
+			final RentalUnit cached = cache.get(index);
+
+			if (cached != null) {
+				return cached;	// one instance while cached
+			}
+
+			BookingCalendar calendar = calendars.get(index);
+
+			if (calendar == null) {
+				calendar = loaded.getBookingCalendar();
+				calendars.put(index, calendar);
+			}
+
+			final RentalUnit rentalUnit = loaded.withBookingCalendar(calendar);
+			cache.put(index, rentalUnit);
+			return rentalUnit;
+		}
+	}
+
+	/**
+	 * Returns the Rental Unit with a given name; it is loaded on a miss
+	 * @param name The name of the Rental Unit
+	 * @return The (last) Rental Unit with the name; null if there is none
+	 * (or if it cannot be parsed)
+	 */
+	public RentalUnit getRentalUnit(final String name) {
+		final Integer index = indexByName.get(name);
+		return (index == null) ? null : getRentalUnit(index);
+	}
+
+	/**
+	 * Returns the amount of Rental Units currently loaded (cached)
+	 */
+	public int getLoaded() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Useful for inspection
+	 */
+	@Override
+	public String toString() {
+		return String.format("%d rental units indexed, %d loaded", size(), getLoaded());
+	}
+
+}
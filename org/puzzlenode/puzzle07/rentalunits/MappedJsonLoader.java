@@ -0,0 +1,296 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Loads the rental units of a memory-mapped JSON file by position.
+ * The file is indexed by one scan of its bytes, which only tracks strings
+ * and nesting: it records where every element of the top-level array starts
+ * and ends, and decodes its "name"; nothing else is parsed. A rental unit
+ * is parsed (by 'JSON.simple') from its own bytes only when it is loaded.
+ * Files larger than a mapping (2 GB) are mapped in consecutive regions
+ * @author pek
+ */
+final class MappedJsonLoader implements LazyRentalUnits.Loader {
+	private static final int REGION_SHIFT = 30;				// The regions are of 1 GB
+	private static final long REGION_MASK = (1L << REGION_SHIFT) - 1;
+	private static final byte[] NAME = "name".getBytes(StandardCharsets.US_ASCII);
+
+	private final String inputFile;				// The filename of the JSON file
+	private final MappedByteBuffer[] regions;	// The mapped regions of the file
+	private final List<String> names;			// The names of the rental units
+	private final long[] starts;				// The first byte of every rental unit
+	private final int[] lengths;				// The length of every rental unit (bytes)
+
+	/**
+	 * Constructor
+	 */
+	private MappedJsonLoader(final String inputFile, final MappedByteBuffer[] regions,
+								final List<String> names, final long[] starts,
+								final int[] lengths) {
+		this.inputFile = inputFile;
+		this.regions = regions;
+		this.names = Collections.unmodifiableList(names);
+		this.starts = starts;
+		this.lengths = lengths;
+	}
+
+	/**
+	 * Factory method idiom to map and index a given JSON file
+	 * @param inputFile The filename of the JSON/text file to map and index
+	 * @return A new MappedJsonLoader instance; null if the file
+	 * cannot be read or is not an array of objects
+	 */
+	static MappedJsonLoader newMappedJsonLoader(final String inputFile) {
+		final MappedByteBuffer[] regions;
+
+		try (FileChannel channel = FileChannel.open(Paths.get(inputFile),
+														StandardOpenOption.READ)) {
+			final long size = channel.size();
+			regions = new MappedByteBuffer[(int) ((size + REGION_MASK) >>> REGION_SHIFT)];
+
+			for (int region = 0; region < regions.length; region++) {
+				final long position = (long) region << REGION_SHIFT;
+				regions[region] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+												Math.min(REGION_MASK + 1, size - position));
+			}
+		} catch (IOException e) {
+			System.err.println("Cannot read from file: " + inputFile);
+			System.err.println(e.getMessage());
+			return null;
+		}
+
+		return new Indexer(inputFile, regions).index();
+	}
+
+	@Override
+	public List<String> getNames() {
+		return names;
+	}
+
+	@Override
+	public RentalUnit load(final int index) {
+		final String json = new String(bytes(regions, starts[index], lengths[index]),
+										StandardCharsets.UTF_8);
+
+		try {
+			return RentalUnit.newRentalUnit((JSONObject) new JSONParser().parse(json));
+		} catch (ParseException | ClassCastException e) {
+			System.err.println("Cannot parse rental unit " + names.get(index)
+								+ " of JSON file: " + inputFile);
+			System.err.println(e);	// the message of a ParseException is in toString()
+		}
+
+		return null;
+	}
+
+	// --- helper methods for the mapped regions ---
+
+	private static byte get(final MappedByteBuffer[] regions, final long position) {
+		return regions[(int) (position >>> REGION_SHIFT)].get((int) (position & REGION_MASK));
+	}
+
+	/**
+	 * Copies the bytes of a range of the file; a bulk copy unless
+	 * the range crosses two regions
+	 */
+	private static byte[] bytes(final MappedByteBuffer[] regions, final long start,
+								final int length) {
+		final byte[] bytes = new byte[length];
+		final int offset = (int) (start & REGION_MASK);
+		final ByteBuffer region = regions[(int) (start >>> REGION_SHIFT)];
+
+		if (offset + length <= region.limit()) {
+			region.duplicate().position(offset).get(bytes);
+		} else {
+			for (int i = 0; i < length; i++) {
+				bytes[i] = get(regions, start + i);
+			}
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * The scan of a JSON file that indexes its rental units
+	 */
+	private static final class Indexer {
+		private final String inputFile;				// The filename of the JSON file
+		private final MappedByteBuffer[] regions;	// The mapped regions of the file
+		private final List<String> names = new ArrayList<String>();	// The names found
+		private long[] starts = new long[1024];		// The first byte of every unit
+		private int[] lengths = new int[1024];		// The length of every unit
+
+		Indexer(final String inputFile, final MappedByteBuffer[] regions) {
+			this.inputFile = inputFile;
+			this.regions = regions;
+		}
+
+		/**
+		 * Scans the file
+		 * @return The loader of the rental units found; null if the file
+		 * is not an array of objects
+		 */
+		MappedJsonLoader index() {
+			int depth = 0;				// the open arrays and objects
+			boolean expectKey = false;	// whether the next string of a unit is a key
+			boolean nameKey = false;	// whether the last key of a unit was "name"
+			long unitStart = -1;		// the first byte of the current unit
+			String name = null;			// the name of the current unit
+			final long size = (regions.length == 0)
+								? 0
+								: ((long) (regions.length - 1) << REGION_SHIFT)
+									+ regions[regions.length - 1].limit();
+
+			for (long position = 0; position < size; position++) {
+				final byte b = get(regions, position);
+
+				if (b == '"') {
+					final long end = endOfString(position + 1, size);
+
+					if (depth == 2) {
+						if (expectKey) {
+							nameKey = isName(position + 1, end);
+							expectKey = false;
+						} else if (nameKey) {
+							name = decode(position + 1, end);
+							nameKey = false;
+						}
+					}
+
+					position = end;
+				} else if (b == '{' || b == '[') {
+					if (depth == 0 && b != '[' || depth == 1 && b != '{') {
+						return invalid("the rental units are not an array of objects");
+					}
+
+					if (depth == 1) {
+						unitStart = position;
+						expectKey = true;
+						name = null;
+					}
+
+					depth++;
+				} else if (b == '}' || b == ']') {
+					depth--;
+
+					if (depth == 1) {
+						if (!add(name, unitStart, position + 1)) {
+							return null;
+						}
+					} else if (depth == 0) {
+						break;
+					} else if (depth < 0) {
+						return invalid("unbalanced brackets");
+					}
+				} else if (b == ',' && depth == 2) {
+					expectKey = true;
+					nameKey = false;
+				}
+			}
+
+			if (depth != 0) {
+				return invalid("unexpected end of file");
+			}
+
+			return new MappedJsonLoader(inputFile, regions, names,
+										Arrays.copyOf(starts, names.size()),
+										Arrays.copyOf(lengths, names.size()));
+		}
+
+		/**
+		 * Returns the position of the closing quote of a string
+		 * (or the end of the file)
+		 */
+		private long endOfString(long position, final long size) {
+			while (position < size) {
+				final byte b = get(regions, position);
+
+				if (b == '"') {
+					break;
+				}
+
+				position += (b == '\\') ? 2 : 1;
+			}
+
+			return Math.min(position, size);
+		}
+
+		private boolean isName(final long start, final long end) {
+			if (end - start != NAME.length) {
+				return false;
+			}
+
+			for (int i = 0; i < NAME.length; i++) {
+				if (get(regions, start + i) != NAME[i]) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		/**
+		 * Decodes the contents of a string; escapes are resolved by 'JSON.simple'
+		 */
+		private String decode(final long start, final long end) {
+			final byte[] bytes = bytes(regions, start, (int) (end - start));
+			final String string = new String(bytes, StandardCharsets.UTF_8);
+
+			if (string.indexOf('\\') < 0) {
+				return string;
+			}
+
+			try {
+				return (String) new JSONParser().parse('"' + string + '"');
+			} catch (ParseException e) {
+				return string;
+			}
+		}
+
+		private boolean add(final String name, final long start, final long end) {
+			if (name == null) {
+				invalid("a rental unit without a name at byte " + start);
+				return false;
+			}
+
+			if (end - start > Integer.MAX_VALUE) {
+				invalid("rental unit " + name + " is too large");
+				return false;
+			}
+
+			final int index = names.size();
+
+			if (index == starts.length) {
+				starts = Arrays.copyOf(starts, index * 2);
+				lengths = Arrays.copyOf(lengths, index * 2);
+			}
+
+			names.add(name);
+			starts[index] = start;
+			lengths[index] = (int) (end - start);
+			return true;
+		}
+
+		private MappedJsonLoader invalid(final String reason) {
+			System.err.println("Cannot index JSON file: " + inputFile);
+			System.err.println(reason);
+			return null;
+		}
+	}
+
+}
@@ -6,34 +6,35 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.List;
 
 import org.puzzlenode.puzzle07.util.DateFactory;
+import org.puzzlenode.puzzle07.util.DateFormatter;
 
 /**
- * The reservation period
+ * The reservation period; its dates are epoch-days (see DateFactory)
  * @author pek
  */
 public final class Period {
 	private static DateFactory DATE_FACTORY = new DateFactory(); // a DateFactory instance
-	private static SimpleDateFormat FORMATTER = new SimpleDateFormat("yyyy/MM/dd");
-								// a suitable Date Formatter instance 
-	private final Date from;	// The starting date of the period
-	private final Date to;		// The finishing date of the period
+	private static DateFormatter FORMATTER = new DateFormatter();
+								// a thread-safe formatter of 'yyyy/MM/dd' dates 
+	private final int from;		// The starting date of the period
+	private final int to;		// The finishing date of the period
+	private final int fromYear;	// The year of the starting date
+	private final int toYear;	// The year of the finishing date
 	
 	/**
 	 * Constructor
 	 * @param from The starting date of the period
 	 * @param to The finishing date of the period
 	 */
-	private Period(final Date from, final Date to) {
+	private Period(final int from, final int to) {
 		this.from = from;
 		this.to = to;
+		this.fromYear = DATE_FACTORY.yearOfDate(from);
+		this.toYear = DATE_FACTORY.yearOfDate(to);
 	}
 	
 	/**
@@ -48,7 +49,7 @@ public final class Period {
 			String line;
 			
 			while ((line = input.readLine()) != null) {
-				final List<Date> dates = parseLine(line.trim());
+				final List<Integer> dates = parseLine(line.trim());
 				
 				if (dates.size() == 2) {
 					period = new Period(dates.get(0), dates.get(1));
@@ -72,17 +73,17 @@ public final class Period {
 
 	/**
 	 * Helper method for the above factory method; It parses a line of text
-	 * and creates and finally returns a list of Dates
+	 * and creates and finally returns a list of dates
 	 * @param line A line from the text file
-	 * @return A list of Dates
+	 * @return A list of dates (epoch-days)
 	 */
-	private static List<Date> parseLine (final String line) {
-		final List<Date> dates = new ArrayList<Date>();
+	private static List<Integer> parseLine (final String line) {
+		final List<Integer> dates = new ArrayList<Integer>();
 		final String[] possibleDates = line.split("-");
 		
 		for (String possibleDate : possibleDates) {
 			try {
-				dates.add(FORMATTER.parse(possibleDate.trim()));
+				dates.add(FORMATTER.parseDate(possibleDate.trim()));
 			} catch (ParseException e) {
 				System.err.println("Could not parse line: " + line);
 			}
@@ -91,6 +92,16 @@ public final class Period {
 		return dates;
 	}
 
+	/**
+	 * Factory method idiom to create a Period from given dates
+	 * @param from The starting date of the period (an epoch-day)
+	 * @param to The finishing date of the period (an epoch-day)
+	 * @return A new Period instance
+	 */
+	public static Period makePeriod (final int from, final int to) {
+		return new Period(from, to);
+	}
+
 	/**
 	 * Factory method idiom to create a Period starting from a given date 
 	 * and finishing on the last day of a given year
@@ -98,7 +109,7 @@ public final class Period {
 	 * @param year The year whose last day is the finishing date of the period
 	 * @return A new Period instance
 	 */
-	public static Period makePeriodTillEndOfYear (final Date day, final int year) {
+	public static Period makePeriodTillEndOfYear (final int day, final int year) {
 		return new Period(day, DATE_FACTORY.createLastDateOfYear(year));
 	}
 
@@ -109,7 +120,7 @@ public final class Period {
 	 * @param year The year whose last day is the starting date of the period
 	 * @return A new Period instance
 	 */
-	public static Period makePeriodFromStartOfYear (final Date day, final int year) {
+	public static Period makePeriodFromStartOfYear (final int day, final int year) {
 		return new Period(DATE_FACTORY.createFirstDateOfYear(year), day);
 	}
 
@@ -132,20 +143,20 @@ public final class Period {
 	 * \a false otherwise
 	 */
 	public boolean isValid() {
-		return (from != null && to != null && from.before(to));
+		return from < to;
 	}
 	
 	/**
 	 * Getter 
 	 */
-	public Date getFrom() {
+	public int getFrom() {
 		return from;
 	}
 	
 	/**
 	 * Getter 
 	 */
-	public Date getTo() {
+	public int getTo() {
 		return to;
 	}
 
@@ -153,14 +164,21 @@ public final class Period {
 	 * Returns the year of the starting date 
 	 */
 	public int getFromYear() {
-		return getYearOfDate(from);
+		return fromYear;
 	}
 
 	/**
 	 * Returns the year of the finishing date 
 	 */	
 	public int getToYear() {
-		return getYearOfDate(to);
+		return toYear;
+	}
+	
+	/**
+	 * Returns the amount of overnights of the period
+	 */
+	public int getNights() {
+		return to - from;
 	}
 	
 	/**
@@ -171,23 +189,13 @@ public final class Period {
 		return this.getToYear() - this.getFromYear();
 	}
 
-	/**
-	 * It returns the year of a given date
-	 * (Helper method for methods getFromYear(), getToYear())
-	 */
-	private static int getYearOfDate (final Date date) {
-		final GregorianCalendar calendar = new GregorianCalendar();
-		calendar.setTime(date);
-		return calendar.get(Calendar.YEAR);
-	}
-	
 	/**
 	 * Useful for inspection
 	 */	
 	@Override
 	public String toString() {
-		final String f = FORMATTER.format(from);
-		final String t = FORMATTER.format(to);
+		final String f = FORMATTER.formatDate(from);
+		final String t = FORMATTER.formatDate(to);
 		return String.format("Period is: [%s, %s]", f, t);
 	}
 	
@@ -0,0 +1,173 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.puzzlenode.puzzle07.util.DateFormatter;
+
+/**
+ * Streams the reservation periods of a text file, one per line
+ * ('yyyy/MM/dd - yyyy/MM/dd'), one at a time; so files of any amount
+ * of periods can be read. Every line is parsed in place (no splitting);
+ * lines that are not a valid period are reported and skipped. A file that
+ * cannot be opened or read ends the periods early; the error is kept
+ * (see getFailure()), so that it is not taken for the end of the file
+ * @author pek
+ */
+public final class PeriodsReader implements Iterator<Period>, Closeable {
+	private static final int BUFFER_CHARS = 1 << 16;	// the size of the read buffer
+	private static final DateFormatter FORMATTER = new DateFormatter();
+								// a thread-safe formatter of 'yyyy/MM/dd' dates
+
+	private final String inputFile;		// The filename of the text file
+	private BufferedReader input;		// The open text file; null when exhausted
+	private Period next = null;			// The period to return next
+	private IOException failure;		// The error that has stopped the reading; null if none
+
+	/**
+	 * Constructor
+	 * @param inputFile The filename of the text file
+	 * @param input The open text file
+	 */
+	private PeriodsReader(final String inputFile, final BufferedReader input,
+							final IOException failure) {
+		this.inputFile = inputFile;
+		this.input = input;
+		this.failure = failure;
+	}
+
+	/**
+	 * Factory method idiom to create a PeriodsReader for a given text file
+	 * @param inputFile The filename of the text file to open and parse
+	 * @return A new PeriodsReader instance
+	 */
+	public static PeriodsReader newPeriodsReader(final String inputFile) {
+		BufferedReader input = null;
+		IOException failure = null;
+
+		try {
+			input = new BufferedReader(new FileReader(new File(inputFile)), BUFFER_CHARS);
+		} catch (FileNotFoundException e) {
+			System.err.println("File " + inputFile + " does not exist");
+			System.err.println(e.getMessage());
+			failure = new IOException("File " + inputFile + " does not exist", e);
+		}
+
+		return new PeriodsReader(inputFile, input, failure);
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (next == null && input != null) {
+			next = readPeriod();
+		}
+
+		return next != null;
+	}
+
+	@Override
+	public Period next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		final Period period = next;
+		next = null;
+		return period;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns the error that has stopped the reading (the text file could not
+	 * be opened, or could not be read to its end); null if none
+	 */
+	public IOException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Closes the text file; a reader that is read to the end closes itself
+	 */
+	@Override
+	public void close() {
+		if (input != null) {
+			try {
+				input.close();
+			} catch (IOException e) {
+				System.err.println("Cannot close file: " + inputFile);
+				System.err.println(e.getMessage());
+			}
+
+			input = null;
+		}
+	}
+
+	/**
+	 * Helper method for the above methods; It reads the next line
+	 * @return The period of the line; null if the line is not a valid period
+	 * (or at the end of the file or at an error, which close the reader)
+	 */
+	private Period readPeriod() {
+		String line = null;
+
+		try {
+			line = input.readLine();
+		} catch (IOException e) {
+			System.err.println("Cannot read from file: " + inputFile);
+			System.err.println(e.getMessage());
+			failure = new IOException("Cannot read from file: " + inputFile, e);
+		}
+
+		if (line == null) {
+			close();
+			return null;
+		}
+
+		final int start = skipWhitespace(line, 0);
+
+		if (start == line.length()) {
+			return null;
+		}
+
+		try {
+			final int from = FORMATTER.parseDate(line, start);
+			int position = skipWhitespace(line, FORMATTER.dateEnd(line, start));
+
+			if (position < line.length() && line.charAt(position) == '-') {
+				position = skipWhitespace(line, position + 1);
+				final Period period = Period.makePeriod(from, FORMATTER.parseDate(line, position));
+
+				if (period.isValid()) {
+					return period;
+				}
+			}
+		} catch (ParseException e) {
+			// reported below
+		}
+
+		System.err.println("Could not parse line: " + line);
+		return null;
+	}
+
+	private static int skipWhitespace(final String line, final int start) {
+		int position = start;
+
+		while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+			position++;
+		}
+
+		return position;
+	}
+
+}
@@ -0,0 +1,117 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+/**
+ * The bounds of the RateTables of all the rental units of a catalogue
+ * (see RateTable.calculateMinimumCost() and calculateMaximumCost()),
+ * plus their cleaning fees, laid out in flat arrays. So the bounds of the cost
+ * of one period in all the units are a pass over a few arrays, without
+ * touching any RentalUnit or RateTable. The arrays take 40 bytes per unit
+ * @author pek
+ */
+public final class RateBounds {
+	private final double[] minimumRates;			// the minimum nightly rates
+	private final double[] minimumLastDayRates;		// the (negative) minimum last-day rates
+	private final double[] maximumRates;			// the maximum nightly rates
+	private final double[] maximumLastDayRates;		// the (positive) maximum last-day rates
+	private final double[] cleaningFees;			// the cleaning fees
+
+	/**
+	 * Constructor
+	 */
+	private RateBounds (final double[] minimumRates, final double[] minimumLastDayRates,
+						final double[] maximumRates, final double[] maximumLastDayRates,
+						final double[] cleaningFees) {
+		this.minimumRates = minimumRates;
+		this.minimumLastDayRates = minimumLastDayRates;
+		this.maximumRates = maximumRates;
+		this.maximumLastDayRates = maximumLastDayRates;
+		this.cleaningFees = cleaningFees;
+	}
+
+	/**
+	 * Factory method idiom to gather the bounds of given rental units
+	 * @param rentalUnits The given rental units
+	 * @return A new RateBounds instance
+	 */
+	static RateBounds newRateBounds (final RentalUnits rentalUnits) {
+		return newRateBounds(rentalUnits, null, null);
+	}
+
+	/**
+	 * Factory method idiom to gather the bounds of given rental units,
+	 * carrying over those of the units of an earlier version of them
+	 * (so only the RateTables of the other units are read)
+	 * @param rentalUnits The given rental units
+	 * @param earlier The RateBounds of the earlier version (or null)
+	 * @param indexes The index of every unit in the earlier version (-1 if none)
+	 * @return A new RateBounds instance
+	 */
+	static RateBounds newRateBounds (final RentalUnits rentalUnits,
+										final RateBounds earlier, final int[] indexes) {
+		final int units = rentalUnits.size();
+		final double[] minimumRates = new double[units];
+		final double[] minimumLastDayRates = new double[units];
+		final double[] maximumRates = new double[units];
+		final double[] maximumLastDayRates = new double[units];
+		final double[] cleaningFees = new double[units];
+
+		for (int unit = 0; unit < units; unit++) {
+			if (earlier != null && indexes[unit] >= 0) {
+				final int index = indexes[unit];
+				minimumRates[unit] = earlier.minimumRates[index];
+				minimumLastDayRates[unit] = earlier.minimumLastDayRates[index];
+				maximumRates[unit] = earlier.maximumRates[index];
+				maximumLastDayRates[unit] = earlier.maximumLastDayRates[index];
+				cleaningFees[unit] = earlier.cleaningFees[index];
+				continue;
+			}
+
+			final RentalUnit rentalUnit = rentalUnits.getRentalUnit(unit);
+			final RateTable rateTable = rentalUnit.getRateTable();
+			minimumRates[unit] = rateTable.getMinimumRate();
+			minimumLastDayRates[unit] = rateTable.getMinimumLastDayRate();
+			maximumRates[unit] = rateTable.getMaximumRate();
+			maximumLastDayRates[unit] = rateTable.getMaximumLastDayRate();
+			cleaningFees[unit] = rentalUnit.getCleaningFee();
+		}
+
+		return new RateBounds(minimumRates, minimumLastDayRates,
+								maximumRates, maximumLastDayRates, cleaningFees);
+	}
+
+	/**
+	 * Returns the amount of units
+	 */
+	public int size () {
+		return cleaningFees.length;
+	}
+
+	/**
+	 * Calculates and returns a lower bound of the cost of a given amount
+	 * of overnights in a unit; the same as RateTable.calculateMinimumCost()
+	 * @param unit The index of the unit
+	 * @param nights The amount of overnights
+	 */
+	public double calculateMinimumCost (final int unit, final long nights) {
+		return nights * minimumRates[unit] + minimumLastDayRates[unit];
+	}
+
+	/**
+	 * Calculates and returns an upper bound of the cost of a given amount
+	 * of overnights in a unit; the same as RateTable.calculateMaximumCost()
+	 * @param unit The index of the unit
+	 * @param nights The amount of overnights
+	 */
+	public double calculateMaximumCost (final int unit, final long nights) {
+		return nights * maximumRates[unit] + maximumLastDayRates[unit];
+	}
+
+	/**
+	 * Returns the cleaning fee of a unit
+	 * @param unit The index of the unit
+	 */
+	public double getCleaningFee (final int unit) {
+		return cleaningFees[unit];
+	}
+
+}
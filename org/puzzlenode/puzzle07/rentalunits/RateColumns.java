@@ -0,0 +1,238 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.util.Arrays;
+
+import org.puzzlenode.puzzle07.util.DateFactory;
+
+/**
+ * The RateTables of all the rental units of a catalogue laid out column-wise:
+ * for every day of the year, a row of the cumulative rates (and one of the
+ * rates of the seasons ending on it) of all the units, plus rows of the costs
+ * of a whole year and of the cleaning fees. So the cost of one period in all
+ * the units reads a few rows from start to end, which the same arithmetic
+ * is applied to, element by element (i.e. many units at once in SIMD lanes).
+ * The rows take about 12 KB per unit; they must not be modified. A new version
+ * of a catalogue carries over the columns of its unchanged units (see
+ * RentalUnits.withRentalUnits()), but the rows are copied (by runs of
+ * consecutive units): O(n) per version
+ * @author pek
+ */
+public final class RateColumns {
+	private static final DateFactory DATE_FACTORY = new DateFactory(); // a DateFactory instance
+	private static final int NON_LEAP_YEAR = 1970;	// a reference non-leap year
+
+	private final int unitCount;				// the amount of units (the length of a row)
+	private final double[][] cumulativeRates;	// [day][unit] of a non-leap year
+	private final double[][] lastDayRates;		// [day][unit] of a non-leap year
+	private final double[][] leapCumulativeRates;	// [day][unit] of a leap year
+	private final double[][] leapLastDayRates;		// [day][unit] of a leap year
+	private final double[] yearCosts;			// the cost of a whole non-leap year
+	private final double[] leapYearCosts;		// the cost of a whole leap year
+	private final double[] cleaningFees;		// the cleaning fees
+
+	/**
+	 * Constructor
+	 */
+	private RateColumns (final int unitCount,
+							final double[][] cumulativeRates, final double[][] lastDayRates,
+							final double[][] leapCumulativeRates, final double[][] leapLastDayRates,
+							final double[] yearCosts, final double[] leapYearCosts,
+							final double[] cleaningFees) {
+		this.unitCount = unitCount;
+		this.cumulativeRates = cumulativeRates;
+		this.lastDayRates = lastDayRates;
+		this.leapCumulativeRates = leapCumulativeRates;
+		this.leapLastDayRates = leapLastDayRates;
+		this.yearCosts = yearCosts;
+		this.leapYearCosts = leapYearCosts;
+		this.cleaningFees = cleaningFees;
+	}
+
+	/**
+	 * Factory method idiom to lay out the RateTables of given rental units
+	 * @param rentalUnits The given rental units
+	 * @return A new RateColumns instance
+	 */
+	static RateColumns newRateColumns (final RentalUnits rentalUnits) {
+		return newRateColumns(rentalUnits, null, null);
+	}
+
+	/**
+	 * Factory method idiom to lay out the RateTables of given rental units,
+	 * carrying over the rows of the units of an earlier version of them
+	 * (so only the RateTables of the other units are read)
+	 * @param rentalUnits The given rental units
+	 * @param earlier The RateColumns of the earlier version (or null)
+	 * @param indexes The index of every unit in the earlier version (-1 if none)
+	 * @return A new RateColumns instance
+	 */
+	static RateColumns newRateColumns (final RentalUnits rentalUnits,
+										final RateColumns earlier, final int[] indexes) {
+		final int units = rentalUnits.size();
+		final RateTable[] rateTables = new RateTable[units];	// null if carried over
+		final double[] yearCosts = new double[units];
+		final double[] leapYearCosts = new double[units];
+		final double[] cleaningFees = new double[units];
+
+		for (int unit = 0; unit < units; unit++) {
+			if (earlier != null && indexes[unit] >= 0) {
+				yearCosts[unit] = earlier.yearCosts[indexes[unit]];
+				leapYearCosts[unit] = earlier.leapYearCosts[indexes[unit]];
+				cleaningFees[unit] = earlier.cleaningFees[indexes[unit]];
+				continue;
+			}
+
+			final RentalUnit rentalUnit = rentalUnits.getRentalUnit(unit);
+			rateTables[unit] = rentalUnit.getRateTable();
+			yearCosts[unit] = rateTables[unit].calculateYearCost(false);
+			leapYearCosts[unit] = rateTables[unit].calculateYearCost(true);
+			cleaningFees[unit] = rentalUnit.getCleaningFee();
+		}
+
+		final int days = DATE_FACTORY.createLastDateOfYear(NON_LEAP_YEAR)
+							- DATE_FACTORY.createFirstDateOfYear(NON_LEAP_YEAR) + 1;
+		final double[][] cumulativeRates = cumulativeRows(rateTables, days + 1, false);
+		final double[][] lastDayRates = lastDayRows(rateTables, days, false);
+		final double[][] leapCumulativeRates = cumulativeRows(rateTables, days + 2, true);
+		final double[][] leapLastDayRates = lastDayRows(rateTables, days + 1, true);
+
+		if (earlier != null) {
+			final int[] runs = runs(indexes);
+			carryOver(cumulativeRates, earlier.cumulativeRates, runs);
+			carryOver(lastDayRates, earlier.lastDayRates, runs);
+			carryOver(leapCumulativeRates, earlier.leapCumulativeRates, runs);
+			carryOver(leapLastDayRates, earlier.leapLastDayRates, runs);
+		}
+
+		return new RateColumns(units, cumulativeRates, lastDayRates,
+								leapCumulativeRates, leapLastDayRates,
+								yearCosts, leapYearCosts, cleaningFees);
+	}
+
+	/**
+	 * Helper method for the above factory method; It transposes the cumulative rates
+	 * (of the units not carried over)
+	 */
+	private static double[][] cumulativeRows (final RateTable[] rateTables,
+												final int days, final boolean leapYear) {
+		final double[][] rows = new double[days][rateTables.length];
+
+		for (int unit = 0; unit < rateTables.length; unit++) {
+			if (rateTables[unit] == null) {
+				continue;
+			}
+
+			for (int day = 0; day < days; day++) {
+				rows[day][unit] = rateTables[unit].getCumulativeRate(day, leapYear);
+			}
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Helper method for the above factory method; It transposes the last-day rates
+	 * (of the units not carried over)
+	 */
+	private static double[][] lastDayRows (final RateTable[] rateTables,
+											final int days, final boolean leapYear) {
+		final double[][] rows = new double[days][rateTables.length];
+
+		for (int unit = 0; unit < rateTables.length; unit++) {
+			if (rateTables[unit] == null) {
+				continue;
+			}
+
+			for (int day = 0; day < days; day++) {
+				rows[day][unit] = rateTables[unit].getLastDayRate(day, leapYear);
+			}
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Helper method for the above factory method; It finds the runs of units
+	 * carried over from consecutive earlier units (e.g. all the units between
+	 * two edits), as triples of the first unit, the first earlier unit
+	 * and the length of the run
+	 */
+	private static int[] runs (final int[] indexes) {
+		final int[] runs = new int[3 * indexes.length];
+		int count = 0;
+
+		for (int unit = 0; unit < indexes.length; ) {
+			if (indexes[unit] < 0) {
+				unit++;
+				continue;
+			}
+
+			int end = unit + 1;
+
+			while (end < indexes.length && indexes[end] == indexes[end - 1] + 1) {
+				end++;
+			}
+
+			runs[count++] = unit;
+			runs[count++] = indexes[unit];
+			runs[count++] = end - unit;
+			unit = end;
+		}
+
+		return Arrays.copyOf(runs, count);
+	}
+
+	/**
+	 * Helper method for the above factory method; It copies the runs of units
+	 * carried over from the earlier rows, row by row
+	 */
+	private static void carryOver (final double[][] rows, final double[][] earlierRows,
+									final int[] runs) {
+		for (int day = 0; day < rows.length; day++) {
+			for (int run = 0; run < runs.length; run += 3) {
+				System.arraycopy(earlierRows[day], runs[run + 1], rows[day], runs[run], runs[run + 2]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the amount of units (the length of every row)
+	 */
+	public int size () {
+		return unitCount;
+	}
+
+	/**
+	 * Returns the cumulative rates of a day (see RateTable) of all units
+	 * @param day The day (zero-based day of the year)
+	 * @param leapYear Whether or not the day lies in a leap year
+	 */
+	public double[] getCumulativeRates (final int day, final boolean leapYear) {
+		return leapYear ? leapCumulativeRates[day] : cumulativeRates[day];
+	}
+
+	/**
+	 * Returns the rates of the seasons ending on a day of all units
+	 * @param day The day (zero-based day of the year)
+	 * @param leapYear Whether or not the day lies in a leap year
+	 */
+	public double[] getLastDayRates (final int day, final boolean leapYear) {
+		return leapYear ? leapLastDayRates[day] : lastDayRates[day];
+	}
+
+	/**
+	 * Returns the costs of a whole year of all units
+	 * @param leapYear Whether or not the year is a leap year
+	 */
+	public double[] getYearCosts (final boolean leapYear) {
+		return leapYear ? leapYearCosts : yearCosts;
+	}
+
+	/**
+	 * Returns the cleaning fees of all units
+	 */
+	public double[] getCleaningFees () {
+		return cleaningFees;
+	}
+
+}
@@ -0,0 +1,247 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.util.List;
+
+import org.puzzlenode.puzzle07.util.DateFactory;
+
+/**
+ * The seasonal rates of a rental unit compiled into day-of-year tables,
+ * one for non-leap and one for leap years. Each table holds the cumulative
+ * nightly rates, so that the cost of any range of days within a year
+ * costs two array lookups, whatever the amount of seasons.
+ * The overnights are counted exactly as CostCalculator.calculateNights() does:
+ * every day from the first date until the day before the last date,
+ * plus the last date itself for every (part of a) season ending on it.
+ * The cost of a whole year (first to last day) is kept as well, so that a stay
+ * of any length costs a constant amount of work (see calculateYearCost())
+ * @author pek
+ */
+public final class RateTable {
+	private static final DateFactory DATE_FACTORY = new DateFactory(); // a DateFactory instance
+	private static final int NON_LEAP_YEAR = 1970;	// a reference non-leap year
+	private static final int LEAP_YEAR = 1972;		// a reference leap year
+
+	private final double[] cumulativeRates;		// cumulative rates of a non-leap year
+	private final double[] lastDayRates;		// rates of seasons ending on each day
+	private final double[] leapCumulativeRates;	// cumulative rates of a leap year
+	private final double[] leapLastDayRates;	// rates of seasons ending on each day
+	private final double minimumRate;			// the minimum nightly rate
+	private final double maximumRate;			// the maximum nightly rate
+	private final double minimumLastDayRate;	// the minimum rate of a last day
+	private final double maximumLastDayRate;	// the maximum rate of a last day
+	private final double yearCost;				// the cost of a whole non-leap year
+	private final double leapYearCost;			// the cost of a whole leap year
+
+	/**
+	 * Constructor
+	 * @param cumulativeRates The cumulative rates of a non-leap year
+	 * @param lastDayRates The rates of seasons ending on each day of a non-leap year
+	 * @param leapCumulativeRates The cumulative rates of a leap year
+	 * @param leapLastDayRates The rates of seasons ending on each day of a leap year
+	 */
+	private RateTable (final double[] cumulativeRates,
+						final double[] lastDayRates,
+						final double[] leapCumulativeRates,
+						final double[] leapLastDayRates) {
+		this.cumulativeRates = cumulativeRates;
+		this.lastDayRates = lastDayRates;
+		this.leapCumulativeRates = leapCumulativeRates;
+		this.leapLastDayRates = leapLastDayRates;
+		this.minimumRate = Math.min(rateBound(cumulativeRates, -1.0), 
+									rateBound(leapCumulativeRates, -1.0));
+		this.maximumRate = Math.max(rateBound(cumulativeRates, 1.0), 
+									rateBound(leapCumulativeRates, 1.0));
+		this.minimumLastDayRate = Math.min(bound(lastDayRates, -1.0), 
+											bound(leapLastDayRates, -1.0));
+		this.maximumLastDayRate = Math.max(bound(lastDayRates, 1.0), 
+											bound(leapLastDayRates, 1.0));
+		this.yearCost = calculateCost(0, lastDayRates.length - 1, false);
+		this.leapYearCost = calculateCost(0, leapLastDayRates.length - 1, true);
+	}
+
+	/**
+	 * Factory method idiom to compile a RateTable from given seasonal rates
+	 * @param seasonalRates The given seasonal rates
+	 * @return A new RateTable instance
+	 */
+	static RateTable newRateTable (final List<SeasonalRate> seasonalRates) {
+		final int days = DATE_FACTORY.createLastDateOfYear(NON_LEAP_YEAR)
+							- DATE_FACTORY.createFirstDateOfYear(NON_LEAP_YEAR) + 1;
+		final double[] lastDayRates = new double[days];
+		final double[] leapLastDayRates = new double[days + 1];
+		final double[] cumulativeRates
+			= compile(seasonalRates, NON_LEAP_YEAR, lastDayRates);
+		final double[] leapCumulativeRates
+			= compile(seasonalRates, LEAP_YEAR, leapLastDayRates);
+		return new RateTable(cumulativeRates, lastDayRates,
+								leapCumulativeRates, leapLastDayRates);
+	}
+
+	/**
+	 * Helper method for the above factory method; It compiles the seasonal
+	 * rates for a given reference year
+	 * @param seasonalRates The given seasonal rates
+	 * @param year The given reference year
+	 * @param lastDayRates The rates of seasons ending on each day (to fill in)
+	 * @return The cumulative rates of the given year
+	 */
+	private static double[] compile (final List<SeasonalRate> seasonalRates,
+										final int year,
+										final double[] lastDayRates) {
+		final int firstOfYear = DATE_FACTORY.createFirstDateOfYear(year);
+		final int lastDay = lastDayRates.length - 1;
+		final double[] dayRates = new double[lastDayRates.length];
+
+		for (SeasonalRate seasonalRate : seasonalRates) {
+			final double rate = seasonalRate.getRate();
+			final int first = DATE_FACTORY.createDateOfYear(seasonalRate.getStart(), year)
+								- firstOfYear;
+			final int last = DATE_FACTORY.createDateOfYear(seasonalRate.getEnd(), year)
+								- firstOfYear;
+
+			if (last >= first) {
+				addRate(dayRates, first, last, rate);
+				lastDayRates[last] += rate;
+			} else {
+				// a season wrapping across the end of the year
+				addRate(dayRates, 0, last, rate);
+				addRate(dayRates, first, lastDay, rate);
+				lastDayRates[last] += rate;
+				lastDayRates[lastDay] += rate;
+			}
+		}
+
+		final double[] cumulativeRates = new double[dayRates.length + 1];
+
+		for (int day = 0; day < dayRates.length; day++) {
+			cumulativeRates[day + 1] = cumulativeRates[day] + dayRates[day];
+		}
+
+		return cumulativeRates;
+	}
+
+	private static void addRate (final double[] dayRates,
+									final int first, final int last,
+									final double rate) {
+		for (int day = first; day <= last; day++) {
+			dayRates[day] += rate;
+		}
+	}
+
+	/**
+	 * Returns the minimum (sign -1) or maximum (sign 1) nightly rate
+	 * of given cumulative rates
+	 */
+	private static double rateBound (final double[] cumulativeRates, final double sign) {
+		double bound = sign * (cumulativeRates[1] - cumulativeRates[0]);
+
+		for (int day = 1; day + 1 < cumulativeRates.length; day++) {
+			bound = Math.max(bound, sign * (cumulativeRates[day + 1] - cumulativeRates[day]));
+		}
+
+		return sign * bound;
+	}
+
+	/**
+	 * Returns the minimum (sign -1) or maximum (sign 1) of given rates
+	 */
+	private static double bound (final double[] rates, final double sign) {
+		double bound = sign * rates[0];
+
+		for (int day = 1; day < rates.length; day++) {
+			bound = Math.max(bound, sign * rates[day]);
+		}
+
+		return sign * bound;
+	}
+
+	/**
+	 * Calculates and returns a lower bound of the cost of a given amount of overnights,
+	 * wherever they fall in the year(s)
+	 * @param nights The amount of overnights
+	 */
+	public double calculateMinimumCost (final long nights) {
+		return nights * minimumRate + Math.min(0.0, minimumLastDayRate);
+	}
+
+	/**
+	 * Calculates and returns an upper bound of the cost of a given amount of overnights,
+	 * wherever they fall in the year(s)
+	 * @param nights The amount of overnights
+	 */
+	public double calculateMaximumCost (final long nights) {
+		return nights * maximumRate + Math.max(0.0, maximumLastDayRate);
+	}
+
+	/**
+	 * Returns the minimum nightly rate (see calculateMinimumCost())
+	 */
+	double getMinimumRate () {
+		return minimumRate;
+	}
+
+	/**
+	 * Returns the maximum nightly rate (see calculateMaximumCost())
+	 */
+	double getMaximumRate () {
+		return maximumRate;
+	}
+
+	/**
+	 * Returns the minimum rate of a last day, if negative (see calculateMinimumCost())
+	 */
+	double getMinimumLastDayRate () {
+		return Math.min(0.0, minimumLastDayRate);
+	}
+
+	/**
+	 * Returns the maximum rate of a last day, if positive (see calculateMaximumCost())
+	 */
+	double getMaximumLastDayRate () {
+		return Math.max(0.0, maximumLastDayRate);
+	}
+
+	/**
+	 * Returns the cost of the overnights of a whole year, from its first
+	 * until its last day; the same as calculateCost() for that range
+	 * @param leapYear Whether or not the year is a leap year
+	 */
+	public double calculateYearCost (final boolean leapYear) {
+		return leapYear ? leapYearCost : yearCost;
+	}
+
+	/**
+	 * Returns the cumulative rate of a day (the rates of all the days before it)
+	 * @param day The day (zero-based day of the year; up to the amount of days)
+	 * @param leapYear Whether or not the day lies in a leap year
+	 */
+	double getCumulativeRate (final int day, final boolean leapYear) {
+		return leapYear ? leapCumulativeRates[day] : cumulativeRates[day];
+	}
+
+	/**
+	 * Returns the rate of the seasons ending on a day
+	 * @param day The day (zero-based day of the year)
+	 * @param leapYear Whether or not the day lies in a leap year
+	 */
+	double getLastDayRate (final int day, final boolean leapYear) {
+		return leapYear ? leapLastDayRates[day] : lastDayRates[day];
+	}
+
+	/**
+	 * Calculates and returns the cost of the overnights for a given range of days
+	 * within a year
+	 * @param first The first day of the range (zero-based day of the year)
+	 * @param last The last day of the range (zero-based day of the year)
+	 * @param leapYear Whether or not the range lies in a leap year
+	 */
+	public double calculateCost (final int first, final int last, final boolean leapYear) {
+		if (leapYear) {
+			return leapCumulativeRates[last] - leapCumulativeRates[first]
+					+ leapLastDayRates[last];
+		}
+
+		return cumulativeRates[last] - cumulativeRates[first] + lastDayRates[last];
+	}
+
+}
@@ -2,9 +2,11 @@ package org.puzzlenode.puzzle07.rentalunits;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.puzzlenode.puzzle07.util.AmountParser;
 
 /** 
  * The Rental Unit described in the JSON input files
@@ -12,22 +14,29 @@ import org.json.simple.JSONObject;
  */
 
 public final class RentalUnit {
+	// a thread-safe parser of amounts
+	private static final AmountParser AMOUNT_PARSER = new AmountParser();
+	
 	private final String name;					// The name of the rental unit
 	private final double cleaningFee;			// The cleaning fee of the rental unit
-	private final List<SeasonalRate> seasonalRates; // The seasonal rates of the unit
+	private final Schedule schedule;			// The (maybe shared) seasonal rates of the unit
+	private final BookingCalendar bookingCalendar; // The booked nights of the unit
 
 	/**
 	 * Constructor
 	 * @param name The name of the rental unit
 	 * @param fee The cleaning fee of the rental unit
-	 * @param seasonalRates The seasonal rates of the rental unit
+	 * @param schedule The seasonal rates of the rental unit
+	 * @param bookingCalendar The booked nights of the rental unit
 	 */
 	private RentalUnit (final String name, 
 						final double fee, 
-						final List<SeasonalRate> seasonalRates) {
+						final Schedule schedule,
+						final BookingCalendar bookingCalendar) {
 		this.name = name;
 		this.cleaningFee = fee;
-		this.seasonalRates = seasonalRates;
+		this.schedule = schedule;
+		this.bookingCalendar = bookingCalendar;
 	}
 	
 	/**
@@ -39,7 +48,80 @@ public final class RentalUnit {
 		final String nameData = (String) rentalUnitData.get("name");
 		final List<SeasonalRate> seasonalRates = parseSeasonalRates(rentalUnitData);
 		final double fee = parseCleaningFee(rentalUnitData);
-		return new RentalUnit(nameData, fee, seasonalRates);
+		return new RentalUnit(nameData, fee, Schedule.newSchedule(seasonalRates),
+								BookingCalendar.newBookingCalendar());
+	}
+
+	/**
+	 * Factory method idiom to create a RentalUnit from a given JSONObject instance,
+	 * reusing a previous version of it: if the name, the cleaning fee and
+	 * the seasonal rates are unchanged, the previous RentalUnit itself is returned
+	 * (and its rates are not compiled again); otherwise a new RentalUnit is created,
+	 * which keeps the booked nights of the previous one.
+	 * The seasonal rates of a new RentalUnit are shared with the rental units
+	 * of equal ones, through a given ScheduleInterner (if any)
+	 * @param rentalUnitData The given JSONObject instance to parse
+	 * @param previous The previous version of the rental unit; null if none
+	 * @param interner The interner of the seasonal rates; null for none
+	 * @return A new RentalUnit instance, or the previous one if unchanged
+	 */	
+	static RentalUnit newRentalUnit (final JSONObject rentalUnitData,
+										final RentalUnit previous,
+										final ScheduleInterner interner) {
+		final String nameData = (String) rentalUnitData.get("name");
+		final List<SeasonalRate> seasonalRates = parseSeasonalRates(rentalUnitData);
+		final double fee = parseCleaningFee(rentalUnitData);
+		
+		if (previous == null) {
+			return new RentalUnit(nameData, fee, schedule(seasonalRates, interner),
+									BookingCalendar.newBookingCalendar());
+		}
+		
+		if (Objects.equals(previous.name, nameData)
+			&& Double.compare(previous.cleaningFee, fee) == 0
+			&& previous.getSeasonalRates().equals(seasonalRates)) {
+			return previous;
+		}
+		
+		return new RentalUnit(nameData, fee, schedule(seasonalRates, interner),
+								previous.bookingCalendar);
+	}
+
+	/**
+	 * Factory method idiom to create a RentalUnit from given (already parsed) data
+	 * @param name The name of the rental unit
+	 * @param fee The cleaning fee of the rental unit
+	 * @param seasonalRates The seasonal rates of the rental unit
+	 * @param interner The interner of the seasonal rates; null for none
+	 * @return A new RentalUnit instance
+	 */	
+	static RentalUnit newRentalUnit (final String name, 
+										final double fee, 
+										final List<SeasonalRate> seasonalRates,
+										final ScheduleInterner interner) {
+		return new RentalUnit(name, fee, schedule(seasonalRates, interner),
+								BookingCalendar.newBookingCalendar());
+	}
+
+	/**
+	 * Helper method for the above factory methods; It returns the Schedule
+	 * of given seasonal rates, interned or (without an interner) of its own
+	 */
+	private static Schedule schedule (final List<SeasonalRate> seasonalRates,
+										final ScheduleInterner interner) {
+		return (interner == null) ? Schedule.newSchedule(seasonalRates)
+									: interner.intern(seasonalRates);
+	}
+
+	/**
+	 * Returns the same rental unit with given booked nights
+	 * @param calendar The booked nights
+	 * @return A new RentalUnit instance (sharing the seasonal rates of this one),
+	 * or this one if it has the booked nights already
+	 */
+	RentalUnit withBookingCalendar (final BookingCalendar calendar) {
+		return (calendar == bookingCalendar) ? this
+											: new RentalUnit(name, cleaningFee, schedule, calendar);
 	}
 
 	/**
@@ -79,8 +161,7 @@ public final class RentalUnit {
 			return 0.0;
 		}
 		
-		final String feeData = cleaningFeeData.trim().replace("$", "");
-		return Double.parseDouble(feeData);
+		return AMOUNT_PARSER.parseAmount(cleaningFeeData);
 	}
 	
 	// --- getters ---
@@ -93,8 +174,32 @@ public final class RentalUnit {
 		return cleaningFee;
 	}
 	
+	/**
+	 * Returns the seasonal rates; the list may be shared by other rental units,
+	 * so it cannot be modified
+	 */
 	public List<SeasonalRate> getSeasonalRates() {
-		return seasonalRates;
+		return schedule.getSeasonalRates();
+	}
+	
+	public RateTable getRateTable() {
+		return schedule.getRateTable();
+	}
+	
+	/**
+	 * Returns the seasonal rates compiled in whole cents; they are compiled
+	 * on first use (by any thread; the result is the same)
+	 */
+	public CentsRateTable getCentsRateTable() {
+		return schedule.getCentsRateTable();
+	}
+	
+	Schedule getSchedule() {
+		return schedule;
+	}
+	
+	public BookingCalendar getBookingCalendar() {
+		return bookingCalendar;
 	}
 
 	/**
@@ -116,7 +221,7 @@ public final class RentalUnit {
 			.append("Seasonal Rates are")
 			.append("\n");
 		
-		for (SeasonalRate sr : seasonalRates) {
+		for (SeasonalRate sr : getSeasonalRates()) {
 			sb.append("    ")
 				.append(sr)
 				.append("\n");
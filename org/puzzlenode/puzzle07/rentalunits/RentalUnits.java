@@ -1,69 +1,277 @@
 package org.puzzlenode.puzzle07.rentalunits;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 /** 
- * The Rental Units described in the JSON input files
+ * The Rental Units described in the JSON input files.
+ * A RentalUnits instance is immutable: a changed JSON file is read
+ * into a new instance (see reload())
  * @author pek
  */
 public final class RentalUnits {
 	private final List<RentalUnit> rentalUnits; // a list of Rental Unit instances
+	private final Map<String, RentalUnit> rentalUnitsByName; // the same, by name
+	private volatile RateColumns rateColumns; // their rates column-wise; laid out on first use
+	private volatile RateBounds rateBounds; // the bounds of their rates; gathered on first use
+	// the rates column-wise and their bounds of an earlier version (see withRentalUnits()),
+	// whose rows of the unchanged units are carried over on first use; null afterwards
+	private volatile RateColumns earlierColumns;
+	private volatile RateBounds earlierBounds;
+	private final int[] earlierIndexes; // [unit] its index in the earlier version; -1 if none
 	
 	/**
 	 * Constructor
 	 * @param units A list of Rental Unit instances
 	 */
 	private RentalUnits(final List<RentalUnit> units) {
-		rentalUnits = units;
+		this(units, null, null, null);
 	}
 	
 	/**
-	 * Factory method idiom to create a RentalUnits instance from a given JSON file
+	 * Constructor
+	 * @param units A list of Rental Unit instances
+	 * @param columns The rates column-wise of an earlier version (or null)
+	 * @param bounds The bounds of the rates of an earlier version (or null)
+	 * @param indexes The index of every Rental Unit in the earlier version (-1 if none)
+	 */
+	private RentalUnits(final List<RentalUnit> units, final RateColumns columns,
+						final RateBounds bounds, final int[] indexes) {
+		earlierColumns = columns;
+		earlierBounds = bounds;
+		earlierIndexes = indexes;
+		rentalUnits = Collections.unmodifiableList(units);
+		rentalUnitsByName = new HashMap<String, RentalUnit>(units.size() * 2);
+		
+		for (RentalUnit rentalUnit : units) {
+			rentalUnitsByName.put(rentalUnit.getName(), rentalUnit);
+		}
+	}
+	
+	/**
+	 * Factory method idiom to create a RentalUnits instance from a given JSON file;
+	 * the rental units are streamed one at a time (see RentalUnitsReader)
 	 * @param inputFile The filename of the JSON/text file to open and parse
-	 * @return A new RentalUnits instance
+	 * @return A new RentalUnits instance; an empty one if the JSON file
+	 * cannot be read or parsed completely (never a part of it)
 	 */	
 	public static RentalUnits newRentalUnits(final String inputFile) {
+		return newRentalUnits(RentalUnitsReader.newRentalUnitsReader(inputFile, null, null,
+								ScheduleInterner.newScheduleInterner(null)));
+	}
+	
+	/**
+	 * Factory method idiom to create a RentalUnits instance from some of the
+	 * Rental Units of a given JSON file (e.g. a shard of them)
+	 * @param inputFile The filename of the JSON/text file to open and parse
+	 * @param names The names of the Rental Units to keep
+	 * @return A new RentalUnits instance; an empty one if the JSON file
+	 * cannot be read or parsed completely (never a part of it)
+	 */	
+	public static RentalUnits newRentalUnits(final String inputFile, final Predicate<String> names) {
+		return newRentalUnits(RentalUnitsReader.newRentalUnitsReader(inputFile, null, names,
+								ScheduleInterner.newScheduleInterner(null)));
+	}
+	
+	/**
+	 * Helper method for the above factory methods; It reads all the rental units
+	 * of a reader, or none if the reader fails (as reload() does)
+	 */
+	private static RentalUnits newRentalUnits(final RentalUnitsReader reader) {
 		final List<RentalUnit> units = new ArrayList<RentalUnit>();
-		final JSONParser parser = new JSONParser();
 		
-		try (FileReader input = new FileReader(new File(inputFile))) {
-			final JSONArray rentalUnitsData = (JSONArray) parser.parse(input);
-
-			for (Object rentalUnitData : rentalUnitsData) {
-				units.add(parseRentalUnit((JSONObject) rentalUnitData));
+		try (RentalUnitsReader input = reader) {
+			while (input.hasNext()) {
+				units.add(input.next());
+			}
+			
+			if (input.hasFailed()) {
+				units.clear();	// the reader has reported the error
 			}
-		} catch (FileNotFoundException e) {
-			System.err.println("File " + inputFile + " does not exist");
-			System.err.println(e.getMessage());
-		} catch (IOException e) {
-			System.err.println("Cannot read from file: " + inputFile);
-			System.err.println(e.getMessage());
-		} catch (ParseException e) {
-			System.err.println("Cannot parse JSON file: " + inputFile);
-			System.err.println(e.getMessage());
 		}
 		
 		return new RentalUnits(units);
 	}
 	
 	/**
-	 * A helper method for the above factory method;
-	 * It parses a given JSONObject instance and create a RentalUnit instance
-	 * @param rentalUnitData The given JSONObject instance
-	 * @return A RentalUnit instance
+	 * Factory method idiom to create a RentalUnits instance from a given JSON file
+	 * through a binary snapshot of it: the snapshot is read if it is up to date;
+	 * otherwise the JSON file is parsed and the snapshot is (re)written
+	 * @param inputFile The filename of the JSON/text file
+	 * @param snapshotFile The filename of the snapshot of the JSON file
+	 * @return A new RentalUnits instance
+	 */	
+	public static RentalUnits newRentalUnits(final String inputFile, final String snapshotFile) {
+		final List<RentalUnit> units = RentalUnitsSnapshot.read(snapshotFile, inputFile);
+		
+		if (units != null) {
+			return new RentalUnits(units);
+		}
+		
+		long[] source = null;
+		
+		try {
+			source = RentalUnitsSnapshot.stamp(inputFile);	// before the file is parsed
+		} catch (IOException e) {
+			// no snapshot then; the JSON file is reported by the reader
+		}
+		
+		final RentalUnits rentalUnits = newRentalUnits(inputFile);
+		
+		if (source != null && !rentalUnits.rentalUnits.isEmpty()) {
+			RentalUnitsSnapshot.write(snapshotFile, inputFile, rentalUnits.rentalUnits, source);
+		}
+		
+		return rentalUnits;
+	}
+	
+	/**
+	 * Reads a new version of the Rental Units of this RentalUnits instance
+	 * from a (changed) JSON file. The unchanged rental units are reused as they are;
+	 * only the new and changed ones are compiled, and the changed ones
+	 * keep their booked nights (see RentalUnit.newRentalUnit(JSONObject, RentalUnit,
+	 * ScheduleInterner)); the rates column-wise and their bounds of the unchanged
+	 * ones are carried over, as by withRentalUnits()
+	 * @param inputFile The filename of the JSON/text file to open and parse
+	 * @return A new RentalUnits instance; null if the JSON file
+	 * cannot be read or parsed completely (e.g. while it is being written)
+	 */
+	public RentalUnits reload(final String inputFile) {
+		final List<RentalUnit> units = new ArrayList<RentalUnit>(rentalUnits.size());
+		
+		try (RentalUnitsReader reader = RentalUnitsReader.newRentalUnitsReader(inputFile, this, null,
+											ScheduleInterner.newScheduleInterner(this))) {
+			while (reader.hasNext()) {
+				units.add(reader.next());
+			}
+			
+			if (reader.hasFailed()) {
+				return null;
+			}
+		}
+		
+		final Map<RentalUnit, Integer> indexes = new IdentityHashMap<RentalUnit, Integer>(rentalUnits.size());
+		
+		for (int index = 0; index < rentalUnits.size(); index++) {
+			indexes.put(rentalUnits.get(index), index);
+		}
+		
+		final int[] unitIndexes = new int[units.size()];
+		
+		for (int unit = 0; unit < unitIndexes.length; unit++) {
+			final Integer index = indexes.get(units.get(unit));	// reused as it is
+			unitIndexes[unit] = (index == null) ? -1 : index;
+		}
+		
+		return newVersion(units, unitIndexes);
+	}
+	
+	/**
+	 * Returns a new version of the Rental Units of this RentalUnits instance
+	 * with some of them replaced, added or removed; all others are shared.
+	 * It takes O(n) time (n references and indexes are copied and n names
+	 * are hashed), but nothing is calculated: the rates column-wise and their
+	 * bounds of the new version are laid out on first use, and only the rows
+	 * of the new and changed units are calculated then; the rows of the rest
+	 * are carried over from this version (or, if they are not laid out yet,
+	 * from the one they would be carried over from)
+	 * @param updated The new or changed Rental Units, by name
+	 * @param removed The names of the Rental Units to remove
+	 * @return A new RentalUnits instance
+	 */
+	RentalUnits withRentalUnits(final Map<String, RentalUnit> updated,
+								final Set<String> removed) {
+		final List<RentalUnit> units = new ArrayList<RentalUnit>(rentalUnits.size() + updated.size());
+		final Set<String> added = new LinkedHashSet<String>(updated.keySet());
+		final int[] unitIndexes = new int[rentalUnits.size() + updated.size()];
+
+		for (int index = 0; index < rentalUnits.size(); index++) {
+			final RentalUnit rentalUnit = rentalUnits.get(index);
+			final String name = rentalUnit.getName();
+
+			if (removed.contains(name)) {
+				continue;
+			}
+
+			final RentalUnit update = updated.get(name);
+
+			if (update == null) {
+				unitIndexes[units.size()] = index;
+				units.add(rentalUnit);
+			} else {
+				unitIndexes[units.size()] = -1;
+				units.add(update);
+			}
+
+			added.remove(name);
+		}
+
+		for (String name : added) {
+			unitIndexes[units.size()] = -1;
+			units.add(updated.get(name));
+		}
+
+		return newVersion(units, Arrays.copyOf(unitIndexes, units.size()));
+	}
+
+	/**
+	 * Helper method for the above methods; It creates a new version of the Rental Units,
+	 * which carries over the rates column-wise and their bounds of the unchanged units
+	 * from this version or, if they are not laid out yet, from the one they would be
+	 * carried over from
+	 * @param units The Rental Units of the new version
+	 * @param indexes The index of every Rental Unit in this version (-1 if none);
+	 * they are changed to the indexes in the version carried over from
 	 */
-	private static RentalUnit parseRentalUnit (final JSONObject rentalUnitData) {
-		return RentalUnit.newRentalUnit(rentalUnitData);
+	private RentalUnits newVersion(final List<RentalUnit> units, final int[] indexes) {
+		RateColumns columns = rateColumns;
+		RateBounds bounds = rateBounds;
+
+		if (columns == null && bounds == null) {
+			columns = earlierColumns;	// not laid out yet: carried over from further back
+			bounds = earlierBounds;
+
+			if (columns == null && bounds == null) {
+				return new RentalUnits(units);
+			}
+
+			for (int unit = 0; unit < indexes.length; unit++) {
+				if (indexes[unit] >= 0) {
+					indexes[unit] = earlierIndexes[indexes[unit]];
+				}
+			}
+		}
+
+		return new RentalUnits(units, columns, bounds, indexes);
+	}
+
+	/**
+	 * Writes a binary snapshot of the Rental Units this RentalUnits instance contains;
+	 * it is stamped with the current last-modified time and size of the JSON file,
+	 * so the file must not have changed since the Rental Units were read from it
+	 * @param snapshotFile The filename of the snapshot to write
+	 * @param inputFile The filename of the JSON file the Rental Units were read from
+	 * @return Whether or not the snapshot was written
+	 */
+	public boolean writeSnapshot(final String snapshotFile, final String inputFile) {
+		try {
+			return RentalUnitsSnapshot.write(snapshotFile, inputFile, rentalUnits,
+												RentalUnitsSnapshot.stamp(inputFile));
+		} catch (IOException e) {
+			System.err.println("Cannot read the attributes of file: " + inputFile);
+			System.err.println(e.getMessage());
+		}
+		
+		return false;
 	}
 	
 	/**
@@ -73,6 +281,78 @@ public final class RentalUnits {
 		return rentalUnits;
 	}
 
+	/**
+	 * Returns the amount of Rental Units this RentalUnits instance contains
+	 */
+	public int size() {
+		return rentalUnits.size();
+	}
+	
+	/**
+	 * Returns the Rental Unit at a given position
+	 * @param index The position of the Rental Unit
+	 */
+	public RentalUnit getRentalUnit(final int index) {
+		return rentalUnits.get(index);
+	}
+	
+	/**
+	 * Returns the Rental Unit with a given name
+	 * @param name The name of the Rental Unit
+	 * @return The (last) Rental Unit with the name; null if there is none
+	 */
+	public RentalUnit getRentalUnit(final String name) {
+		return rentalUnitsByName.get(name);
+	}
+
+	/**
+	 * Gathers and returns the statistics of the sharing of the seasonal rates
+	 * of the Rental Units (see ScheduleInterner)
+	 */
+	public ScheduleStatistics getScheduleStatistics() {
+		return ScheduleStatistics.newScheduleStatistics(rentalUnits);
+	}
+
+	/**
+	 * Returns the rates of all Rental Units laid out column-wise; they are laid out
+	 * on first use (by any thread; the result is the same), carrying over
+	 * the rows of the unchanged units of an earlier version (see withRentalUnits())
+	 */
+	public RateColumns getRateColumns() {
+		RateColumns columns = rateColumns;
+		
+		if (columns == null) {
+			final RateColumns earlier = earlierColumns;
+			columns = (earlier == null)
+						? RateColumns.newRateColumns(this)
+						: RateColumns.newRateColumns(this, earlier, earlierIndexes);
+			rateColumns = columns;
+			earlierColumns = null;
+		}
+		
+		return columns;
+	}
+
+	/**
+	 * Returns the bounds of the rates of all Rental Units; they are gathered
+	 * on first use (by any thread; the result is the same), carrying over
+	 * those of the unchanged units of an earlier version (see withRentalUnits())
+	 */
+	public RateBounds getRateBounds() {
+		RateBounds bounds = rateBounds;
+		
+		if (bounds == null) {
+			final RateBounds earlier = earlierBounds;
+			bounds = (earlier == null)
+						? RateBounds.newRateBounds(this)
+						: RateBounds.newRateBounds(this, earlier, earlierIndexes);
+			rateBounds = bounds;
+			earlierBounds = null;
+		}
+		
+		return bounds;
+	}
+
 	/**
 	 * Useful for inspection
 	 */	
@@ -0,0 +1,170 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.simple.JSONObject;
+
+/**
+ * A versioned catalogue of Rental Units that is edited while it is read.
+ * Every version is immutable and published atomically (by a volatile write):
+ * a reader takes the current version once (by getVersion() or getRentalUnits()),
+ * without any lock, and quotes against it consistently however many edits
+ * are published meanwhile. An edit is copy-on-write: only the edited
+ * rental units are created again (keeping their booked nights); all others,
+ * with their compiled rates, are shared with the previous version.
+ * Edits are serialized among themselves, never with the readers;
+ * a version that no reader holds any more is reclaimed by the garbage collector
+ * @author pek
+ */
+public final class RentalUnitsCatalogue {
+	private final Object writeLock = new Object();	// serializes the edits
+	private volatile Version version;				// The current version
+
+	/**
+	 * A version of the catalogue
+	 */
+	public static final class Version {
+		private final long number;				// The number of the version
+		private final RentalUnits rentalUnits;	// The rental units of the version
+
+		private Version(final long number, final RentalUnits rentalUnits) {
+			this.number = number;
+			this.rentalUnits = rentalUnits;
+		}
+
+		public long getNumber() {
+			return number;
+		}
+
+		public RentalUnits getRentalUnits() {
+			return rentalUnits;
+		}
+
+		/**
+		 * Useful for inspection
+		 */
+		@Override
+		public String toString() {
+			return "Version " + number + ": " + rentalUnits.size() + " rental units";
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param rentalUnits The rental units of the first version
+	 */
+	private RentalUnitsCatalogue(final RentalUnits rentalUnits) {
+		this.version = new Version(0, rentalUnits);
+	}
+
+	/**
+	 * Factory method idiom to create a RentalUnitsCatalogue
+	 * @param rentalUnits The rental units of the first version (number 0)
+	 * @return A new RentalUnitsCatalogue instance
+	 */
+	public static RentalUnitsCatalogue newRentalUnitsCatalogue(final RentalUnits rentalUnits) {
+		return new RentalUnitsCatalogue(rentalUnits);
+	}
+
+	/**
+	 * Returns the current version; it never changes, so it should be taken once
+	 * for every (batch of) quote(s)
+	 */
+	public Version getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the rental units of the current version (see getVersion())
+	 */
+	public RentalUnits getRentalUnits() {
+		return version.rentalUnits;
+	}
+
+	/**
+	 * Adds or changes a rental unit and publishes the new version
+	 * @param rentalUnitData The rental unit, as in the JSON file
+	 * (see RentalUnit.newRentalUnit(JSONObject))
+	 * @return The new version; the current one if the rental unit is unchanged
+	 * @throws IllegalArgumentException If the rental unit has no name
+	 */
+	public Version update(final JSONObject rentalUnitData) {
+		return edit(Collections.singletonList(rentalUnitData), Collections.<String>emptySet());
+	}
+
+	/**
+	 * Adds or changes some rental units at once, in one new version
+	 * (cheaper than a version for each of them)
+	 * @param rentalUnitsData The rental units, as in the JSON file
+	 * @return The new version; the current one if no rental unit is changed
+	 * @throws IllegalArgumentException If a rental unit has no name
+	 * (nothing is published then)
+	 */
+	public Version update(final List<JSONObject> rentalUnitsData) {
+		return edit(rentalUnitsData, Collections.<String>emptySet());
+	}
+
+	/**
+	 * Removes a rental unit and publishes the new version
+	 * @param name The name of the rental unit
+	 * @return The new version; the current one if there is no such rental unit
+	 */
+	public Version remove(final String name) {
+		return edit(Collections.<JSONObject>emptyList(), Collections.singleton(name));
+	}
+
+	/**
+	 * Helper method for the above methods; It creates the edited rental units
+	 * (all of them before anything is published) and publishes the new version.
+	 * Their seasonal rates are shared among themselves only (not with
+	 * the current version), so that no interner keeps old versions reachable
+	 */
+	private Version edit(final List<JSONObject> rentalUnitsData, final Set<String> names) {
+		synchronized (writeLock) {
+			final Version current = version;
+			final RentalUnits rentalUnits = current.rentalUnits;
+			final ScheduleInterner interner = ScheduleInterner.newScheduleInterner(null);
+			final Map<String, RentalUnit> updated = new HashMap<String, RentalUnit>();
+			final Set<String> removed = new HashSet<String>();
+
+			for (JSONObject rentalUnitData : rentalUnitsData) {
+				final Object name = rentalUnitData.get("name");
+
+				if (!(name instanceof String)) {
+					throw new IllegalArgumentException("A rental unit without a name: "
+														+ rentalUnitData);
+				}
+
+				final RentalUnit previous = updated.containsKey(name)
+											? updated.get(name)
+											: rentalUnits.getRentalUnit((String) name);
+				final RentalUnit rentalUnit
+					= RentalUnit.newRentalUnit(rentalUnitData, previous, interner);
+
+				if (rentalUnit != previous) {
+					updated.put((String) name, rentalUnit);
+				}
+			}
+
+			for (String name : names) {
+				if (rentalUnits.getRentalUnit(name) != null) {
+					removed.add(name);
+				}
+			}
+
+			if (updated.isEmpty() && removed.isEmpty()) {
+				return current;
+			}
+
+			version = new Version(current.number + 1,
+									rentalUnits.withRentalUnits(updated, removed));
+			return version;
+		}
+	}
+
+}
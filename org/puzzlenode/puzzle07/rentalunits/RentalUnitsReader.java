@@ -0,0 +1,314 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Streams the Rental Units described in a JSON input file, one at a time.
+ * The file is parsed token by token (by the 'JSON.simple' ContentHandler API)
+ * and the parsing pauses after every rental unit; so only the JSONObject
+ * (and the compiled rates) of the current rental unit is ever held in memory.
+ * The readers of RentalUnits, which keep all the units anyway, share
+ * the schedules of equal seasonal rates through a ScheduleInterner;
+ * the plain streaming readers (see the public factory methods) do not,
+ * since the interner would keep every distinct schedule in memory
+ * @author pek
+ */
+public final class RentalUnitsReader implements Iterator<RentalUnit>, Closeable {
+	private final String inputFile;		// The filename of the JSON file
+	private final RentalUnits previous;	// The previous version of the units; null if none
+	private final Predicate<String> names;	// The names of the units to read; null for all
+	private final ScheduleInterner interner;	// The interner of their seasonal rates; or null
+	private final JSONParser parser = new JSONParser(); // The token-level parser
+	private final RentalUnitHandler handler = new RentalUnitHandler(); // its handler
+	private Reader input;				// The open JSON file; null when exhausted
+	private boolean resume = false;		// Whether or not the parsing has started
+	private RentalUnit next = null;		// The rental unit to return next
+	private boolean failed;				// Whether or not reading or parsing has failed
+
+	/**
+	 * Constructor
+	 * @param inputFile The filename of the JSON file
+	 * @param input The open JSON file
+	 * @param previous The previous version of the rental units; null if none
+	 * @param names The names of the rental units to read; null for all
+	 * @param interner The interner of their seasonal rates; null for none
+	 */
+	private RentalUnitsReader(final String inputFile, final Reader input,
+								final RentalUnits previous, final Predicate<String> names,
+								final ScheduleInterner interner) {
+		this.inputFile = inputFile;
+		this.input = input;
+		this.previous = previous;
+		this.names = names;
+		this.interner = interner;
+		this.failed = (input == null);
+	}
+
+	/**
+	 * Factory method idiom to create a RentalUnitsReader for a given JSON file
+	 * @param inputFile The filename of the JSON/text file to open and parse
+	 * @return A new RentalUnitsReader instance
+	 */
+	public static RentalUnitsReader newRentalUnitsReader(final String inputFile) {
+		return newRentalUnitsReader(inputFile, null, null, null);
+	}
+
+	/**
+	 * Factory method idiom to create a RentalUnitsReader for some of the rental units
+	 * of a given JSON file: the others are skipped (and their rates never compiled)
+	 * @param inputFile The filename of the JSON/text file to open and parse
+	 * @param names The names of the rental units to read
+	 * @return A new RentalUnitsReader instance
+	 */
+	public static RentalUnitsReader newRentalUnitsReader(final String inputFile,
+															final Predicate<String> names) {
+		return newRentalUnitsReader(inputFile, null, names, null);
+	}
+
+	/**
+	 * Factory method idiom to create a RentalUnitsReader for (some of) the rental units
+	 * of a given JSON file, which reuses the unchanged rental units of a previous
+	 * version of it (see RentalUnit.newRentalUnit(JSONObject, RentalUnit, ScheduleInterner))
+	 * and shares the schedules of equal seasonal rates through a given interner
+	 * @param inputFile The filename of the JSON/text file to open and parse
+	 * @param previous The previous version of the rental units; null if none
+	 * @param names The names of the rental units to read; null for all
+	 * @param interner The interner of their seasonal rates; null for none
+	 * @return A new RentalUnitsReader instance
+	 */
+	static RentalUnitsReader newRentalUnitsReader(final String inputFile,
+													final RentalUnits previous,
+													final Predicate<String> names,
+													final ScheduleInterner interner) {
+		Reader input = null;
+
+		try {
+			input = new BufferedReader(new FileReader(new File(inputFile)));
+		} catch (FileNotFoundException e) {
+			System.err.println("File " + inputFile + " does not exist");
+			System.err.println(e.getMessage());
+		}
+
+		return new RentalUnitsReader(inputFile, input, previous, names, interner);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null && input != null) {
+			next = readRentalUnit();
+		}
+
+		return next != null;
+	}
+
+	@Override
+	public RentalUnit next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		final RentalUnit rentalUnit = next;
+		next = null;
+		return rentalUnit;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns whether or not the JSON file could not be opened, read or parsed
+	 * (to its end, or as far as it has been read)
+	 */
+	public boolean hasFailed() {
+		return failed;
+	}
+
+	/**
+	 * Closes the JSON file; a reader that is read to the end closes itself
+	 */
+	@Override
+	public void close() {
+		if (input != null) {
+			try {
+				input.close();
+			} catch (IOException e) {
+				System.err.println("Cannot close file: " + inputFile);
+				System.err.println(e.getMessage());
+			}
+
+			input = null;
+		}
+	}
+
+	/**
+	 * Helper method for the above methods; It parses the JSON file
+	 * until the end of the next rental unit (to read)
+	 * @return The next RentalUnit instance; null at the end of the file
+	 */
+	private RentalUnit readRentalUnit() {
+		RentalUnit rentalUnit = null;
+
+		try {
+			JSONObject rentalUnitData;
+
+			do {
+				parser.parse(input, handler, resume);
+				resume = true;
+				rentalUnitData = handler.takeRentalUnitData();
+			} while (rentalUnitData != null && names != null
+						&& !names.test((String) rentalUnitData.get("name")));
+
+			if (rentalUnitData != null) {
+				rentalUnit = RentalUnit.newRentalUnit(rentalUnitData,
+								(previous == null)
+									? null
+									: previous.getRentalUnit((String) rentalUnitData.get("name")),
+								interner);
+			}
+		} catch (IOException e) {
+			failed = true;
+			System.err.println("Cannot read from file: " + inputFile);
+			System.err.println(e.getMessage());
+		} catch (ParseException e) {
+			failed = true;
+			System.err.println("Cannot parse JSON file: " + inputFile);
+			System.err.println(e);	// its message is in toString() (e.g. the position)
+		}
+
+		if (rentalUnit == null) {
+			close();
+		}
+
+		return rentalUnit;
+	}
+
+	/**
+	 * Builds the JSONObject of one rental unit (an element of the top-level
+	 * JSON array) at a time and pauses the parsing when it is complete
+	 */
+	private static final class RentalUnitHandler implements ContentHandler {
+		private final Deque<Object> containers = new ArrayDeque<Object>(); // open objects/arrays
+		private final Deque<String> keys = new ArrayDeque<String>();	// open object entries
+		private boolean topArrayStarted = false;	// Whether the top-level array is open
+		private JSONObject rentalUnitData = null;	// The completed rental unit
+
+		/**
+		 * Returns (and forgets) the last completed rental unit, if any
+		 */
+		JSONObject takeRentalUnitData() {
+			final JSONObject data = rentalUnitData;
+			rentalUnitData = null;
+			return data;
+		}
+
+		@Override
+		public void startJSON() {
+			containers.clear();
+			keys.clear();
+			topArrayStarted = false;
+			rentalUnitData = null;
+		}
+
+		@Override
+		public void endJSON() {
+		}
+
+		@Override
+		public boolean startObject() {
+			open(new JSONObject());
+			return true;
+		}
+
+		@Override
+		public boolean endObject() {
+			final Object object = containers.pop();
+
+			if (containers.isEmpty()) {
+				rentalUnitData = (JSONObject) object;
+				return false;
+			}
+
+			return true;
+		}
+
+		@Override
+		public boolean startObjectEntry(final String key) {
+			keys.push(key);
+			return true;
+		}
+
+		@Override
+		public boolean endObjectEntry() {
+			keys.pop();
+			return true;
+		}
+
+		@Override
+		public boolean startArray() {
+			if (!topArrayStarted) {
+				topArrayStarted = true;
+			} else {
+				open(new JSONArray());
+			}
+
+			return true;
+		}
+
+		@Override
+		public boolean endArray() {
+			if (!containers.isEmpty()) {
+				containers.pop();
+			}
+
+			return true;
+		}
+
+		@Override
+		public boolean primitive(final Object value) {
+			if (!containers.isEmpty()) {
+				add(value);
+			}
+
+			return true;
+		}
+
+		private void open(final Object container) {
+			if (!containers.isEmpty()) {
+				add(container);
+			}
+
+			containers.push(container);
+		}
+
+		@SuppressWarnings("unchecked")
+		private void add(final Object value) {
+			final Object container = containers.peek();
+
+			if (container instanceof JSONArray) {
+				((JSONArray) container).add(value);
+			} else {
+				((JSONObject) container).put(keys.peek(), value);
+			}
+		}
+	}
+
+}
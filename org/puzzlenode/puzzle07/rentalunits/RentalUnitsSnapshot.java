@@ -0,0 +1,476 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary snapshot of the rental units of a JSON file.
+ * After a header (magic, version, the last-modified time and size
+ * of the JSON file, the counts and a CRC32 checksum of the payload)
+ * the payload holds the columns: cleaning fees and rates (doubles),
+ * the first season and the name offset of every unit (ints),
+ * the starting and ending dates of the seasons (shorts) and the names (UTF-8).
+ * A snapshot is read with a single sequential read and bulk copies
+ * into primitive arrays; no text is parsed
+ * @author pek
+ */
+final class RentalUnitsSnapshot {
+	private static final int MAGIC = 0x50555A53;	// "PUZS"
+	private static final int VERSION = 1;			// The version of the format
+	private static final int HEADER_BYTES = 40;		// The size of the header
+	// the max size of a snapshot: it is read into (or mapped to) a single buffer
+	private static final long MAX_BYTES = Integer.MAX_VALUE - 8;
+
+	private RentalUnitsSnapshot() {
+	}
+
+	/**
+	 * Reads the rental units of a snapshot
+	 * @param snapshotFile The filename of the snapshot
+	 * @param inputFile The filename of the JSON file of the snapshot
+	 * @return The rental units; null if the snapshot is missing, stale
+	 * (i.e. the JSON file has changed since) or corrupt
+	 */
+	static List<RentalUnit> read(final String snapshotFile, final String inputFile) {
+		final Path snapshot = Paths.get(snapshotFile);
+
+		if (!Files.isRegularFile(snapshot)) {
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+			if (isTooLarge(channel.size(), snapshotFile)) {
+				return null;
+			}
+
+			final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				// a sequential read of the whole file
+			}
+
+			buffer.flip();
+			final int[] counts = readHeader(buffer, snapshotFile, inputFile);
+
+			if (counts == null) {
+				return null;
+			}
+
+			if (checksum(buffer) != counts[3]) {
+				System.err.println("Corrupt snapshot: " + snapshotFile);
+				return null;
+			}
+
+			return readPayload(buffer, counts[0], counts[1], counts[2]);
+		} catch (IOException e) {
+			System.err.println("Cannot read from file: " + snapshotFile);
+			System.err.println(e.getMessage());
+		} catch (RuntimeException e) {
+			// e.g. offsets of a corrupt payload that happens to match its checksum
+			System.err.println("Corrupt snapshot: " + snapshotFile);
+			System.err.println(e);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Maps a snapshot to load its rental units on demand (see LazyRentalUnits):
+	 * only the header, the name offsets and the names are read up front.
+	 * Unlike read(), the checksum is not verified, since that would read
+	 * the whole snapshot; only the sizes of the columns are
+	 * @param snapshotFile The filename of the snapshot
+	 * @param inputFile The filename of the JSON file of the snapshot
+	 * @return The loader of the rental units; null if the snapshot is missing,
+	 * stale (i.e. the JSON file has changed since) or of another size
+	 */
+	static LazyRentalUnits.Loader map(final String snapshotFile, final String inputFile) {
+		final Path snapshot = Paths.get(snapshotFile);
+
+		if (!Files.isRegularFile(snapshot)) {
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+			if (isTooLarge(channel.size(), snapshotFile)) {
+				return null;
+			}
+
+			final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			final int[] counts = readHeader(buffer, snapshotFile, inputFile);
+
+			if (counts == null) {
+				return null;
+			}
+
+			return new SnapshotLoader(buffer.slice(), counts[0], counts[1]);
+		} catch (IOException e) {
+			System.err.println("Cannot read from file: " + snapshotFile);
+			System.err.println(e.getMessage());
+		} catch (RuntimeException e) {
+			System.err.println("Corrupt snapshot: " + snapshotFile);
+			System.err.println(e);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Helper method for the above methods; It reads and checks the header,
+	 * including the counts against the size of the payload (the checksum
+	 * covers the payload only)
+	 * @return The amount of units, of seasons and of name bytes
+	 * and the checksum of the payload; null if the buffer is not
+	 * a snapshot, the snapshot is stale or its counts are corrupt
+	 */
+	private static int[] readHeader(final ByteBuffer buffer, final String snapshotFile,
+									final String inputFile) throws IOException {
+		if (buffer.remaining() < HEADER_BYTES
+			|| buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			System.err.println("Not a snapshot (version " + VERSION + "): " + snapshotFile);
+			return null;
+		}
+
+		final long sourceModified = buffer.getLong();
+		final long sourceSize = buffer.getLong();
+
+		if (!isSourceOf(inputFile, sourceModified, sourceSize)) {
+			return null;
+		}
+
+		final int units = buffer.getInt();
+		final int seasons = buffer.getInt();
+		final int nameBytes = buffer.getInt();
+		final int checksum = buffer.getInt();
+
+		if (units < 0 || seasons < 0 || nameBytes < 0
+			|| buffer.remaining() != 8L * units + 8L * seasons + 8L * (units + 1)
+										+ 4L * seasons + nameBytes) {
+			System.err.println("Corrupt snapshot: " + snapshotFile);
+			return null;
+		}
+
+		return new int[] {units, seasons, nameBytes, checksum};
+	}
+
+	/**
+	 * Helper method for the above method; It copies the columns
+	 * into primitive arrays and creates the rental units
+	 */
+	private static List<RentalUnit> readPayload(final ByteBuffer buffer,
+												final int units, final int seasons,
+												final int nameBytes) {
+		final double[] fees = new double[units];
+		final double[] rates = new double[seasons];
+		final int[] firstSeasons = new int[units + 1];
+		final int[] nameOffsets = new int[units + 1];
+		final short[] starts = new short[seasons];
+		final short[] ends = new short[seasons];
+		final byte[] names = new byte[nameBytes];
+
+		buffer.asDoubleBuffer().get(fees);
+		buffer.position(buffer.position() + 8 * units);
+		buffer.asDoubleBuffer().get(rates);
+		buffer.position(buffer.position() + 8 * seasons);
+		buffer.asIntBuffer().get(firstSeasons);
+		buffer.position(buffer.position() + 4 * (units + 1));
+		buffer.asIntBuffer().get(nameOffsets);
+		buffer.position(buffer.position() + 4 * (units + 1));
+		buffer.asShortBuffer().get(starts);
+		buffer.position(buffer.position() + 2 * seasons);
+		buffer.asShortBuffer().get(ends);
+		buffer.position(buffer.position() + 2 * seasons);
+		buffer.get(names);
+
+		final List<RentalUnit> rentalUnits = new ArrayList<RentalUnit>(units);
+		final ScheduleInterner interner = ScheduleInterner.newScheduleInterner(null);
+
+		for (int unit = 0; unit < units; unit++) {
+			final List<SeasonalRate> seasonalRates
+				= new ArrayList<SeasonalRate>(firstSeasons[unit + 1] - firstSeasons[unit]);
+
+			for (int season = firstSeasons[unit]; season < firstSeasons[unit + 1]; season++) {
+				seasonalRates.add(
+					SeasonalRate.newSeasonalRate(starts[season], ends[season], rates[season]));
+			}
+
+			final String name = new String(names, nameOffsets[unit],
+											nameOffsets[unit + 1] - nameOffsets[unit],
+											StandardCharsets.UTF_8);
+			rentalUnits.add(RentalUnit.newRentalUnit(name, fees[unit], seasonalRates, interner));
+		}
+
+		return rentalUnits;
+	}
+
+	/**
+	 * Writes a snapshot of given rental units; the snapshot is written
+	 * to a temporary file first and then moved into place
+	 * @param snapshotFile The filename of the snapshot
+	 * @param inputFile The filename of the JSON file of the rental units
+	 * @param rentalUnits The rental units
+	 * @param source The last-modified time and the size of the JSON file
+	 * when the rental units were read from it, before they were parsed
+	 * (see stamp()); so a file that changed meanwhile is never taken as current
+	 * @return Whether or not the snapshot was written
+	 */
+	static boolean write(final String snapshotFile, final String inputFile,
+							final List<RentalUnit> rentalUnits, final long[] source) {
+		final Path snapshot = Paths.get(snapshotFile).toAbsolutePath();
+		Path temporary = null;
+
+		try {
+			final ByteBuffer buffer = writePayload(rentalUnits, snapshotFile);
+
+			if (buffer == null) {
+				return false;
+			}
+
+			final int seasons = buffer.getInt(0);
+			final int nameBytes = buffer.getInt(4);
+			buffer.position(8);
+			final int checksum = checksum(buffer.duplicate());
+
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(MAGIC).putInt(VERSION)
+					.putLong(source[0])
+					.putLong(source[1])
+					.putInt(rentalUnits.size()).putInt(seasons).putInt(nameBytes)
+					.putInt(checksum)
+					.flip();
+
+			temporary = Files.createTempFile(snapshot.getParent(), "snapshot", ".tmp");
+
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				while (header.hasRemaining()) {
+					channel.write(header);
+				}
+
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+
+			Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (IOException e) {
+			System.err.println("Cannot write file: " + snapshotFile);
+			System.err.println(e.getMessage());
+		} finally {
+			deleteQuietly(temporary);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Helper method for the above method; It lays out the columns
+	 * @return A buffer with the amount of seasons and of name bytes
+	 * (2 ints) followed by the payload; null if the snapshot would be
+	 * too large (see MAX_BYTES)
+	 */
+	private static ByteBuffer writePayload(final List<RentalUnit> rentalUnits,
+											final String snapshotFile) {
+		final int units = rentalUnits.size();
+		final List<byte[]> names = new ArrayList<byte[]>(units);
+		long seasonCount = 0;
+		long nameByteCount = 0;
+
+		for (RentalUnit rentalUnit : rentalUnits) {
+			final byte[] name = rentalUnit.getName().getBytes(StandardCharsets.UTF_8);
+			names.add(name);
+			nameByteCount += name.length;
+			seasonCount += rentalUnit.getSeasonalRates().size();
+		}
+
+		final long bytes = snapshotBytes(units, seasonCount, nameByteCount);
+
+		if (isTooLarge(bytes, snapshotFile)) {
+			return null;
+		}
+
+		final int seasons = (int) seasonCount;
+		final int nameBytes = (int) nameByteCount;
+		final ByteBuffer buffer = ByteBuffer.allocate((int) bytes - HEADER_BYTES + 8);
+		buffer.putInt(seasons).putInt(nameBytes);
+
+		for (RentalUnit rentalUnit : rentalUnits) {
+			buffer.putDouble(rentalUnit.getCleaningFee());
+		}
+
+		for (RentalUnit rentalUnit : rentalUnits) {
+			for (SeasonalRate seasonalRate : rentalUnit.getSeasonalRates()) {
+				buffer.putDouble(seasonalRate.getRate());
+			}
+		}
+
+		int firstSeason = 0;
+
+		for (RentalUnit rentalUnit : rentalUnits) {
+			buffer.putInt(firstSeason);
+			firstSeason += rentalUnit.getSeasonalRates().size();
+		}
+
+		buffer.putInt(firstSeason);
+		int nameOffset = 0;
+
+		for (byte[] name : names) {
+			buffer.putInt(nameOffset);
+			nameOffset += name.length;
+		}
+
+		buffer.putInt(nameOffset);
+
+		for (RentalUnit rentalUnit : rentalUnits) {
+			for (SeasonalRate seasonalRate : rentalUnit.getSeasonalRates()) {
+				buffer.putShort((short) seasonalRate.getStart());
+			}
+		}
+
+		for (RentalUnit rentalUnit : rentalUnits) {
+			for (SeasonalRate seasonalRate : rentalUnit.getSeasonalRates()) {
+				buffer.putShort((short) seasonalRate.getEnd());
+			}
+		}
+
+		for (byte[] name : names) {
+			buffer.put(name);
+		}
+
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Helper method for the above methods; It returns the size of a snapshot
+	 * (the header and the columns) in a long, so that it never overflows
+	 */
+	private static long snapshotBytes(final long units, final long seasons, final long nameBytes) {
+		return HEADER_BYTES + 8 * units + 8 * seasons + 8 * (units + 1) + 4 * seasons + nameBytes;
+	}
+
+	/**
+	 * Helper method for the above methods; It tells (and reports) whether or not
+	 * a snapshot of a given size is too large to be read into a single buffer
+	 */
+	private static boolean isTooLarge(final long bytes, final String snapshotFile) {
+		if (bytes <= MAX_BYTES) {
+			return false;
+		}
+
+		System.err.println("Snapshot too large (" + bytes + " bytes, max " + MAX_BYTES + "): "
+							+ snapshotFile);
+		return true;
+	}
+
+	/**
+	 * Loads the rental units of a mapped snapshot by position,
+	 * straight from its columns
+	 */
+	private static final class SnapshotLoader implements LazyRentalUnits.Loader {
+		private final ByteBuffer payload;	// The mapped payload
+		private final int fees;				// The offset of the cleaning fees column
+		private final int rates;			// The offset of the rates column
+		private final int firstSeasons;		// The offset of the first seasons column
+		private final int starts;			// The offset of the starting dates column
+		private final int ends;				// The offset of the ending dates column
+		private final List<String> names;	// The names of the rental units
+
+		SnapshotLoader(final ByteBuffer payload, final int units, final int seasons) {
+			this.payload = payload;
+			this.fees = 0;
+			this.rates = fees + 8 * units;
+			this.firstSeasons = rates + 8 * seasons;
+			final int nameOffsets = firstSeasons + 4 * (units + 1);
+			this.starts = nameOffsets + 4 * (units + 1);
+			this.ends = starts + 2 * seasons;
+			final int nameBytes = ends + 2 * seasons;
+			final List<String> names = new ArrayList<String>(units);
+
+			for (int unit = 0; unit < units; unit++) {
+				final int offset = payload.getInt(nameOffsets + 4 * unit);
+				final byte[] name = new byte[payload.getInt(nameOffsets + 4 * (unit + 1)) - offset];
+				payload.duplicate().position(nameBytes + offset).get(name);
+				names.add(new String(name, StandardCharsets.UTF_8));
+			}
+
+			this.names = Collections.unmodifiableList(names);
+		}
+
+		@Override
+		public List<String> getNames() {
+			return names;
+		}
+
+		@Override
+		public RentalUnit load(final int index) {
+			final int first = payload.getInt(firstSeasons + 4 * index);
+			final int last = payload.getInt(firstSeasons + 4 * (index + 1));
+			final List<SeasonalRate> seasonalRates = new ArrayList<SeasonalRate>(last - first);
+
+			for (int season = first; season < last; season++) {
+				seasonalRates.add(SeasonalRate.newSeasonalRate(payload.getShort(starts + 2 * season),
+																payload.getShort(ends + 2 * season),
+																payload.getDouble(rates + 8 * season)));
+			}
+
+			return RentalUnit.newRentalUnit(names.get(index), payload.getDouble(fees + 8 * index),
+											seasonalRates, ScheduleInterner.newScheduleInterner(null));
+		}
+	}
+
+	// --- helper methods ---
+
+	/**
+	 * Returns the last-modified time (millis) and the size of a JSON file,
+	 * as recorded in the snapshots of it
+	 * @param inputFile The filename of the JSON file
+	 * @throws IOException If the attributes of the file cannot be read
+	 */
+	static long[] stamp(final String inputFile) throws IOException {
+		final Path source = Paths.get(inputFile);
+		return new long[] {Files.getLastModifiedTime(source).toMillis(), Files.size(source)};
+	}
+
+	private static boolean isSourceOf(final String inputFile,
+										final long sourceModified, final long sourceSize)
+			throws IOException {
+		final Path source = Paths.get(inputFile);
+		return Files.isRegularFile(source)
+				&& Files.getLastModifiedTime(source).toMillis() == sourceModified
+				&& Files.size(source) == sourceSize;
+	}
+
+	/**
+	 * Returns the CRC32 checksum of the remaining bytes of a buffer;
+	 * the position of the buffer is not changed
+	 */
+	private static int checksum(final ByteBuffer buffer) {
+		final CRC32 crc = new CRC32();
+		crc.update(buffer.duplicate());
+		return (int) crc.getValue();
+	}
+
+	private static void deleteQuietly(final Path file) {
+		if (file != null) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				System.err.println("Cannot delete file: " + file);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,209 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the Rental Units of a JSON file up to date: the directory of the file
+ * is watched (by a WatchService) and every time the file changes it is read
+ * again, reusing the unchanged rental units (see RentalUnits.reload()).
+ * Every version is an immutable RentalUnits instance, published atomically
+ * (by a volatile write); so a reader that takes the current version once
+ * (by getRentalUnits()) never sees a mix of old and new rental units
+ * and is never blocked by a reload
+ * @author pek
+ */
+public final class RentalUnitsWatcher implements Closeable {
+	// the time without further changes before a changed file is read again,
+	// so that a file that is being written is read once, when complete
+	private static final long SETTLE_MILLIS = 200;
+
+	private final Path inputFile;				// The JSON file
+	private final WatchService watchService;	// The watcher of its directory
+	private final Thread thread;				// The thread reloading the file
+	private volatile RentalUnits rentalUnits;	// The current version of the rental units
+	private volatile int reloads = 0;			// The amount of versions published since
+	private long lastModified;					// The last-modified time of the current version
+	private long size;							// The size of the current version
+
+	/**
+	 * Constructor
+	 * @param inputFile The JSON file
+	 * @param watchService The watcher of its directory
+	 */
+	private RentalUnitsWatcher(final Path inputFile, final WatchService watchService) {
+		this.inputFile = inputFile;
+		this.watchService = watchService;
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				watch();
+			}
+		}, "RentalUnitsWatcher " + inputFile.getFileName());
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * Factory method idiom to create a RentalUnitsWatcher of a given JSON file;
+	 * the file is read and then watched until the watcher is closed
+	 * @param inputFile The filename of the JSON/text file to read and watch
+	 * @return A new RentalUnitsWatcher instance
+	 * @throws IOException If the directory of the file cannot be watched
+	 */
+	public static RentalUnitsWatcher newRentalUnitsWatcher(final String inputFile)
+			throws IOException {
+		final Path path = Paths.get(inputFile).toAbsolutePath();
+		final WatchService watchService = FileSystems.getDefault().newWatchService();
+		path.getParent().register(watchService,
+									StandardWatchEventKinds.ENTRY_CREATE,
+									StandardWatchEventKinds.ENTRY_MODIFY);
+
+		final RentalUnitsWatcher watcher = new RentalUnitsWatcher(path, watchService);
+		watcher.lastModified = lastModified(path);
+		watcher.size = size(path);
+		watcher.rentalUnits = RentalUnits.newRentalUnits(inputFile);
+		watcher.thread.start();
+		return watcher;
+	}
+
+	/**
+	 * Returns the current version of the rental units; it never changes,
+	 * so it should be taken once for every (batch of) quote(s)
+	 */
+	public RentalUnits getRentalUnits() {
+		return rentalUnits;
+	}
+
+	/**
+	 * Returns the amount of versions of the rental units published
+	 * since the first one
+	 */
+	public int getReloads() {
+		return reloads;
+	}
+
+	/**
+	 * Stops watching the JSON file
+	 */
+	@Override
+	public void close() {
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			System.err.println("Cannot stop watching file: " + inputFile);
+			System.err.println(e.getMessage());
+		}
+	}
+
+	// --- helper methods for the watching thread ---
+
+	/**
+	 * Waits for changes of the JSON file and reloads it, until closed
+	 */
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				boolean changed = false;
+
+				// wait until the directory settles, collecting its changes
+				do {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+									|| inputFile.getFileName().equals(event.context());
+					}
+
+					key.reset();
+				} while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+
+				if (changed) {
+					reload();
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			// closed; stop watching
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Reads the JSON file again, if it has changed since the current version,
+	 * and publishes the new version; a file that cannot be read or parsed
+	 * completely is ignored, keeping the current version
+	 */
+	private void reload() {
+		final long modified = lastModified(inputFile);
+		final long newSize = size(inputFile);
+
+		if (modified == lastModified && newSize == size) {
+			return;
+		}
+
+		final RentalUnits previous = rentalUnits;
+		RentalUnits reloaded = null;
+
+		try {
+			reloaded = previous.reload(inputFile.toString());
+		} catch (RuntimeException e) {
+			// e.g. a JSON file of unexpected structure; keep watching
+			System.err.println("Cannot parse JSON file: " + inputFile);
+			System.err.println(e.getMessage());
+		}
+
+		if (reloaded == null) {
+			System.err.println("Cannot reload file: " + inputFile + "; the previous version is kept");
+			return;
+		}
+
+		lastModified = modified;
+		size = newSize;
+		rentalUnits = reloaded;
+		reloads++;
+
+		int compiled = 0;
+		int removed = 0;
+
+		for (RentalUnit rentalUnit : reloaded.getRentalUnits()) {
+			if (previous.getRentalUnit(rentalUnit.getName()) != rentalUnit) {
+				compiled++;
+			}
+		}
+
+		for (RentalUnit rentalUnit : previous.getRentalUnits()) {
+			if (reloaded.getRentalUnit(rentalUnit.getName()) == null) {
+				removed++;
+			}
+		}
+
+		System.out.println(String.format("Reloaded %s: %d rental units, %d new or changed, %d removed",
+											inputFile, reloaded.size(), compiled, removed));
+	}
+
+	private static long lastModified(final Path path) {
+		try {
+			return Files.getLastModifiedTime(path).to(TimeUnit.NANOSECONDS);
+		} catch (IOException e) {
+			return -1L;
+		}
+	}
+
+	private static long size(final Path path) {
+		try {
+			return Files.size(path);
+		} catch (IOException e) {
+			return -1L;
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The seasonal rates of a rental unit along with their compiled tables.
+ * A Schedule is immutable, so rental units with identical seasonal rates
+ * share one Schedule (a flyweight; see ScheduleInterner)
+ * @author pek
+ */
+final class Schedule {
+	private final List<SeasonalRate> seasonalRates;	// The seasonal rates (unmodifiable)
+	private final RateTable rateTable;				// The compiled seasonal rates
+	private volatile CentsRateTable centsRateTable;	// The same in cents; compiled on first use
+
+	/**
+	 * Constructor
+	 * @param seasonalRates The seasonal rates (unmodifiable)
+	 */
+	private Schedule(final List<SeasonalRate> seasonalRates) {
+		this.seasonalRates = seasonalRates;
+		this.rateTable = RateTable.newRateTable(seasonalRates);
+	}
+
+	/**
+	 * Factory method idiom to create (and compile) a Schedule of given seasonal rates
+	 * @param seasonalRates The given seasonal rates (not to be modified afterwards)
+	 * @return A new Schedule instance
+	 */
+	static Schedule newSchedule(final List<SeasonalRate> seasonalRates) {
+		return new Schedule(Collections.unmodifiableList(seasonalRates));
+	}
+
+	List<SeasonalRate> getSeasonalRates() {
+		return seasonalRates;
+	}
+
+	RateTable getRateTable() {
+		return rateTable;
+	}
+
+	/**
+	 * Returns the seasonal rates compiled in whole cents; they are compiled
+	 * on first use (by any thread; the result is the same)
+	 */
+	CentsRateTable getCentsRateTable() {
+		CentsRateTable table = centsRateTable;
+
+		if (table == null) {
+			table = CentsRateTable.newCentsRateTable(seasonalRates);
+			centsRateTable = table;
+		}
+
+		return table;
+	}
+
+}
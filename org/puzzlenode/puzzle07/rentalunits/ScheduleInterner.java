@@ -0,0 +1,80 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Canonicalises the seasonal rates of the rental units while they are loaded:
+ * equal SeasonalRates are replaced by one instance, and equal lists of them
+ * (the same seasons, in the same order) by one Schedule, which is compiled
+ * only once. It is meant for one load (i.e. one thread) at a time
+ * @author pek
+ */
+final class ScheduleInterner {
+	private final Map<List<SeasonalRate>, Schedule> schedules
+		= new HashMap<List<SeasonalRate>, Schedule>();	// the schedules by seasonal rates
+	private final Map<SeasonalRate, SeasonalRate> seasonalRates
+		= new HashMap<SeasonalRate, SeasonalRate>();	// the canonical seasonal rates
+
+	/**
+	 * Constructor
+	 */
+	private ScheduleInterner() {
+	}
+
+	/**
+	 * Factory method idiom to create a ScheduleInterner, which shares the schedules
+	 * of a previous version of the rental units (e.g. when reloading them)
+	 * @param previous The previous version of the rental units; null if none
+	 * @return A new ScheduleInterner instance
+	 */
+	static ScheduleInterner newScheduleInterner(final RentalUnits previous) {
+		final ScheduleInterner interner = new ScheduleInterner();
+
+		if (previous != null) {
+			for (RentalUnit rentalUnit : previous.getRentalUnits()) {
+				final Schedule schedule = rentalUnit.getSchedule();
+				interner.schedules.put(schedule.getSeasonalRates(), schedule);
+
+				for (SeasonalRate seasonalRate : schedule.getSeasonalRates()) {
+					interner.seasonalRates.put(seasonalRate, seasonalRate);
+				}
+			}
+		}
+
+		return interner;
+	}
+
+	/**
+	 * Returns the Schedule of given seasonal rates: the one already interned,
+	 * or a new one (of canonical SeasonalRates) that is interned
+	 * @param rates The given seasonal rates
+	 */
+	Schedule intern(final List<SeasonalRate> rates) {
+		final Schedule schedule = schedules.get(rates);
+
+		if (schedule != null) {
+			return schedule;
+		}
+
+		final List<SeasonalRate> canonicalRates = new ArrayList<SeasonalRate>(rates.size());
+
+		for (SeasonalRate seasonalRate : rates) {
+			final SeasonalRate canonicalRate = seasonalRates.get(seasonalRate);
+
+			if (canonicalRate != null) {
+				canonicalRates.add(canonicalRate);
+			} else {
+				seasonalRates.put(seasonalRate, seasonalRate);
+				canonicalRates.add(seasonalRate);
+			}
+		}
+
+		final Schedule newSchedule = Schedule.newSchedule(canonicalRates);
+		schedules.put(newSchedule.getSeasonalRates(), newSchedule);
+		return newSchedule;
+	}
+
+}
@@ -0,0 +1,122 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Statistics of the sharing of the seasonal rates of some rental units:
+ * how many distinct Schedules and SeasonalRates they hold, and an estimate
+ * of the heap saved against every unit holding its own ones
+ * (on a 64-bit JVM with compressed references)
+ * @author pek
+ */
+public final class ScheduleStatistics {
+	private static final long SEASONAL_RATE_BYTES = 32;	// a SeasonalRate instance
+	private static final long LIST_BYTES = 56;			// an (unmodifiable) ArrayList, empty
+	private static final long LIST_ELEMENT_BYTES = 4;	// a reference in a list
+	// a Schedule and its RateTable (four tables of about 366 doubles)
+	private static final long SCHEDULE_BYTES = 24 + 80 + 4 * 16 + 8 * (366 + 365 + 367 + 366);
+
+	private final int units;				// the amount of rental units
+	private final int schedules;			// the amount of distinct schedules
+	private final long seasonalRates;		// the amount of seasonal rates of all units
+	private final int distinctSeasonalRates;	// the amount of distinct seasonal rates
+	private final long bytesSaved;			// the estimated heap saved
+
+	/**
+	 * Constructor
+	 */
+	private ScheduleStatistics(final int units, final int schedules,
+								final long seasonalRates, final int distinctSeasonalRates,
+								final long bytesSaved) {
+		this.units = units;
+		this.schedules = schedules;
+		this.seasonalRates = seasonalRates;
+		this.distinctSeasonalRates = distinctSeasonalRates;
+		this.bytesSaved = bytesSaved;
+	}
+
+	/**
+	 * Factory method idiom to gather the statistics of given rental units
+	 * @param rentalUnits The given rental units
+	 * @return A new ScheduleStatistics instance
+	 */
+	static ScheduleStatistics newScheduleStatistics(final Iterable<RentalUnit> rentalUnits) {
+		final Set<Schedule> schedules
+			= Collections.newSetFromMap(new IdentityHashMap<Schedule, Boolean>());
+		final Set<SeasonalRate> distinctSeasonalRates
+			= Collections.newSetFromMap(new IdentityHashMap<SeasonalRate, Boolean>());
+		int units = 0;
+		long seasonalRates = 0;
+		long unsharedBytes = 0;		// the bytes if nothing were shared
+		long sharedBytes = 0;		// the bytes actually held
+
+		for (RentalUnit rentalUnit : rentalUnits) {
+			final Schedule schedule = rentalUnit.getSchedule();
+			final int seasons = schedule.getSeasonalRates().size();
+			final long scheduleBytes = SCHEDULE_BYTES + LIST_BYTES + LIST_ELEMENT_BYTES * seasons;
+			units++;
+			seasonalRates += seasons;
+			unsharedBytes += scheduleBytes + SEASONAL_RATE_BYTES * seasons;
+
+			if (schedules.add(schedule)) {
+				sharedBytes += scheduleBytes;
+
+				for (SeasonalRate seasonalRate : schedule.getSeasonalRates()) {
+					if (distinctSeasonalRates.add(seasonalRate)) {
+						sharedBytes += SEASONAL_RATE_BYTES;
+					}
+				}
+			}
+		}
+
+		return new ScheduleStatistics(units, schedules.size(), seasonalRates,
+										distinctSeasonalRates.size(),
+										unsharedBytes - sharedBytes);
+	}
+
+	// --- getters ---
+
+	public int getUnits() {
+		return units;
+	}
+
+	public int getSchedules() {
+		return schedules;
+	}
+
+	public long getSeasonalRates() {
+		return seasonalRates;
+	}
+
+	public int getDistinctSeasonalRates() {
+		return distinctSeasonalRates;
+	}
+
+	/**
+	 * Returns the amount of rental units per distinct schedule
+	 */
+	public double getDedupRatio() {
+		return (schedules == 0) ? 1.0 : (double) units / schedules;
+	}
+
+	/**
+	 * Returns the estimated heap saved by the sharing (bytes)
+	 */
+	public long getBytesSaved() {
+		return bytesSaved;
+	}
+
+	/**
+	 * Useful for inspection
+	 */
+	@Override
+	public String toString() {
+		return String.format("%d rental units share %d schedules (%.2fx), "
+								+ "%d distinct of %d seasonal rates, ~%d KB of heap saved",
+								units, schedules, getDedupRatio(),
+								distinctSeasonalRates, seasonalRates, bytesSaved / 1024);
+	}
+
+}
@@ -1,25 +1,28 @@
 package org.puzzlenode.puzzle07.rentalunits;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 import org.json.simple.JSONObject;
+import org.puzzlenode.puzzle07.util.AmountParser;
+import org.puzzlenode.puzzle07.util.DateFormatter;
 
 /** 
- * The seasonal rate described in the JSON input files
+ * The seasonal rate described in the JSON input files;
+ * its dates are epoch-days of year 1970 (see DateFactory)
  * @author pek
  */
 
 public final class SeasonalRate {
-	// a suitable Date Formatter instance
-	private static SimpleDateFormat FORMATTER = new SimpleDateFormat("MM-dd");
-	// cached values for the first and last days in the seasonal rate format
-	private static Date FIRST_DAY_OF_YEAR = null; 
-	private static Date LAST_DAY_OF_YEAR = null;
+	// a thread-safe formatter of 'MM-dd' dates
+	private static final DateFormatter FORMATTER = new DateFormatter();
+	// a thread-safe parser of amounts
+	private static final AmountParser AMOUNT_PARSER = new AmountParser();
+	// the first and last days in the seasonal rate format
+	private static final int FIRST_DAY_OF_YEAR = parseDate("01-01"); 
+	private static final int LAST_DAY_OF_YEAR = parseDate("12-31");
 	
-	private final Date start;  // The starting date of the seasonal rate
-	private final Date end;    // The ending date of the seasonal rate
+	private final int start;   // The starting date of the seasonal rate
+	private final int end;     // The ending date of the seasonal rate
 	private final double rate; // The rate of the seasonal rate
 	
 	/**
@@ -28,7 +31,7 @@ public final class SeasonalRate {
 	 * @param end The ending date of the seasonal rate
 	 * @param rate The rate of the seasonal rate
 	 */
-	private SeasonalRate (final Date start, final Date end, final double rate) {
+	private SeasonalRate (final int start, final int end, final double rate) {
 		this.start = start;
 		this.end = end;
 		this.rate = rate;
@@ -40,31 +43,7 @@ public final class SeasonalRate {
 	 * @param rate The rate of the seasonal rate
 	 */
 	private SeasonalRate (final double rate) {
-		this (getFirstDayOfYear(), getLastDayOfYear(), rate);
-	}
-	
-	/**
-	 * Accesses, caches and returns the first day of the year 
-	 * in the format used by the SeasonalRate
-	 */	
-	private static Date getFirstDayOfYear() {
-		if (FIRST_DAY_OF_YEAR == null) {
-			FIRST_DAY_OF_YEAR = parseDate("01-01");
-		}
-		
-		return FIRST_DAY_OF_YEAR;
-	}
-
-	/**
-	 * Accesses, caches and returns the first day of the year 
-	 * in the format used by the SeasonalRate
-	 */		
-	private static Date getLastDayOfYear() {
-		if (LAST_DAY_OF_YEAR == null) {
-			LAST_DAY_OF_YEAR = parseDate("12-31");
-		}
-		
-		return LAST_DAY_OF_YEAR;
+		this (FIRST_DAY_OF_YEAR, LAST_DAY_OF_YEAR, rate);
 	}
 
 	/**
@@ -77,6 +56,17 @@ public final class SeasonalRate {
 		return new SeasonalRate(parseRate(rateData));
 	}	
 
+	/**
+	 * Factory method idiom to create a SeasonalRate from given (already parsed) data
+	 * @param start The starting date of the seasonal rate (an epoch-day of year 1970)
+	 * @param end The ending date of the seasonal rate (an epoch-day of year 1970)
+	 * @param rate The rate of the seasonal rate
+	 * @return A new SeasonalRate instance
+	 */		
+	static SeasonalRate newSeasonalRate (final int start, final int end, final double rate) {
+		return new SeasonalRate(start, end, rate);
+	}
+	
 	/**
 	 * Factory method idiom to create a SeasonalRate 
 	 * from a given JSONObject from a JSON file
@@ -84,24 +74,24 @@ public final class SeasonalRate {
 	 * @return A new SeasonalRate instance
 	 */		
 	static SeasonalRate newSeasonalRate (final JSONObject seasonalRateData) {
-		final Date s = parseDate((String) seasonalRateData.get("start"));
-		final Date e = parseDate((String) seasonalRateData.get("end"));
+		final int s = parseDate((String) seasonalRateData.get("start"));
+		final int e = parseDate((String) seasonalRateData.get("end"));
 		final double r = parseRate((String) seasonalRateData.get("rate"));
 		return new SeasonalRate(s, e, r);
 	}
 	
 	/**
 	 * Helper method for above factory methods; It parses a piece of text
-	 * to a Date object
+	 * to a date; an unparsable date falls back to the first day of the year
 	 * @param possibleDate A piece of text presumably describing a Date
 	 * in the appropriate SeasonalRate format
-	 * @return A new Date instance
+	 * @return The date (an epoch-day of year 1970)
 	 */
-	private static Date parseDate (final String possibleDate) {
-		Date date = null;
+	private static int parseDate (final String possibleDate) {
+		int date = 0;
 		
 		try {
-			date = FORMATTER.parse(possibleDate);
+			date = FORMATTER.parseMonthDay(possibleDate);
 		} catch (ParseException e) {
 			System.err.println("Could not parse Date: " + possibleDate);
 			System.err.println(e.getMessage());
@@ -116,16 +106,16 @@ public final class SeasonalRate {
 	 * @return A variable containing a rate
 	 */	
 	private static double parseRate (final String possibleRate) {
-		return Double.parseDouble(possibleRate.trim().replace("$", ""));
+		return AMOUNT_PARSER.parseAmount(possibleRate);
 	}
 
 	// --- getters ---
 	
-	public Date getStart() {
+	public int getStart() {
 		return start;
 	}
 	
-	public Date getEnd() {
+	public int getEnd() {
 		return end;
 	}
 	
@@ -133,13 +123,31 @@ public final class SeasonalRate {
 		return rate;
 	}
 	
+	/**
+	 * Two seasonal rates are equal if they have the same dates and rate
+	 */
+	@Override
+	public boolean equals(final Object o) {
+		if (!(o instanceof SeasonalRate)) {
+			return false;
+		}
+		
+		final SeasonalRate sr = (SeasonalRate) o;
+		return start == sr.start && end == sr.end && Double.compare(rate, sr.rate) == 0;
+	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * (31 * start + end) + Double.valueOf(rate).hashCode();
+	}
+	
 	/**
 	 * Useful for inspection
 	 */		
 	@Override
 	public String toString() {
-		final String s = FORMATTER.format(start);
-		final String e = FORMATTER.format(end);
+		final String s = FORMATTER.formatMonthDay(start);
+		final String e = FORMATTER.formatMonthDay(end);
 		return String.format("In [%s -- %s], rate is: $%.2f", s, e, rate);
 	}
 }
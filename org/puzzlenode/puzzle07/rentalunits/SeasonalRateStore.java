@@ -0,0 +1,291 @@
+package org.puzzlenode.puzzle07.rentalunits;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The seasonal rates of (possibly millions of) rental units in a columnar,
+ * memory-mapped file, so that they can be quoted without any RentalUnit
+ * or SeasonalRate on the heap. The file holds, after a header, the columns:
+ * cleaning fees and rates (doubles), the first season and the name
+ * of every unit (int offsets), the starting and ending dates of the seasons
+ * (shorts; epoch-days of year 1970) and the names (UTF-8).
+ * The seasons of unit i are the ones in [firstSeason(i), firstSeason(i + 1))
+ * @author pek
+ */
+public final class SeasonalRateStore {
+	private static final int MAGIC = 0x50555A37;	// "PUZ7"
+	private static final int VERSION = 1;			// The version of the layout
+	private static final int HEADER_BYTES = 16;		// magic, version, units, seasons
+
+	private final int unitCount;			// The amount of units
+	private final DoubleBuffer cleaningFees;// The cleaning fee of every unit
+	private final DoubleBuffer rates;		// The rate of every season
+	private final IntBuffer firstSeasons;	// The first season of every unit (+ the end)
+	private final IntBuffer nameOffsets;	// The name offset of every unit (+ the end)
+	private final ShortBuffer starts;		// The starting date of every season
+	private final ShortBuffer ends;			// The ending date of every season
+	private final ByteBuffer names;			// The names of all units
+
+	/**
+	 * Constructor
+	 */
+	private SeasonalRateStore(final int unitCount,
+								final DoubleBuffer cleaningFees, final DoubleBuffer rates,
+								final IntBuffer firstSeasons, final IntBuffer nameOffsets,
+								final ShortBuffer starts, final ShortBuffer ends,
+								final ByteBuffer names) {
+		this.unitCount = unitCount;
+		this.cleaningFees = cleaningFees;
+		this.rates = rates;
+		this.firstSeasons = firstSeasons;
+		this.nameOffsets = nameOffsets;
+		this.starts = starts;
+		this.ends = ends;
+		this.names = names;
+	}
+
+	/**
+	 * Factory method idiom to map a SeasonalRateStore from a given file
+	 * @param storeFile The filename of the store
+	 * @return A new SeasonalRateStore instance; null if the file cannot be mapped
+	 */
+	public static SeasonalRateStore newSeasonalRateStore(final String storeFile) {
+		try (FileChannel channel = FileChannel.open(Paths.get(storeFile), StandardOpenOption.READ)) {
+			final ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_BYTES);
+
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				System.err.println("Not a seasonal rate store (version "
+									+ VERSION + "): " + storeFile);
+				return null;
+			}
+
+			final int units = header.getInt();
+			final int seasons = header.getInt();
+			long position = HEADER_BYTES;
+			final DoubleBuffer cleaningFees = map(channel, position, 8L * units).asDoubleBuffer();
+			position += 8L * units;
+			final DoubleBuffer rates = map(channel, position, 8L * seasons).asDoubleBuffer();
+			position += 8L * seasons;
+			final IntBuffer firstSeasons = map(channel, position, 4L * (units + 1)).asIntBuffer();
+			position += 4L * (units + 1);
+			final IntBuffer nameOffsets = map(channel, position, 4L * (units + 1)).asIntBuffer();
+			position += 4L * (units + 1);
+			final ShortBuffer starts = map(channel, position, 2L * seasons).asShortBuffer();
+			position += 2L * seasons;
+			final ShortBuffer ends = map(channel, position, 2L * seasons).asShortBuffer();
+			position += 2L * seasons;
+			final ByteBuffer names = map(channel, position, nameOffsets.get(units));
+			return new SeasonalRateStore(units, cleaningFees, rates, firstSeasons, nameOffsets,
+											starts, ends, names);
+		} catch (IOException e) {
+			System.err.println("Cannot map file: " + storeFile);
+			System.err.println(e.getMessage());
+		}
+
+		return null;
+	}
+
+	private static ByteBuffer map(final FileChannel channel, final long position,
+									final long size) throws IOException {
+		return channel.map(MapMode.READ_ONLY, position, size);
+	}
+
+	/**
+	 * Converts a JSON file of rental units to a store file; the rental units
+	 * are streamed one at a time and every column is spooled to its own
+	 * temporary file, so the heap use does not depend on the catalogue size
+	 * @param inputFile The filename of the JSON file
+	 * @param storeFile The filename of the store to write
+	 * @return Whether or not the store was written
+	 */
+	public static boolean writeSeasonalRateStore(final String inputFile, final String storeFile) {
+		final Path store = Paths.get(storeFile);
+		final Path[] columns = new Path[7];
+
+		try {
+			for (int i = 0; i < columns.length; i++) {
+				columns[i] = Files.createTempFile(store.toAbsolutePath().getParent(),
+													"column", ".tmp");
+			}
+
+			final int[] counts = writeColumns(inputFile, columns);
+			writeStore(store, counts[0], counts[1], columns);
+			return true;
+		} catch (IOException e) {
+			System.err.println("Cannot write file: " + storeFile);
+			System.err.println(e.getMessage());
+		} finally {
+			for (Path column : columns) {
+				deleteQuietly(column);
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Helper method for the above method; It writes every column
+	 * to its own file
+	 * @return The amount of units and the amount of seasons
+	 */
+	private static int[] writeColumns(final String inputFile, final Path[] columns)
+			throws IOException {
+		int units = 0;
+		int seasons = 0;
+		int nameBytes = 0;
+
+		try (RentalUnitsReader reader = RentalUnitsReader.newRentalUnitsReader(inputFile);
+				DataOutputStream fees = open(columns[0]);
+				DataOutputStream rates = open(columns[1]);
+				DataOutputStream firstSeasons = open(columns[2]);
+				DataOutputStream nameOffsets = open(columns[3]);
+				DataOutputStream starts = open(columns[4]);
+				DataOutputStream ends = open(columns[5]);
+				DataOutputStream names = open(columns[6])) {
+			while (reader.hasNext()) {
+				final RentalUnit rentalUnit = reader.next();
+				final byte[] name = rentalUnit.getName().getBytes(StandardCharsets.UTF_8);
+				fees.writeDouble(rentalUnit.getCleaningFee());
+				firstSeasons.writeInt(seasons);
+				nameOffsets.writeInt(nameBytes);
+				names.write(name);
+
+				for (SeasonalRate seasonalRate : rentalUnit.getSeasonalRates()) {
+					rates.writeDouble(seasonalRate.getRate());
+					starts.writeShort(seasonalRate.getStart());
+					ends.writeShort(seasonalRate.getEnd());
+					seasons++;
+				}
+
+				nameBytes += name.length;
+				units++;
+			}
+
+			firstSeasons.writeInt(seasons);
+			nameOffsets.writeInt(nameBytes);
+		}
+
+		return new int[] {units, seasons};
+	}
+
+	/**
+	 * Helper method for the above method; It concatenates the header
+	 * and the columns into the store file
+	 */
+	private static void writeStore(final Path store, final int units, final int seasons,
+									final Path[] columns) throws IOException {
+		try (FileChannel output = FileChannel.open(store, StandardOpenOption.CREATE,
+													StandardOpenOption.WRITE,
+													StandardOpenOption.TRUNCATE_EXISTING)) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(MAGIC).putInt(VERSION).putInt(units).putInt(seasons).flip();
+
+			while (header.hasRemaining()) {
+				output.write(header);
+			}
+
+			for (Path column : columns) {
+				try (FileChannel input = FileChannel.open(column, StandardOpenOption.READ)) {
+					long position = 0L;
+
+					while (position < input.size()) {
+						position += input.transferTo(position, input.size() - position, output);
+					}
+				}
+			}
+		}
+	}
+
+	private static DataOutputStream open(final Path column) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(column)));
+	}
+
+	private static void deleteQuietly(final Path file) {
+		if (file != null) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				System.err.println("Cannot delete file: " + file);
+			}
+		}
+	}
+
+	// --- getters ---
+
+	/**
+	 * Returns the amount of units
+	 */
+	public int size() {
+		return unitCount;
+	}
+
+	/**
+	 * Returns the name of a given unit
+	 * @param unit The index of the unit
+	 */
+	public String getName(final int unit) {
+		final int from = nameOffsets.get(unit);
+		final byte[] name = new byte[nameOffsets.get(unit + 1) - from];
+
+		for (int i = 0; i < name.length; i++) {
+			name[i] = names.get(from + i);
+		}
+
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the cleaning fee of a given unit
+	 * @param unit The index of the unit
+	 */
+	public double getCleaningFee(final int unit) {
+		return cleaningFees.get(unit);
+	}
+
+	/**
+	 * Returns the index of the first season of a given unit;
+	 * the one of the next unit is the end of its seasons
+	 * @param unit The index of the unit (up to size(), inclusive)
+	 */
+	public int getFirstSeason(final int unit) {
+		return firstSeasons.get(unit);
+	}
+
+	/**
+	 * Returns the starting date of a given season (an epoch-day of year 1970)
+	 * @param season The index of the season
+	 */
+	public int getStart(final int season) {
+		return starts.get(season);
+	}
+
+	/**
+	 * Returns the ending date of a given season (an epoch-day of year 1970)
+	 * @param season The index of the season
+	 */
+	public int getEnd(final int season) {
+		return ends.get(season);
+	}
+
+	/**
+	 * Returns the rate of a given season
+	 * @param season The index of the season
+	 */
+	public double getRate(final int season) {
+		return rates.get(season);
+	}
+
+}
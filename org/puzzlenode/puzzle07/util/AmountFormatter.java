@@ -0,0 +1,95 @@
+package org.puzzlenode.puzzle07.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Formats amounts of money with two decimals (e.g. "2474.79"), in ASCII,
+ * into a given buffer (or StringBuilder). The result is exactly that of
+ * String.format("%.2f") (in the root locale, i.e. with a decimal point),
+ * which rounds half-up the shortest decimal form of the amount (as in
+ * Double.toString()); the cents are calculated in a long without allocating,
+ * and only amounts too close to a half cent to tell (or negative, huge,
+ * or not a number) fall back to String.format().
+ * It holds no state, so an instance can be shared by any number of threads
+ * @author pek
+ */
+public final class AmountFormatter {
+	private static final double MAX_AMOUNT = 1e13;		// max amount formatted in a long
+	// the margin around a half cent (in ulps of the cents), which covers both the error
+	// of the scaling to cents and the distance of the amount from its decimal form
+	private static final double TIE_ULPS = 4.0;
+
+	/**
+	 * Formats an amount with two decimals into a given buffer
+	 * @param amount The amount
+	 * @param output The buffer to put the formatted amount into
+	 */
+	public void formatAmount(final double amount, final ByteBuffer output) {
+		final long cents = cents(amount);
+
+		if (cents < 0) {
+			output.put(String.format(Locale.ROOT, "%.2f", amount).getBytes(StandardCharsets.US_ASCII));
+			return;
+		}
+
+		putDigits(output, cents / 100);
+		output.put((byte) '.');
+		output.put((byte) ('0' + (cents % 100) / 10));
+		output.put((byte) ('0' + cents % 10));
+	}
+
+	/**
+	 * Formats an amount with two decimals into a given StringBuilder
+	 * @param amount The amount
+	 * @param output The StringBuilder to append the formatted amount to
+	 */
+	public void formatAmount(final double amount, final StringBuilder output) {
+		final long cents = cents(amount);
+
+		if (cents < 0) {
+			output.append(String.format(Locale.ROOT, "%.2f", amount));
+			return;
+		}
+
+		output.append(cents / 100).append('.')
+				.append((char) ('0' + (cents % 100) / 10))
+				.append((char) ('0' + cents % 10));
+	}
+
+	/**
+	 * Returns an amount in (rounded) cents; -1 if it is to be formatted
+	 * by String.format() (see above)
+	 */
+	private static long cents(final double amount) {
+		if (!(amount >= 0.0 && amount < MAX_AMOUNT)) {
+			return -1;
+		}
+
+		final double scaled = amount * 100.0;
+		final double whole = Math.floor(scaled);
+
+		if (Math.abs(scaled - whole - 0.5) <= TIE_ULPS * Math.ulp(scaled)) {
+			return -1;	// (almost) a half cent: the rounding depends on the decimal form
+		}
+
+		return (long) whole + ((scaled - whole > 0.5) ? 1 : 0);
+	}
+
+	/**
+	 * Puts the digits of a non-negative number (no leading zeros)
+	 */
+	private static void putDigits(final ByteBuffer output, final long number) {
+		long divisor = 1;
+
+		while (divisor <= number / 10) {
+			divisor *= 10;
+		}
+
+		for (; divisor > 0; divisor /= 10) {
+			output.put((byte) ('0' + (number / divisor) % 10));
+		}
+	}
+
+}
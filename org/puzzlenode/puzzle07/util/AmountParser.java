@@ -0,0 +1,72 @@
+package org.puzzlenode.puzzle07.util;
+
+/**
+ * Parses amounts of money as they appear in the JSON input files (e.g. "$137.50").
+ * Plain amounts are parsed in a single pass without intermediate strings;
+ * anything else falls back to Double.parseDouble() with the '$' removed.
+ * It holds no state, so an instance can be shared by any number of threads
+ * @author pek
+ */
+public final class AmountParser {
+	private static final int MAX_DIGITS = 15;	// max digits of an exact double
+	// the powers of ten that are exact doubles
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+	};
+
+	/**
+	 * Parses a piece of text to an amount
+	 * @param possibleAmount A piece of text presumably describing an amount
+	 * @return The amount
+	 * @throws NumberFormatException If the text does not describe an amount
+	 */
+	public double parseAmount(final String possibleAmount) {
+		final int length = possibleAmount.length();
+		int i = skipWhitespace(possibleAmount, 0);
+
+		if (i < length && possibleAmount.charAt(i) == '$') {
+			i++;
+		}
+
+		long mantissa = 0L;
+		int digits = 0;
+		int decimals = 0;
+		boolean point = false;
+
+		for (; i < length; i++) {
+			final char c = possibleAmount.charAt(i);
+
+			if (c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				digits++;
+
+				if (point) {
+					decimals++;
+				}
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+
+		if (digits == 0 || digits > MAX_DIGITS
+			|| skipWhitespace(possibleAmount, i) != length) {
+			return Double.parseDouble(possibleAmount.trim().replace("$", ""));
+		}
+
+		// both operands are exact, so the division is correctly rounded
+		return mantissa / POWERS_OF_TEN[decimals];
+	}
+
+	private static int skipWhitespace(final String text, final int start) {
+		int i = start;
+
+		while (i < text.length() && text.charAt(i) <= ' ') {
+			i++;
+		}
+
+		return i;
+	}
+
+}
@@ -1,49 +1,135 @@
 package org.puzzlenode.puzzle07.util;
 
-import java.util.Calendar;
-import java.util.Date;
-import java.util.GregorianCalendar;
-
 /**
- * Acts as a factory for custom creation of instances of the Date class 
+ * Acts as a factory for custom creation of dates.
+ * Dates are represented as epoch-days, i.e. the amount of days
+ * since 1970-01-01, so that all calculations are simple integer arithmetic
+ * (no allocations, no time-of-day, no daylight saving time)
  * @author pek
  */
 public final class DateFactory {
-	
+	private static final int DAYS_IN_YEAR = 365;	// days of a non-leap year
+	private static final int EPOCH_YEAR = 1970;		// the year of epoch-day 0
+	private static final int LEAP_DAY = 59;			// epoch-day of 1970-03-01, i.e.
+													// the first day shifted in leap years
+	private static final int MONTHS_IN_YEAR = 12;	// months of a year
+	private static final int MARCH = 2;				// the zero-based index of March
+	// the days before each (zero-based) month of a non-leap year
+	private static final int[] DAYS_BEFORE_MONTH 
+		= {0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334};
+	// the amount of leap days before the epoch year
+	private static final int LEAP_DAYS_BEFORE_EPOCH = leapDaysUntil(EPOCH_YEAR - 1);
+
 	/**
-	 * Creates a date according to the properties of a given Date
-	 * and essentially according to year-value pf the given year parameter 
-	 * @param date The given date
+	 * Creates a date with the same month and day of a given date
+	 * and essentially according to year-value of the given year parameter
+	 * @param day The given date (an epoch-day of year 1970)
 	 * @param year The given year
-	 * @return A new Date instance
+	 * @return The epoch-day of the new date
 	 */
-	public Date createDateOfYear(Date date, int year) {
-		final GregorianCalendar calendar = new GregorianCalendar();
-		calendar.setTime(date);
-		calendar.set(Calendar.YEAR, year);
-		return calendar.getTime();
+	public int createDateOfYear(final int day, final int year) {
+		final int shift = (day >= LEAP_DAY && isLeapYear(year)) ? 1 : 0;
+		return createFirstDateOfYear(year) + day + shift;
 	}
-	
+
 	/**
-	 * Creates a date for the first day of the given year 
+	 * Creates a date for the first day of the given year
 	 * @param year The given year
-	 * @return A new Date instance
+	 * @return The epoch-day of the new date
 	 */
-	public Date createFirstDateOfYear(int year) {
-		final GregorianCalendar calendar = new GregorianCalendar();
-		calendar.set(year, Calendar.JANUARY, 1);
-		return calendar.getTime();
+	public int createFirstDateOfYear(final int year) {
+		return DAYS_IN_YEAR * (year - EPOCH_YEAR)
+				+ leapDaysUntil(year - 1) - LEAP_DAYS_BEFORE_EPOCH;
 	}
 
 	/**
-	 * Creates a date for the last day of the given year 
+	 * Creates a date for the last day of the given year
 	 * @param year The given year
-	 * @return A new Date instance
-	 */	
-	public Date createLastDateOfYear(int year) {
-		final GregorianCalendar calendar = new GregorianCalendar();
-		calendar.set(year, Calendar.DECEMBER, 31);
-		return calendar.getTime();
-	}
-	
+	 * @return The epoch-day of the new date
+	 */
+	public int createLastDateOfYear(final int year) {
+		return createFirstDateOfYear(year + 1) - 1;
+	}
+
+	/**
+	 * Creates a date for a given year, month and day of month;
+	 * like a lenient calendar, out-of-range months and days roll over
+	 * @param year The given year
+	 * @param month The given month (1 for January)
+	 * @param dayOfMonth The given day of month
+	 * @return The epoch-day of the new date
+	 */
+	public int createDate(final int year, final int month, final int dayOfMonth) {
+		final int actualYear = year + Math.floorDiv(month - 1, MONTHS_IN_YEAR);
+		final int actualMonth = Math.floorMod(month - 1, MONTHS_IN_YEAR);
+		final int shift = (actualMonth >= MARCH && isLeapYear(actualYear)) ? 1 : 0;
+		return createFirstDateOfYear(actualYear) + DAYS_BEFORE_MONTH[actualMonth] + shift
+				+ dayOfMonth - 1;
+	}
+
+	/**
+	 * Returns the month (1 for January) of a given date
+	 * @param day The given date (an epoch-day)
+	 */
+	public int monthOfDate(final int day) {
+		final int year = yearOfDate(day);
+		int month = MONTHS_IN_YEAR;
+
+		while (createDate(year, month, 1) > day) {
+			month--;
+		}
+
+		return month;
+	}
+
+	/**
+	 * Returns the day of month of a given date
+	 * @param day The given date (an epoch-day)
+	 */
+	public int dayOfMonth(final int day) {
+		return day - createDate(yearOfDate(day), monthOfDate(day), 1) + 1;
+	}
+
+	/**
+	 * Returns the year of a given date
+	 * @param day The given date (an epoch-day)
+	 */
+	public int yearOfDate(final int day) {
+		int year = EPOCH_YEAR + (int) Math.floorDiv(400L * day, 146097L);
+
+		while (createFirstDateOfYear(year) > day) {
+			year--;
+		}
+
+		while (createFirstDateOfYear(year + 1) <= day) {
+			year++;
+		}
+
+		return year;
+	}
+
+	/**
+	 * Checks whether a given year is a leap year
+	 * @param year The given year
+	 */
+	public boolean isLeapYear(final int year) {
+		return (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	/**
+	 * Returns the amount of leap years in a given range of years
+	 * @param fromYear The first year of the range (inclusive)
+	 * @param toYear The last year of the range (inclusive)
+	 */
+	public int countLeapYears(final int fromYear, final int toYear) {
+		return (toYear < fromYear) ? 0 : leapDaysUntil(toYear) - leapDaysUntil(fromYear - 1);
+	}
+
+	/**
+	 * Returns the amount of leap days from year 0 until a given year (inclusive)
+	 */
+	private static int leapDaysUntil(final int year) {
+		return Math.floorDiv(year, 4) - Math.floorDiv(year, 100) + Math.floorDiv(year, 400);
+	}
+
 }
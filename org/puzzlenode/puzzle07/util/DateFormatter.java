@@ -0,0 +1,184 @@
+package org.puzzlenode.puzzle07.util;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+
+/**
+ * Parses and formats dates (epoch-days, see DateFactory) in fixed formats:
+ * 'yyyy/MM/dd' (e.g. of the reservation periods) and 'MM-dd'
+ * (e.g. of the seasonal rates; year 1970 is implied).
+ * Unlike SimpleDateFormat it holds no state, so an instance can be shared
+ * by any number of threads; it parses leniently like SimpleDateFormat
+ * (out-of-range and negative months and days roll over, blanks before
+ * a number are skipped and any trailing text is ignored), but numbers
+ * of more than 9 digits are rejected
+ * @author pek
+ */
+public final class DateFormatter {
+	private static final DateFactory DATE_FACTORY = new DateFactory(); // a DateFactory instance
+	private static final int MONTH_DAY_YEAR = 1970;	// the year implied by 'MM-dd'
+	private static final int MAX_DIGITS = 9;		// max digits of a number (fits an int)
+
+	/**
+	 * Parses a date in format 'yyyy/MM/dd'
+	 * @param text A piece of text presumably describing a date
+	 * @return The date (an epoch-day)
+	 * @throws ParseException If the text does not start with a date
+	 */
+	public int parseDate(final String text) throws ParseException {
+		return parseDate(text, 0);
+	}
+
+	/**
+	 * Parses a date in format 'yyyy/MM/dd' at a given position of a text
+	 * (e.g. of a line with more dates), without copying the text
+	 * @param text A piece of text presumably describing a date
+	 * @param start The position of the date in the text
+	 * @return The date (an epoch-day)
+	 * @throws ParseException If the text does not have a date at the position
+	 */
+	public int parseDate(final CharSequence text, final int start) throws ParseException {
+		final int yearStart = numberStart(text, start);
+		final int yearEnd = numberEnd(text, yearStart);
+		final int monthStart = numberStart(text, separated(text, yearEnd, '/'));
+		final int monthEnd = numberEnd(text, monthStart);
+		final int dayStart = numberStart(text, separated(text, monthEnd, '/'));
+		final int dayEnd = numberEnd(text, dayStart);
+		return DATE_FACTORY.createDate(parseNumber(text, yearStart, yearEnd),
+										parseNumber(text, monthStart, monthEnd),
+										parseNumber(text, dayStart, dayEnd));
+	}
+
+	/**
+	 * Returns the position right after the date in format 'yyyy/MM/dd'
+	 * at a given position of a text
+	 * @param text A piece of text presumably describing a date
+	 * @param start The position of the date in the text
+	 * @throws ParseException If the text does not have a date at the position
+	 */
+	public int dateEnd(final CharSequence text, final int start) throws ParseException {
+		final int yearEnd = numberEnd(text, numberStart(text, start));
+		final int monthEnd = numberEnd(text, numberStart(text, separated(text, yearEnd, '/')));
+		return numberEnd(text, numberStart(text, separated(text, monthEnd, '/')));
+	}
+
+	/**
+	 * Parses a date in format 'MM-dd'
+	 * @param text A piece of text presumably describing a date
+	 * @return The date (an epoch-day of year 1970)
+	 * @throws ParseException If the text does not start with a date
+	 */
+	public int parseMonthDay(final String text) throws ParseException {
+		final int monthStart = numberStart(text, 0);
+		final int monthEnd = numberEnd(text, monthStart);
+		final int dayStart = numberStart(text, separated(text, monthEnd, '-'));
+		final int dayEnd = numberEnd(text, dayStart);
+		return DATE_FACTORY.createDate(MONTH_DAY_YEAR,
+										parseNumber(text, monthStart, monthEnd),
+										parseNumber(text, dayStart, dayEnd));
+	}
+
+	/**
+	 * Formats a date in format 'yyyy/MM/dd'
+	 * @param day The date (an epoch-day)
+	 */
+	public String formatDate(final int day) {
+		return String.format("%04d/%02d/%02d", DATE_FACTORY.yearOfDate(day),
+								DATE_FACTORY.monthOfDate(day), DATE_FACTORY.dayOfMonth(day));
+	}
+
+	/**
+	 * Formats a date in format 'yyyy/MM/dd' (in ASCII) into a given buffer,
+	 * without allocating; years beyond 4 digits are not supported
+	 * @param day The date (an epoch-day)
+	 * @param output The buffer to put the date into
+	 */
+	public void formatDate(final int day, final ByteBuffer output) {
+		final int year = DATE_FACTORY.yearOfDate(day);
+		final int month = DATE_FACTORY.monthOfDate(day);
+		putDigits(output, year, 4);
+		output.put((byte) '/');
+		putDigits(output, month, 2);
+		output.put((byte) '/');
+		putDigits(output, day - DATE_FACTORY.createDate(year, month, 1) + 1, 2);
+	}
+
+	/**
+	 * Formats a date in format 'MM-dd'
+	 * @param day The date (an epoch-day)
+	 */
+	public String formatMonthDay(final int day) {
+		return String.format("%02d-%02d",
+								DATE_FACTORY.monthOfDate(day), DATE_FACTORY.dayOfMonth(day));
+	}
+
+	// --- helper methods for the above methods ---
+
+	private static void putDigits(final ByteBuffer output, final int number, final int digits) {
+		int divisor = 1;
+
+		for (int i = 1; i < digits; i++) {
+			divisor *= 10;
+		}
+
+		for (; divisor > 0; divisor /= 10) {
+			output.put((byte) ('0' + (number / divisor) % 10));
+		}
+	}
+
+	/**
+	 * Returns the position of a number (or its sign), after any blanks
+	 */
+	private static int numberStart(final CharSequence text, final int position) {
+		int start = position;
+
+		while (start < text.length() && (text.charAt(start) == ' ' || text.charAt(start) == '\t')) {
+			start++;
+		}
+
+		return start;
+	}
+
+	/**
+	 * Returns the position right after a number (with an optional minus sign)
+	 */
+	private static int numberEnd(final CharSequence text, final int start) throws ParseException {
+		final int digits = (start < text.length() && text.charAt(start) == '-') ? start + 1 : start;
+		int end = digits;
+
+		while (end < text.length() && isDigit(text.charAt(end))) {
+			end++;
+		}
+
+		if (end == digits || end - digits > MAX_DIGITS) {
+			throw new ParseException("Unparseable date: \"" + text + "\"", start);
+		}
+
+		return end;
+	}
+
+	private static int separated(final CharSequence text, final int position, final char separator)
+			throws ParseException {
+		if (position >= text.length() || text.charAt(position) != separator) {
+			throw new ParseException("Unparseable date: \"" + text + "\"", position);
+		}
+
+		return position + 1;
+	}
+
+	private static int parseNumber(final CharSequence text, final int start, final int end) {
+		final boolean negative = text.charAt(start) == '-';
+		int number = 0;
+
+		for (int i = negative ? start + 1 : start; i < end; i++) {
+			number = number * 10 + (text.charAt(i) - '0');
+		}
+
+		return negative ? -number : number;
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+}
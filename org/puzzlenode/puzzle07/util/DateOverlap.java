@@ -1,19 +1,17 @@
 package org.puzzlenode.puzzle07.util;
 
-import java.util.Date;
-import java.util.concurrent.TimeUnit;
-
 /**
  * The overlap between two date-ranges, each one defined by its starting and ending dates.
+ * Dates are epoch-days (see DateFactory).
  * An essential class for the accommodation billing computations.
  * @author pek
  */
 public final class DateOverlap {
-	private final Date range1First; // The first date of the first range
-	private final Date range1Last;  // The last date of the first range
-	private final Date range2First; // The first date of the second range
-	private final Date range2Last;  // The last date of the second range
-	
+	private final int range1First; // The first date of the first range
+	private final int range1Last;  // The last date of the first range
+	private final int range2First; // The first date of the second range
+	private final int range2Last;  // The last date of the second range
+
 	/**
 	 * Constructor
 	 * @param r1first The first date of the first range
@@ -21,7 +19,7 @@ public final class DateOverlap {
 	 * @param r2first The first date of the second range
 	 * @param r2last The last date of the second range
 	 */
-	private DateOverlap (Date r1first, Date r1last, Date r2first, Date r2last) {
+	private DateOverlap (int r1first, int r1last, int r2first, int r2last) {
 		range1First = r1first;
 		range1Last = r1last;
 		range2First = r2first;
@@ -34,54 +32,52 @@ public final class DateOverlap {
 	 * @param r1last The last date of the first range
 	 * @param r2first The first date of the second range
 	 * @param r2last The last date of the second range
-	 */	
-	public static DateOverlap newDateOverlap (final Date range1First, 
-												final Date range1Last, 
-												final Date range2First, 
-												final Date range2Last) {
+	 */
+	public static DateOverlap newDateOverlap (final int range1First,
+												final int range1Last,
+												final int range2First,
+												final int range2Last) {
 		return new DateOverlap(range1First, range1Last,range2First, range2Last);
 	}
-	
+
 	/**
-	 * Calculates and returns the amount of day for which 
+	 * Calculates and returns the amount of day for which
 	 * the two date-ranges overlap
-	 * @param countLastDate It instructs whether or not 
+	 * @param countLastDate It instructs whether or not
 	 * the last overlaping date should be taken into account
 	 */
 	public long calculateOverlap(final boolean countLastDate) {
-		final Date fromDate = maximum(range1First, range2First);
-		final Date untilDate = minimum(range1Last, range2Last);
+		return calculateOverlap(range1First, range1Last, range2First, range2Last, countLastDate);
+	}
+
+	/**
+	 * Calculates and returns the amount of day for which
+	 * two given date-ranges overlap; allocation-free variant of the above method
+	 * @param range1First The first date of the first range
+	 * @param range1Last The last date of the first range
+	 * @param range2First The first date of the second range
+	 * @param range2Last The last date of the second range
+	 * @param countLastDate It instructs whether or not
+	 * the last overlaping date should be taken into account
+	 */
+	public static long calculateOverlap(final int range1First,
+										final int range1Last,
+										final int range2First,
+										final int range2Last,
+										final boolean countLastDate) {
+		final int fromDate = Math.max(range1First, range2First);
+		final int untilDate = Math.min(range1Last, range2Last);
 		long overlap = 0L;
-		
-		if (untilDate.compareTo(fromDate) >= 0) {
-			overlap = calcDateDifferenceInDays(fromDate, untilDate);
-			
-			if (considerLastDate(untilDate, countLastDate)) {
+
+		if (untilDate >= fromDate) {
+			overlap = untilDate - fromDate;
+
+			if (countLastDate && range1Last == untilDate) {
 				overlap++;
 			}
 		}
-		
-		return overlap;
-	}
 
-	// --- helper methods (with minimal calculations) for the above method ---
-	
-	private Date minimum (final Date date1, final Date date2) {
-		return (date1.compareTo(date2) <= 0) ? date1 : date2;
+		return overlap;
 	}
 
-	private Date maximum (final Date date1, final Date date2) {
-		return (date1.compareTo(date2) >= 0) ? date1 : date2;
-	}	
-	
-	private long calcDateDifferenceInDays(final Date date1, final Date date2) {
-		final long diff = date2.getTime() - date1.getTime();
-		return TimeUnit.DAYS.convert(diff, TimeUnit.MILLISECONDS);
-	}
-	
-	private boolean considerLastDate (final Date lastDate, 
-										final boolean countLastDate) {
-		return countLastDate && range1Last.equals(lastDate);
-	}
-	
 }